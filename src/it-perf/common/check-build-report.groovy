@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// Checks the build of a performance IT against its time budget, using the build report of the plugin.
+// Expects in the binding: basedir, budgetMillis and the perfTimeFactor script variable.
+
+import groovy.json.JsonSlurper
+
+File earFile = new File(basedir, "target/${basedir.name}-1.0.ear")
+assert earFile.isFile() : "Missing EAR ${earFile}"
+println "${earFile.name}: ${earFile.length() >> 20} MB"
+
+File reportFile = new File(basedir, 'target/ear-build-report.json')
+assert reportFile.isFile() : "Missing build report ${reportFile}"
+def report = new JsonSlurper().parse(reportFile)
+
+long budget = (long) ((budgetMillis as long) * (perfTimeFactor as double))
+report.executions.each { execution ->
+    println "${execution.execution}: ${execution.totalMillis} ms ${execution.phases}"
+}
+def ear = report.executions.find { it.execution.startsWith('ear:ear ') }
+assert ear != null : 'No ear:ear execution in the build report'
+assert ear.totalMillis <= budget : "ear:ear took ${ear.totalMillis} ms, over the budget of ${budget} ms"
+
+return true
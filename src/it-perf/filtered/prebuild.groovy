@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// Generates perfSourceCount EAR sources to filter, spread over directories of 100 files
+
+int sourceCount = perfSourceCount as int
+File sourceDirectory = new File(basedir, 'src/main/application/conf')
+for (int i = 0; i < sourceCount; i++) {
+    File source = new File(sourceDirectory, "dir-${i.intdiv(100)}/file-${i}.properties")
+    source.parentFile.mkdirs()
+    StringBuilder content = new StringBuilder()
+    content << 'artifactId=${project.artifactId}\n'
+    content << 'version=${project.version}\n'
+    for (int j = 0; j < 50; j++) {
+        content << "key.${j}=value ${j} of file ${i}\n"
+    }
+    source.setText(content.toString(), 'UTF-8')
+}
+println "Generated ${sourceCount} EAR sources"
+return true
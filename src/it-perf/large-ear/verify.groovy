@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+
+budgetMillis = 300000
+assert evaluate(new File(perfScripts, 'check-build-report.groovy'))
+
+long expectedSize = (perfLargeEarMb as long) << 20
+File earFile = new File(basedir, 'target/large-ear-1.0.ear')
+assert earFile.length() >= expectedSize : "${earFile} is smaller than ${expectedSize} bytes"
+
+new ZipFile(earFile).withCloseable { ear ->
+    // The unpacked WAR alone brings more than 65535 entries
+    assert ear.size() > 65535 : "Only ${ear.size()} entries in ${earFile}"
+    String unpackedClass =
+            'org.apache.maven.its.ear.perf-many-entries-1-1.0.war/WEB-INF/classes/org/example/many1/Class0.class'
+    assert ear.getEntry(unpackedClass) != null : "Missing ${unpackedClass}"
+
+    // The streamed skinny WAR keeps all of its classes but none of its libraries
+    def war = ear.getEntry('org.apache.maven.its.ear.perf-many-entries-0-1.0.war')
+    assert war != null : 'Missing many-entries-0 WAR'
+    int classes = 0
+    new ZipInputStream(ear.getInputStream(war)).withCloseable { zip ->
+        for (def entry = zip.nextEntry; entry != null; entry = zip.nextEntry) {
+            assert !entry.name.startsWith('WEB-INF/lib/') : "${entry.name} was not stripped"
+            if (entry.name.endsWith('.class')) {
+                classes++
+            }
+        }
+    }
+    assert classes == 70000 : "Only ${classes} classes in the many-entries-0 WAR"
+}
+return true
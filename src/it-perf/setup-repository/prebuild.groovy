@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// Generates the synthetic artifacts of the performance ITs straight into the local repository:
+// - lib-N.jar: perfLibraryCount small libraries, gathered by the "libraries" POM
+// - web-N.war: perfWarCount WARs of perfWarSizeMb MB of classes bundling the first libraries in WEB-INF/lib,
+//   gathered by the "webapps" POM
+// - large-N.war: WARs of LARGE_WAR_MB MB of incompressible data adding up to perfLargeEarMb MB, gathered by the
+//   "large-webapps" POM
+// - many-entries-N.war: MANY_ENTRIES_WAR_COUNT WARs of MANY_ENTRIES tiny classes, more than a ZIP file can hold
+//   without ZIP64 extensions, bundling the first libraries in WEB-INF/lib
+
+import java.util.zip.Deflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+final String GROUP_ID = 'org.apache.maven.its.ear.perf'
+final int LARGE_WAR_MB = 128
+final int BUNDLED_LIBRARIES = 10
+final int MANY_ENTRIES = 70000
+final int MANY_ENTRIES_WAR_COUNT = 2
+final int MB = 1024 * 1024
+
+int libraryCount = perfLibraryCount as int
+int warCount = perfWarCount as int
+int warSizeMb = perfWarSizeMb as int
+int largeEarMb = perfLargeEarMb as int
+int largeWarCount = Math.max(1, (int) Math.ceil(largeEarMb / (double) LARGE_WAR_MB))
+
+File groupDirectory = new File(localRepositoryPath, GROUP_ID.replace('.', '/'))
+File marker = new File(groupDirectory, 'generated.txt')
+String parameters =
+        "libraries=${libraryCount} wars=${warCount}x${warSizeMb}MB large=${largeWarCount}x${LARGE_WAR_MB}MB" +
+        " many-entries=${MANY_ENTRIES_WAR_COUNT}x${MANY_ENTRIES}"
+if (marker.isFile() && marker.text == parameters) {
+    println "Synthetic repository already generated: ${parameters}"
+    return true
+}
+
+Random random = new Random(42)
+
+def artifactFile = { String artifactId, String extension ->
+    File directory = new File(groupDirectory, "${artifactId}/1.0")
+    directory.mkdirs()
+    new File(directory, "${artifactId}-1.0.${extension}")
+}
+
+def writePom = { String artifactId, String packaging, List<String> dependencies, String dependencyType ->
+    StringBuilder pom = new StringBuilder()
+    pom << '<?xml version="1.0" encoding="UTF-8"?>\n<project>\n  <modelVersion>4.0.0</modelVersion>\n'
+    pom << "  <groupId>${GROUP_ID}</groupId>\n  <artifactId>${artifactId}</artifactId>\n"
+    pom << "  <version>1.0</version>\n  <packaging>${packaging}</packaging>\n"
+    if (dependencies) {
+        pom << '  <dependencies>\n'
+        dependencies.each {
+            pom << "    <dependency>\n      <groupId>${GROUP_ID}</groupId>\n      <artifactId>${it}</artifactId>\n"
+            pom << "      <version>1.0</version>\n      <type>${dependencyType}</type>\n    </dependency>\n"
+        }
+        pom << '  </dependencies>\n'
+    }
+    pom << '</project>\n'
+    artifactFile(artifactId, 'pom').setText(pom.toString(), 'UTF-8')
+}
+
+// Entries of entrySize bytes, half random and half repetitive unless incompressible, stored without compression
+// when incompressible to keep the generation fast
+def writeArchive = { File file, String prefix, long size, int entrySize, boolean incompressible, List<File> libs ->
+    byte[] content = new byte[entrySize]
+    file.withOutputStream { out ->
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024))
+        if (incompressible) {
+            zip.setLevel(Deflater.NO_COMPRESSION)
+        }
+        zip.putNextEntry(new ZipEntry('META-INF/MANIFEST.MF'))
+        zip.write('Manifest-Version: 1.0\r\n\r\n'.getBytes('UTF-8'))
+        zip.closeEntry()
+        long entries = Math.max(1L, (long) (size / entrySize))
+        for (long i = 0; i < entries; i++) {
+            random.nextBytes(content)
+            if (!incompressible) {
+                for (int j = content.length.intdiv(2); j < content.length; j++) {
+                    content[j] = (byte) (j % 16)
+                }
+            }
+            zip.putNextEntry(new ZipEntry("${prefix}${i}.class"))
+            zip.write(content)
+            zip.closeEntry()
+        }
+        libs.each { lib ->
+            zip.putNextEntry(new ZipEntry("WEB-INF/lib/${lib.name}"))
+            lib.withInputStream { zip << it }
+            zip.closeEntry()
+        }
+        zip.finish()
+        zip.flush()
+    }
+}
+
+long start = System.currentTimeMillis()
+
+List<String> libraries = []
+List<File> libraryFiles = []
+for (int i = 0; i < libraryCount; i++) {
+    String artifactId = "lib-${i}"
+    File jar = artifactFile(artifactId, 'jar')
+    writeArchive(jar, "org/example/lib${i}/Class", 64 * 1024, 4096, false, [])
+    writePom(artifactId, 'jar', [], null)
+    libraries << artifactId
+    libraryFiles << jar
+}
+writePom('libraries', 'pom', libraries, 'jar')
+
+List<String> webapps = []
+List<File> bundledLibraries = libraryFiles.take(BUNDLED_LIBRARIES)
+for (int i = 0; i < warCount; i++) {
+    String artifactId = "web-${i}"
+    writeArchive(
+            artifactFile(artifactId, 'war'),
+            "WEB-INF/classes/org/example/web${i}/Class",
+            warSizeMb * (long) MB,
+            4096,
+            false,
+            bundledLibraries)
+    writePom(artifactId, 'war', [], null)
+    webapps << artifactId
+}
+writePom('webapps', 'pom', webapps, 'war')
+
+List<String> largeWebapps = []
+for (int i = 0; i < largeWarCount; i++) {
+    String artifactId = "large-${i}"
+    writeArchive(
+            artifactFile(artifactId, 'war'),
+            "WEB-INF/classes/org/example/large${i}/Blob",
+            LARGE_WAR_MB * (long) MB,
+            MB,
+            true,
+            [])
+    writePom(artifactId, 'war', [], null)
+    largeWebapps << artifactId
+}
+writePom('large-webapps', 'pom', largeWebapps, 'war')
+
+for (int i = 0; i < MANY_ENTRIES_WAR_COUNT; i++) {
+    String artifactId = "many-entries-${i}"
+    writeArchive(
+            artifactFile(artifactId, 'war'),
+            "WEB-INF/classes/org/example/many${i}/Class",
+            MANY_ENTRIES * 64L,
+            64,
+            false,
+            bundledLibraries)
+    writePom(artifactId, 'war', [], null)
+}
+
+marker.text = parameters
+println "Synthetic repository generated in ${System.currentTimeMillis() - start} ms: ${parameters}"
+return true
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+
+budgetMillis = 60000
+assert evaluate(new File(perfScripts, 'check-build-report.groovy'))
+
+// The libraries bundled in the WARs must have been stripped
+new ZipFile(new File(basedir, 'target/skinny-wars-1.0.ear')).withCloseable { ear ->
+    def war = ear.getEntry('org.apache.maven.its.ear.perf-web-0-1.0.war')
+    assert war != null : 'Missing web-0 WAR'
+    new ZipInputStream(ear.getInputStream(war)).withCloseable { zip ->
+        for (def entry = zip.nextEntry; entry != null; entry = zip.nextEntry) {
+            assert !entry.name.startsWith('WEB-INF/lib/') : "${entry.name} was not stripped"
+        }
+    }
+}
+return true
@@ -0,0 +1,28 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.zip.ZipFile
+
+budgetMillis = 90000
+assert evaluate(new File(perfScripts, 'check-build-report.groovy'))
+
+new ZipFile(new File(basedir, 'target/unpacked-1.0.ear')).withCloseable { ear ->
+    assert ear.getEntry('org.apache.maven.its.ear.perf-web-0-1.0.war/WEB-INF/classes/org/example/web0/Class0.class')
+}
+return true
@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import javax.inject.Provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.ear.stub.ArtifactHandlerTestStub;
+import org.apache.maven.plugins.ear.util.ArtifactTypeMappingService;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.UnArchiver;
+import org.codehaus.plexus.archiver.ear.EarArchiver;
+import org.codehaus.plexus.archiver.jar.JarArchiver;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.codehaus.plexus.archiver.manager.DefaultArchiverManager;
+import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
+
+/**
+ * Generates a synthetic EAR project (a local repository of WARs and libraries plus the matching EAR modules) and wires
+ * an {@link EarMojo} outside of a Maven session, so that the packaging phases can be benchmarked in isolation.
+ * <p>
+ * One module out of ten is a WAR bundling a few of the libraries in {@code WEB-INF/lib}, the others are libraries
+ * bundled in {@link #LIB_DIR}.
+ */
+final class EarBenchmarkFixture {
+    static final String LIB_DIR = "lib/";
+
+    static final String GROUP_ID = "eartest.bench";
+
+    private static final String FILE_NAME_MAPPING =
+            "@{groupId}@-@{artifactId}@-@{version}@@{dashClassifier?}@.@{extension}@";
+
+    private static final int ENTRY_SIZE = 4096;
+
+    private static final int LIBS_PER_WAR = 5;
+
+    private final Set<Artifact> artifacts = new LinkedHashSet<>();
+
+    private final List<EarModule> modules = new ArrayList<>();
+
+    private final List<EarModule> webModules = new ArrayList<>();
+
+    /**
+     * @param repository the directory where the module artifacts are generated
+     * @param moduleCount the total number of modules
+     * @param warSizeKb the approximate uncompressed size of the classes of each WAR
+     */
+    EarBenchmarkFixture(Path repository, int moduleCount, int warSizeKb) throws IOException {
+        final Random random = new Random(42);
+        Files.createDirectories(repository);
+
+        final int warCount = Math.max(1, moduleCount / 10);
+        final List<Path> libs = new ArrayList<>();
+        for (int i = 0; i < moduleCount - warCount; i++) {
+            final String artifactId = "lib-" + i;
+            final Path jar = repository.resolve(artifactId + "-1.0.jar");
+            writeArchive(jar, "org/example/lib" + i + "/Class", 8, Collections.emptyList(), random);
+            libs.add(jar);
+            artifacts.add(createArtifact(artifactId, "jar", jar));
+        }
+
+        final List<Path> bundledLibs = libs.subList(0, Math.min(LIBS_PER_WAR, libs.size()));
+        for (int i = 0; i < warCount; i++) {
+            final String artifactId = "web-" + i;
+            final Path war = repository.resolve(artifactId + "-1.0.war");
+            writeArchive(
+                    war,
+                    "WEB-INF/classes/org/example/web" + i + "/Class",
+                    Math.max(1, warSizeKb * 1024 / ENTRY_SIZE),
+                    bundledLibs,
+                    random);
+            artifacts.add(createArtifact(artifactId, "war", war));
+        }
+
+        final MavenProject project = new MavenProject();
+        project.setArtifacts(artifacts);
+        final EarExecutionContext context = new EarExecutionContext(
+                project, "none", LIB_DIR, null, FILE_NAME_MAPPING, new ArtifactTypeMappingService());
+        for (Artifact artifact : artifacts) {
+            final EarModule module;
+            if ("war".equals(artifact.getType())) {
+                module = new WebModule(artifact);
+                webModules.add(module);
+            } else {
+                module = new JarModule(artifact, LIB_DIR, Boolean.FALSE);
+            }
+            module.setEarExecutionContext(context);
+            modules.add(module);
+        }
+    }
+
+    /**
+     * @return all the modules of the EAR, in declaration order
+     */
+    List<EarModule> getModules() {
+        return modules;
+    }
+
+    /**
+     * @return the WAR modules of the EAR
+     */
+    List<EarModule> getWebModules() {
+        return webModules;
+    }
+
+    /**
+     * Creates an {@link EarMojo} staging the modules of this fixture to the given work directory.
+     *
+     * @param workDirectory the work directory
+     * @param skinnyWars whether the WARs should be made skinny
+     * @return the configured mojo
+     */
+    EarMojo newEarMojo(File workDirectory, boolean skinnyWars) {
+        final EarMojo mojo = new EarMojo(null, newArchiverManager(), null, null, null);
+        mojo.setLog(new QuietLog());
+        setField(mojo, "version", "7");
+        setField(mojo, "workDirectory", workDirectory);
+        setField(mojo, "defaultLibBundleDir", LIB_DIR);
+        setField(mojo, "skinnyWars", skinnyWars);
+        setField(mojo, "earModules", modules);
+        setField(mojo, "allEarModules", modules);
+        setField(mojo, "providedEarModules", Collections.<EarModule>emptyList());
+        return mojo;
+    }
+
+    private static ArchiverManager newArchiverManager() {
+        final Map<String, Provider<Archiver>> archivers = new HashMap<>();
+        archivers.put("ear", EarArchiver::new);
+        archivers.put("jar", JarArchiver::new);
+        final Map<String, Provider<UnArchiver>> unArchivers = new HashMap<>();
+        unArchivers.put("zip", ZipUnArchiver::new);
+        return new DefaultArchiverManager(archivers, unArchivers, Collections.emptyMap());
+    }
+
+    private static Artifact createArtifact(String artifactId, String type, Path file) {
+        final Artifact artifact = new DefaultArtifact(
+                GROUP_ID, artifactId, "1.0", "compile", type, null, new ArtifactHandlerTestStub(type));
+        artifact.setFile(file.toFile());
+        return artifact;
+    }
+
+    /**
+     * Writes a JAR-like archive with a manifest, {@code classes} entries of {@link #ENTRY_SIZE} bytes (half random,
+     * half repetitive to get a realistic compression ratio) and the given libraries in {@code WEB-INF/lib}.
+     */
+    private static void writeArchive(Path file, String classPrefix, int classes, List<Path> libs, Random random)
+            throws IOException {
+        final byte[] content = new byte[ENTRY_SIZE];
+        try (OutputStream out = Files.newOutputStream(file);
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write("Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            for (int i = 0; i < classes; i++) {
+                random.nextBytes(content);
+                for (int j = content.length / 2; j < content.length; j++) {
+                    content[j] = (byte) (j % 16);
+                }
+                zip.putNextEntry(new ZipEntry(classPrefix + i + ".class"));
+                zip.write(content);
+                zip.closeEntry();
+            }
+            for (Path lib : libs) {
+                zip.putNextEntry(new ZipEntry("WEB-INF/lib/" + lib.getFileName()));
+                Files.copy(lib, zip);
+                zip.closeEntry();
+            }
+        }
+    }
+
+    static void setField(Object target, String name, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                final Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // try the super class
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field [" + name + "] in " + target.getClass());
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * A {@link Log} discarding everything but errors, so that debug logging does not skew the measurements.
+     */
+    static final class QuietLog implements Log {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(CharSequence content) {}
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {}
+
+        @Override
+        public void debug(Throwable error) {}
+
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+
+        @Override
+        public void info(CharSequence content) {}
+
+        @Override
+        public void info(CharSequence content, Throwable error) {}
+
+        @Override
+        public void info(Throwable error) {}
+
+        @Override
+        public boolean isWarnEnabled() {
+            return false;
+        }
+
+        @Override
+        public void warn(CharSequence content) {}
+
+        @Override
+        public void warn(CharSequence content, Throwable error) {}
+
+        @Override
+        public void warn(Throwable error) {}
+
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+
+        @Override
+        public void error(CharSequence content) {
+            System.err.println(content);
+        }
+
+        @Override
+        public void error(CharSequence content, Throwable error) {
+            System.err.println(content);
+            error.printStackTrace();
+        }
+
+        @Override
+        public void error(Throwable error) {
+            error.printStackTrace();
+        }
+    }
+}
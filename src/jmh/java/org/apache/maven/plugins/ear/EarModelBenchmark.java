@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.plugins.ear.stub.ArtifactHandlerTestStub;
+import org.apache.maven.plugins.ear.util.ArtifactRepository;
+import org.apache.maven.plugins.ear.util.ArtifactTypeMappingService;
+import org.apache.maven.plugins.ear.util.EarMavenArchiver;
+import org.apache.maven.plugins.ear.util.JavaEEVersion;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.configuration.xml.XmlPlexusConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the model layer of the plugin, which does no I/O of its own: discovery of the EAR modules, artifact
+ * lookups, artifact type mappings, generation of the EAR manifest Class-Path and writing of the deployment descriptors.
+ * <p>
+ * The synthetic model holds {@link #size} artifacts of every module type, some of them using custom artifact types,
+ * and as many env-entries. Run with the GC profiler ({@code -prof gc}, the default of the {@code jmh} profile) to get
+ * the allocation rates along with the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EarModelBenchmark {
+    private static final String GROUP_ID = "eartest.model";
+
+    private static final String[] TYPES = {
+        "jar", "ejb", "war", "rar", "ejb-client", "app-client", "sar", "custom-jar", "custom-war", "custom-ejb"
+    };
+
+    private static final String FILE_NAME_MAPPING =
+            "@{groupId}@-@{artifactId}@-@{version}@@{dashClassifier?}@.@{extension}@";
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private Path baseDirectory;
+
+    private Set<Artifact> artifacts;
+
+    private MavenProject project;
+
+    private XmlPlexusConfiguration artifactTypeMappings;
+
+    private ArtifactTypeMappingService typeMappingService;
+
+    private ArtifactRepository artifactRepository;
+
+    private Artifact lastArtifact;
+
+    private String lastModuleType;
+
+    private List<EarModule> modules;
+
+    private ClassPathArchiver archiver;
+
+    private ApplicationXmlWriter applicationXmlWriter;
+
+    private ApplicationXmlWriterContext applicationXmlContext;
+
+    private JbossAppXmlWriter jbossAppXmlWriter;
+
+    private JbossConfiguration jbossConfiguration;
+
+    private File jbossAppXml;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        baseDirectory = Files.createTempDirectory("ear-model-benchmark");
+
+        artifactTypeMappings = new XmlPlexusConfiguration("artifactTypeMappings");
+        addTypeMapping("custom-jar", "jar");
+        addTypeMapping("custom-war", "war");
+        addTypeMapping("custom-ejb", "ejb");
+        typeMappingService = new ArtifactTypeMappingService();
+        typeMappingService.configure(artifactTypeMappings);
+
+        artifacts = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            final String type = TYPES[i % TYPES.length];
+            final Artifact artifact = new DefaultArtifact(
+                    GROUP_ID, "artifact-" + i, "1.0", "compile", type, null, new ArtifactHandlerTestStub(type));
+            artifacts.add(artifact);
+            lastArtifact = artifact;
+        }
+        project = new MavenProject();
+        project.setArtifacts(artifacts);
+        artifactRepository = new ArtifactRepository(artifacts, "none", typeMappingService);
+        // modules are looked up by standard type, which custom types are mapped to
+        lastModuleType = typeMappingService.getStandardType(lastArtifact.getType());
+
+        modules = newModuleDiscoveryMojo().resolveModules();
+        archiver = new ClassPathArchiver(modules);
+
+        final List<SecurityRole> securityRoles = new ArrayList<>();
+        final List<EjbRef> ejbRefs = new ArrayList<>();
+        final List<ResourceRef> resourceRefs = new ArrayList<>();
+        for (int i = 0; i < size / 10; i++) {
+            securityRoles.add(new SecurityRole("role-" + i, null, null, "Role " + i, null));
+            ejbRefs.add(new EjbRef("EJB " + i, "ejb/Bean" + i, "Session", "java:global/app/Bean" + i));
+            resourceRefs.add(new ResourceRef("jdbc/ds" + i, "javax.sql.DataSource", "Container", "java:app/ds" + i));
+        }
+        final List<EnvEntry> envEntries = new ArrayList<>();
+        final List<String> dataSources = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            envEntries.add(new EnvEntry("Entry " + i, "env/entry" + i, "java.lang.String", "value-" + i, null));
+            dataSources.add("ds-" + i + ".xml");
+        }
+
+        applicationXmlWriter = new ApplicationXmlWriter(JavaEEVersion.SEVEN, "UTF-8", Boolean.TRUE);
+        applicationXmlContext = new ApplicationXmlWriterContext(
+                baseDirectory.resolve("application.xml").toFile(),
+                modules,
+                securityRoles,
+                envEntries,
+                ejbRefs,
+                resourceRefs,
+                "Model benchmark",
+                "A synthetic application",
+                "lib",
+                "model-benchmark",
+                Boolean.TRUE);
+
+        jbossAppXmlWriter = new JbossAppXmlWriter("UTF-8");
+        jbossConfiguration = new JbossConfiguration(
+                JbossConfiguration.VERSION_5,
+                "java:/jaas/model",
+                "guest",
+                "jboss.j2ee:service=EARDeployment,url='model.ear'",
+                "model.ear:loader=model.ear",
+                "strict",
+                dataSources,
+                "lib",
+                null,
+                null,
+                null);
+        jbossAppXml = baseDirectory.resolve("jboss-app.xml").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        EarBenchmarkFixture.deleteDirectory(baseDirectory);
+    }
+
+    /**
+     * Discovers the EAR modules out of the project artifacts, as every goal of the plugin does first.
+     */
+    @Benchmark
+    public Object moduleDiscovery() throws Exception {
+        return newModuleDiscoveryMojo().resolveModules();
+    }
+
+    /**
+     * Looks up the last artifact of the project, as done for each module configured by the user.
+     */
+    @Benchmark
+    public Object getUniqueArtifact() {
+        return artifactRepository.getUniqueArtifact(
+                lastArtifact.getGroupId(), lastArtifact.getArtifactId(), lastModuleType);
+    }
+
+    /**
+     * Maps the type of every project artifact to its standard type, and checks it against another standard type.
+     */
+    @Benchmark
+    public int artifactTypeMapping() throws Exception {
+        int mapped = 0;
+        for (Artifact artifact : artifacts) {
+            final String standardType = typeMappingService.getStandardType(artifact.getType());
+            if (typeMappingService.isMappedToType(standardType, artifact.getType())
+                    && !typeMappingService.isMappedToType("jar", artifact.getType())) {
+                mapped++;
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Generates the Class-Path entry of the EAR manifest.
+     */
+    @Benchmark
+    public Object generateClassPathEntry() {
+        return archiver.generateClassPathEntry();
+    }
+
+    /**
+     * Writes the {@code application.xml} of all the modules and env-entries.
+     */
+    @Benchmark
+    public Object writeApplicationXml() throws Exception {
+        applicationXmlWriter.write(applicationXmlContext);
+        return applicationXmlContext.getDestinationFile();
+    }
+
+    /**
+     * Writes the {@code jboss-app.xml} of all the modules and data sources.
+     */
+    @Benchmark
+    public Object writeJbossAppXml() throws Exception {
+        jbossAppXmlWriter.write(jbossAppXml, jbossConfiguration, modules);
+        return jbossAppXml;
+    }
+
+    private void addTypeMapping(String type, String mapping) {
+        final XmlPlexusConfiguration artifactTypeMapping = new XmlPlexusConfiguration("artifactTypeMapping");
+        artifactTypeMapping.setAttribute("type", type);
+        artifactTypeMapping.setAttribute("mapping", mapping);
+        artifactTypeMappings.addChild(artifactTypeMapping);
+    }
+
+    private ModuleDiscoveryMojo newModuleDiscoveryMojo() {
+        final ModuleDiscoveryMojo mojo = new ModuleDiscoveryMojo();
+        mojo.setLog(new EarBenchmarkFixture.QuietLog());
+        EarBenchmarkFixture.setField(mojo, "version", "7");
+        EarBenchmarkFixture.setField(mojo, "project", project);
+        EarBenchmarkFixture.setField(mojo, "artifactTypeMappings", artifactTypeMappings);
+        EarBenchmarkFixture.setField(mojo, "mainArtifactId", "none");
+        EarBenchmarkFixture.setField(mojo, "defaultLibBundleDir", "lib");
+        EarBenchmarkFixture.setField(mojo, "outputFileNameMapping", FILE_NAME_MAPPING);
+        return mojo;
+    }
+
+    /**
+     * Only runs the module discovery of {@link AbstractEarMojo}.
+     */
+    private static final class ModuleDiscoveryMojo extends AbstractEarMojo {
+        List<EarModule> resolveModules() throws Exception {
+            execute();
+            return getModules();
+        }
+    }
+
+    /**
+     * Exposes the Class-Path generation of {@link EarMavenArchiver}.
+     */
+    private static final class ClassPathArchiver extends EarMavenArchiver {
+        ClassPathArchiver(List<EarModule> earModules) {
+            super(earModules);
+        }
+
+        String generateClassPathEntry() {
+            return generateClassPathEntry("");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugins.ear.util.JavaEEVersion;
+import org.codehaus.plexus.archiver.jar.JarArchiver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the packaging phases of {@link EarMojo}: module staging, unpacking, manifest Class-Path rewriting of
+ * packed skinny WARs, outdated resources tracking and creation of the final archive.
+ * <p>
+ * Each phase runs against a synthetic EAR of {@link #moduleCount} modules whose WARs hold about {@link #warSizeKb}
+ * kilobytes of classes. Phases which modify their input get a fresh copy of it before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EarPackagingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int moduleCount;
+
+    @Param({"256", "8192"})
+    public int warSizeKb;
+
+    private Path baseDirectory;
+
+    private EarBenchmarkFixture fixture;
+
+    private JavaEEVersion javaEEVersion;
+
+    private File stagedDirectory;
+
+    private EarMojo stagedMojo;
+
+    private File rewrittenWar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        baseDirectory = Files.createTempDirectory("ear-benchmark");
+        fixture = new EarBenchmarkFixture(baseDirectory.resolve("repository"), moduleCount, warSizeKb);
+        javaEEVersion = JavaEEVersion.getJavaEEVersion("7");
+        rewrittenWar = Files.createDirectories(baseDirectory.resolve("war"))
+                .resolve("rewritten.war")
+                .toFile();
+
+        // A fully staged work directory, used by the phases which only read it
+        stagedDirectory = baseDirectory.resolve("staged").toFile();
+        stagedMojo = fixture.newEarMojo(stagedDirectory, true);
+        stageModules(stagedMojo);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        EarBenchmarkFixture.deleteDirectory(baseDirectory);
+    }
+
+    /**
+     * Stages every module to an empty work directory, including the skinny WAR manifest rewrite.
+     */
+    @Benchmark
+    public Object copyModules(FreshWorkDirectory state) throws Exception {
+        return stageModules(state.mojo);
+    }
+
+    /**
+     * Stages every module to a work directory which is already up to date.
+     */
+    @Benchmark
+    public Object copyModulesUpToDate() throws Exception {
+        return stageModules(stagedMojo);
+    }
+
+    /**
+     * Unpacks the first WAR of the EAR to an empty directory.
+     */
+    @Benchmark
+    public Object unpack(FreshWorkDirectory state) throws Exception {
+        final Collection<String> outdatedResources = new ArrayList<>();
+        final EarModule war = fixture.getWebModules().get(0);
+        state.mojo.unpack(war.getArtifact().getFile(), state.directory, outdatedResources);
+        return outdatedResources;
+    }
+
+    /**
+     * Copies the first WAR of the EAR, rewriting its manifest Class-Path and stripping its libraries on the fly.
+     */
+    @Benchmark
+    public Object rewriteModuleArchive() throws Exception {
+        final EarModule war = fixture.getWebModules().get(0);
+        stagedMojo.rewriteModuleArchive(war, war.getArtifact().getFile(), rewrittenWar, javaEEVersion);
+        return rewrittenWar;
+    }
+
+    /**
+     * Lists the resources of a staged work directory and checks every staged module off the list.
+     */
+    @Benchmark
+    public Object outdatedResources() throws Exception {
+        final Collection<String> outdatedResources = stagedMojo.initOutdatedResources();
+        for (EarModule module : fixture.getModules()) {
+            stagedMojo.removeFromOutdatedResources(
+                    new File(stagedDirectory, module.getUri()).toPath(), outdatedResources);
+        }
+        return outdatedResources;
+    }
+
+    /**
+     * Creates the final archive out of a staged work directory.
+     */
+    @Benchmark
+    public Object createArchive() throws Exception {
+        final File earFile = baseDirectory.resolve("benchmark.ear").toFile();
+        final JarArchiver archiver = new JarArchiver();
+        archiver.setDestFile(earFile);
+        EarArchivers.addDirectory(archiver, stagedDirectory, new String[] {"**"}, new String[0]);
+        archiver.createArchive();
+        return earFile;
+    }
+
+    private Object stageModules(EarMojo mojo) throws Exception {
+        final Collection<String> outdatedResources = new ArrayList<>();
+        mojo.copyModules(fixture.getModules(), javaEEVersion, Collections.<String>emptyList(), outdatedResources);
+        return outdatedResources;
+    }
+
+    /**
+     * An empty work directory and a mojo staging into it, recreated before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class FreshWorkDirectory {
+        File directory;
+
+        EarMojo mojo;
+
+        @Setup(Level.Invocation)
+        public void setUp(EarPackagingBenchmark benchmark) throws Exception {
+            directory = benchmark.baseDirectory.resolve("fresh").toFile();
+            EarBenchmarkFixture.deleteDirectory(directory.toPath());
+            Files.createDirectories(directory.toPath());
+            mojo = benchmark.fixture.newEarMojo(directory, true);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+
+/**
+ * A base class for the goals creating and applying the delta between two builds of an EAR.
+ *
+ * @since 3.5.0
+ */
+public abstract class AbstractEarDeltaMojo extends AbstractMojo {
+    /**
+     * The previous build of the EAR. Either this or {@link #baseArtifact} is required.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.baseEar")
+    private File baseEar;
+
+    /**
+     * The coordinates of the previous build of the EAR in the local repository, as
+     * {@code groupId:artifactId:version[:classifier]}. It is looked up in the local repository only, so that the goals
+     * work offline. Ignored if {@link #baseEar} is set.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.baseArtifact")
+    private String baseArtifact;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    /**
+     * @return the previous build of the EAR
+     * @throws MojoExecutionException if it is not set or does not exist
+     */
+    protected File getBaseEar() throws MojoExecutionException {
+        File base = baseEar;
+        if (base == null) {
+            if (baseArtifact == null || baseArtifact.trim().isEmpty()) {
+                throw new MojoExecutionException("Either baseEar or baseArtifact is required");
+            }
+            final String[] coordinates = baseArtifact.trim().split(":");
+            if (coordinates.length < 3 || coordinates.length > 4) {
+                throw new MojoExecutionException("Invalid baseArtifact [" + baseArtifact
+                        + "], expected groupId:artifactId:version[:classifier]");
+            }
+            final String classifier = coordinates.length > 3 ? coordinates[3] : "";
+            final DefaultArtifact artifact =
+                    new DefaultArtifact(coordinates[0], coordinates[1], classifier, "ear", coordinates[2]);
+            final LocalRepositoryManager localRepositoryManager =
+                    session.getRepositorySession().getLocalRepositoryManager();
+            base = new File(
+                    localRepositoryManager.getRepository().getBasedir(),
+                    localRepositoryManager.getPathForLocalArtifact(artifact));
+        }
+        if (!base.isFile()) {
+            throw new MojoExecutionException("The previous EAR " + base + " does not exist");
+        }
+        return base;
+    }
+}
@@ -19,6 +19,10 @@
 package org.apache.maven.plugins.ear;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -26,11 +30,14 @@ import java.util.Set;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.ear.util.ArtifactTypeMappingService;
+import org.apache.maven.plugins.ear.util.EarBuildReport;
 import org.apache.maven.plugins.ear.util.JavaEEVersion;
+import org.apache.maven.plugins.ear.util.JsonWriter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.configuration.PlexusConfiguration;
 import org.codehaus.plexus.configuration.PlexusConfigurationException;
@@ -149,6 +156,30 @@ public abstract class AbstractEarMojo extends AbstractMojo {
     @Parameter
     private String mainArtifactId = "none";
 
+    /**
+     * Whether to write a report of the wall time spent in each phase of the build, of the bytes read and written for
+     * each module and of the number of modules found up to date to {@link #buildReportFile}. A one line summary of it
+     * is logged as well.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.buildReport", defaultValue = "false")
+    private boolean buildReport;
+
+    /**
+     * The file the build report is written to. It gathers the reports of all the executions of the plugin for the
+     * project.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ear-build-report.json", required = true)
+    private File buildReportFile;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    private EarBuildReport earBuildReport;
+
     private List<EarModule> earModules;
 
     private List<EarModule> allEarModules;
@@ -162,6 +193,9 @@ public abstract class AbstractEarMojo extends AbstractMojo {
      */
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        final EarBuildReport report = getBuildReport();
+        final long startTime = System.nanoTime();
+
         if (fileNameMapping != null) {
             getLog().error("fileNameMapping has been removed with version 3.0.0. You are still using it.");
             getLog().error("Use outputFileNameMapping instead.");
@@ -253,6 +287,7 @@ public abstract class AbstractEarMojo extends AbstractMojo {
                 }
             }
         }
+        report.phase(EarBuildReport.MODULE_RESOLUTION, startTime);
     }
 
     /**
@@ -292,6 +327,13 @@ public abstract class AbstractEarMojo extends AbstractMojo {
         return project;
     }
 
+    /**
+     * @return the current mojo execution, which may be {@code null} outside of a Maven build
+     */
+    protected MojoExecution getMojoExecution() {
+        return mojoExecution;
+    }
+
     /**
      * @return {@link #workDirectory}
      */
@@ -313,6 +355,89 @@ public abstract class AbstractEarMojo extends AbstractMojo {
         return outputFileNameMapping;
     }
 
+    /**
+     * Returns the report of the current execution, started on first use so that a subclass can report what it does
+     * before calling {@link #execute()}. A new report is started once it is written.
+     *
+     * @return the report of the current execution
+     */
+    protected EarBuildReport getBuildReport() {
+        if (earBuildReport == null) {
+            earBuildReport = new EarBuildReport(getExecutionName());
+        }
+        return earBuildReport;
+    }
+
+    /**
+     * Discards the report of the current execution and the reports it already wrote for the project, so that an
+     * execution run again in the same build, such as each update of the {@code watch} goal, reports its last run only.
+     */
+    protected void resetBuildReport() {
+        earBuildReport = null;
+        @SuppressWarnings("unchecked")
+        final List<EarBuildReport> reports =
+                (List<EarBuildReport>) project.getContextValue(EarBuildReport.class.getName());
+        if (reports != null) {
+            final String execution = getExecutionName();
+            reports.removeIf(report -> report.getExecution().equals(execution));
+        }
+    }
+
+    /**
+     * @return {@code true} if the build report is written, so that costly statistics are worth collecting
+     */
+    protected boolean isBuildReportEnabled() {
+        return buildReport;
+    }
+
+    /**
+     * Ends the report of the current execution and, if enabled, writes it to {@link #buildReportFile} along with the
+     * reports of the previous executions for the project.
+     *
+     * @throws MojoExecutionException if the report cannot be written
+     */
+    protected void writeBuildReport() throws MojoExecutionException {
+        final EarBuildReport report = getBuildReport();
+        report.end();
+        earBuildReport = null;
+        if (!buildReport) {
+            return;
+        }
+
+        final String contextKey = EarBuildReport.class.getName();
+        @SuppressWarnings("unchecked")
+        List<EarBuildReport> reports = (List<EarBuildReport>) project.getContextValue(contextKey);
+        if (reports == null) {
+            reports = new ArrayList<>();
+            project.setContextValue(contextKey, reports);
+        }
+        reports.add(report);
+
+        try {
+            Files.createDirectories(buildReportFile.getAbsoluteFile().getParentFile().toPath());
+            try (Writer out = Files.newBufferedWriter(buildReportFile.toPath(), StandardCharsets.UTF_8);
+                    JsonWriter writer = new JsonWriter(out)) {
+                writer.beginObject().member("project", project.getId());
+                writer.name("executions").beginArray();
+                for (EarBuildReport executionReport : reports) {
+                    executionReport.write(writer);
+                }
+                writer.endArray().endObject();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write build report " + buildReportFile, e);
+        }
+        getLog().info(report.summary());
+        getLog().debug("Build report written to " + buildReportFile);
+    }
+
+    private String getExecutionName() {
+        if (mojoExecution == null) {
+            return getClass().getSimpleName();
+        }
+        return "ear:" + mojoExecution.getGoal() + " (" + mojoExecution.getExecutionId() + ")";
+    }
+
     private static boolean isArtifactRegistered(Artifact a, List<EarModule> currentList) {
         return currentList.stream().anyMatch(em -> em.getArtifact().equals(a));
     }
@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugins.ear.util.ByteBudget;
+import org.apache.maven.plugins.ear.util.EarBuildReport;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.jar.ManifestException;
+import org.codehaus.plexus.components.io.attributes.FileAttributes;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.ResourceFactory;
+
+/**
+ * Writes an EAR while its packed modules are being staged, so that reading and writing the modules overlaps with the
+ * compression of the EAR.
+ * <p>
+ * The archiver lists the work directory once, as the whole work directory would be, the destinations of the modules
+ * not staged yet being reserved as empty files. It then takes each module from the staging when it reaches it, waiting
+ * for it if need be. The modules are staged on a thread pool in the order of the archive, and the sizes of the modules
+ * staged but not taken by the archiver yet are bounded by a {@link ByteBudget}, so that the staging never runs too far
+ * ahead of the archiver. The entries and their order are those of an EAR archived once all its modules are staged.
+ */
+final class ArchivePipeline {
+    /**
+     * Stages a module to the work directory.
+     */
+    interface ModuleStager {
+        void stage(EarModule module) throws Exception;
+    }
+
+    /**
+     * Writes the archive of the work directory.
+     */
+    interface ArchiveWriter {
+        void write() throws ManifestException, IOException, DependencyResolutionRequiredException;
+    }
+
+    private final File workDirectory;
+
+    private final ByteBudget budget;
+
+    private final EarBuildReport report;
+
+    /**
+     * The modules by name in the archive, in the order of the archive once added to the archiver.
+     */
+    private final Map<String, PipelinedModule> modules = new LinkedHashMap<>();
+
+    /**
+     * @param modules the packed modules, staged while the EAR is written
+     * @param workDirectory the work directory
+     * @param bytesInFlight the maximum size of the modules staged but not taken by the archiver yet
+     * @param report the build report, where the staging and the archive phases are recorded
+     */
+    ArchivePipeline(List<EarModule> modules, File workDirectory, long bytesInFlight, EarBuildReport report) {
+        this.workDirectory = workDirectory;
+        this.budget = new ByteBudget(Math.max(1, bytesInFlight));
+        this.report = report;
+        for (EarModule module : modules) {
+            final Path destination = new File(workDirectory, module.getUri()).toPath().normalize();
+            final String name = workDirectory.toPath().relativize(destination).toString().replace('\\', '/');
+            this.modules.put(name, new PipelinedModule(module, name));
+        }
+    }
+
+    /**
+     * Tells whether a file of the work directory is a module staged while the EAR is written, or is within one.
+     *
+     * @param path the path of the file, relative to the work directory
+     * @return {@code true} if the file is staged by a module
+     */
+    boolean isStagedByModule(String path) {
+        String name = path.replace('\\', '/');
+        while (!name.isEmpty()) {
+            if (modules.containsKey(name)) {
+                return true;
+            }
+            name = name.lastIndexOf('/') < 0 ? "" : name.substring(0, name.lastIndexOf('/'));
+        }
+        return false;
+    }
+
+    /**
+     * @return the relative paths of the modules staged while the EAR is written
+     */
+    Set<String> getModulePaths() {
+        return modules.keySet();
+    }
+
+    /**
+     * Adds the work directory to an archiver, as {@link EarArchivers#addDirectory} does, the modules being taken from
+     * the staging. The modules are then staged in the order of the archive.
+     *
+     * @param archiver the archiver
+     * @param nameComparator the comparator of the file names of a directory, as set on the archiver
+     * @param includes the patterns of the files to add
+     * @param excludes the patterns of the files not to add
+     * @throws IOException if the destination of a module cannot be reserved
+     */
+    void addTo(Archiver archiver, Comparator<String> nameComparator, String[] includes, String[] excludes)
+            throws IOException {
+        final List<PipelinedModule> sorted = new ArrayList<>(modules.values());
+        sorted.sort((module1, module2) -> comparePaths(nameComparator, module1.name, module2.name));
+        modules.clear();
+        for (PipelinedModule module : sorted) {
+            modules.put(module.name, module);
+        }
+        for (PipelinedModule module : modules.values()) {
+            final Path destination = workDirectory.toPath().resolve(module.name);
+            if (!Files.exists(destination)) {
+                // listed in its place by the archiver, and always replaced by the staging since it is empty
+                Files.createDirectories(destination.getParent());
+                Files.createFile(destination);
+                Files.setLastModifiedTime(destination, FileTime.fromMillis(0));
+            }
+        }
+        archiver.addResources(new PipelinedWorkDirectory(archiver, nameComparator, includes, excludes));
+    }
+
+    /**
+     * Stages the modules while the archive is written.
+     *
+     * @param stager the stager of a module
+     * @param writer the writer of the archive
+     * @throws ExecutionException if a module cannot be staged, with the failure of the stager as cause
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws ManifestException if the archive cannot be written
+     * @throws IOException if the archive cannot be written
+     * @throws DependencyResolutionRequiredException if the archive cannot be written
+     */
+    void run(ModuleStager stager, ArchiveWriter writer)
+            throws ExecutionException, InterruptedException, ManifestException, IOException,
+                    DependencyResolutionRequiredException {
+        final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor();
+        final ExecutorService stagingExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(modules.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            final Future<?> archive = archiveExecutor.submit(() -> {
+                try {
+                    final long startTime = System.nanoTime();
+                    writer.write();
+                    report.phase(EarBuildReport.ARCHIVE, startTime);
+                } finally {
+                    // the archiver takes no more modules, which must not hold the staging back
+                    for (PipelinedModule module : modules.values()) {
+                        module.release();
+                    }
+                }
+                return null;
+            });
+            try {
+                stage(stager, stagingExecutor);
+            } catch (ExecutionException | InterruptedException | RuntimeException e) {
+                // the archiver may be waiting for a module which will not be staged
+                for (PipelinedModule module : modules.values()) {
+                    module.staged.completeExceptionally(new IOException("The modules of the EAR were not staged"));
+                }
+                awaitQuietly(archive);
+                throw e;
+            }
+            try {
+                archive.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof ManifestException) {
+                    throw (ManifestException) cause;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof DependencyResolutionRequiredException) {
+                    throw (DependencyResolutionRequiredException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        } finally {
+            stagingExecutor.shutdownNow();
+            archiveExecutor.shutdownNow();
+        }
+    }
+
+    private void stage(ModuleStager stager, ExecutorService executor)
+            throws ExecutionException, InterruptedException {
+        final long startTime = System.nanoTime();
+        final List<Future<?>> futures = new ArrayList<>(modules.size());
+        for (PipelinedModule module : modules.values()) {
+            // waits for the archiver to take the modules staged before this one
+            module.acquire(budget);
+            futures.add(executor.submit(() -> {
+                try {
+                    stager.stage(module.module);
+                    module.staged.complete(null);
+                } catch (Exception | Error e) {
+                    module.staged.completeExceptionally(e);
+                    throw e;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        report.phase(EarBuildReport.STAGING, startTime);
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            // the failure of the staging is reported instead
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compares two paths of the work directory in the order the archiver lists their files: depth first, the names of
+     * each directory being sorted with the name comparator.
+     */
+    private static int comparePaths(Comparator<String> nameComparator, String path1, String path2) {
+        final String[] names1 = path1.split("/");
+        final String[] names2 = path2.split("/");
+        for (int i = 0; i < Math.min(names1.length, names2.length); i++) {
+            final int result = nameComparator.compare(names1[i], names2[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(names1.length, names2.length);
+    }
+
+    /**
+     * A module staged while the EAR is written.
+     */
+    private static final class PipelinedModule {
+        private final EarModule module;
+
+        private final String name;
+
+        private final long size;
+
+        private final CompletableFuture<Void> staged = new CompletableFuture<>();
+
+        private ByteBudget budget;
+
+        private long bytes;
+
+        private boolean released;
+
+        PipelinedModule(EarModule module, String name) {
+            this.module = module;
+            this.name = name;
+            this.size = module.getArtifact().getFile().length();
+        }
+
+        /**
+         * Takes the size of the module from the budget, unless the archiver does not need the module any more.
+         */
+        void acquire(ByteBudget budget) throws InterruptedException {
+            if (isReleased()) {
+                return;
+            }
+            final long taken = budget.acquire(size);
+            synchronized (this) {
+                if (released) {
+                    budget.release(taken);
+                } else {
+                    this.budget = budget;
+                    this.bytes = taken;
+                }
+            }
+        }
+
+        /**
+         * Gives the size of the module back once the archiver took it, or will not take it.
+         */
+        synchronized void release() {
+            if (!released) {
+                released = true;
+                if (budget != null) {
+                    budget.release(bytes);
+                }
+            }
+        }
+
+        private synchronized boolean isReleased() {
+            return released;
+        }
+    }
+
+    /**
+     * The work directory, listed once like the file sets of the archiver, whose modules are taken from the staging.
+     */
+    private final class PipelinedWorkDirectory extends PlexusIoFileResourceCollection {
+        PipelinedWorkDirectory(
+                Archiver archiver, Comparator<String> nameComparator, String[] includes, String[] excludes) {
+            // configured as the archiver configures the collection of a file set
+            setFollowingSymLinks(false);
+            setIncludes(includes);
+            setExcludes(excludes);
+            setBaseDir(workDirectory);
+            setIncludingEmptyDirectories(archiver.getIncludeEmptyDirs());
+            setPrefix("");
+            setCaseSensitive(true);
+            setUsingDefaultExcludes(true);
+            setFilenameComparator(nameComparator);
+            if (archiver.getOverrideDirectoryMode() > -1
+                    || archiver.getOverrideFileMode() > -1
+                    || archiver.getOverrideUid() > -1
+                    || archiver.getOverrideGid() > -1
+                    || archiver.getOverrideUserName() != null
+                    || archiver.getOverrideGroupName() != null) {
+                setOverrideAttributes(
+                        archiver.getOverrideUid(),
+                        archiver.getOverrideUserName(),
+                        archiver.getOverrideGid(),
+                        archiver.getOverrideGroupName(),
+                        archiver.getOverrideFileMode(),
+                        archiver.getOverrideDirectoryMode());
+            }
+            if (archiver.getDefaultDirectoryMode() > -1 || archiver.getDefaultFileMode() > -1) {
+                setDefaultAttributes(
+                        -1, null, -1, null, archiver.getDefaultFileMode(), archiver.getDefaultDirectoryMode());
+            }
+        }
+
+        @Override
+        public Iterator<PlexusIoResource> getResources() throws IOException {
+            final List<PlexusIoResource> resources = new ArrayList<>();
+            final Set<String> names = new HashSet<>();
+            for (Iterator<PlexusIoResource> it = super.getResources(); it.hasNext(); ) {
+                final PlexusIoResource resource = it.next();
+                resources.add(resource);
+                names.add(resource.getName());
+            }
+            for (PipelinedModule module : modules.values()) {
+                if (!names.contains(module.name)) {
+                    // excluded from the archive
+                    module.release();
+                }
+            }
+            final Iterator<PlexusIoResource> iterator = resources.iterator();
+            return new Iterator<PlexusIoResource>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public PlexusIoResource next() {
+                    final PlexusIoResource resource = iterator.next();
+                    final PipelinedModule module = modules.get(resource.getName());
+                    return module != null ? take(module) : resource;
+                }
+            };
+        }
+
+        /**
+         * Waits for a module to be staged and lists it again, since it was reserved or outdated when listed.
+         */
+        private PlexusIoResource take(PipelinedModule module) {
+            try {
+                module.staged.get();
+                final File file = new File(workDirectory, module.name);
+                return ResourceFactory.createResource(
+                        file,
+                        module.name,
+                        null,
+                        getStreamTransformer(),
+                        mergeAttributes(new FileAttributes(file), false));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ArchiverException("Interrupted while waiting for the module " + module.name, e);
+            } catch (ExecutionException e) {
+                throw new ArchiverException("The module " + module.name + " was not staged", e.getCause());
+            } catch (IOException e) {
+                throw new ArchiverException("Error reading the module " + module.name, e);
+            } finally {
+                module.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.ear.util.EarDelta;
+
+/**
+ * Reconstructs an EAR from a previous build of it and a delta created by the {@code delta} goal. The reconstructed
+ * EAR is byte-identical to the one the delta was created from, which is checked before it replaces the output file;
+ * the previous EAR is checked as well before the delta is applied. No project nor remote repository is needed.
+ *
+ * @since 3.5.0
+ */
+@Mojo(name = "apply-delta", requiresProject = false, threadSafe = true)
+public class EarApplyDeltaMojo extends AbstractEarDeltaMojo {
+    /**
+     * The delta to apply.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.deltaFile", required = true)
+    private File deltaFile;
+
+    /**
+     * The EAR to reconstruct.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.outputFile", required = true)
+    private File outputFile;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final File base = getBaseEar();
+        try {
+            EarDelta.apply(base.toPath(), deltaFile.toPath(), outputFile.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to apply the delta " + deltaFile + " to " + base, e);
+        }
+        getLog().info("Reconstructed EAR " + outputFile + " from " + base + " and " + deltaFile);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.archiver.MavenArchiveConfiguration;
+import org.apache.maven.archiver.MavenArchiver;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.ear.util.ArchiveEntryComparator;
+import org.apache.maven.plugins.ear.util.EarEvent;
+import org.apache.maven.plugins.ear.util.EarMavenArchiver;
+import org.apache.maven.plugins.ear.util.PathScanner;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ear.EarArchiver;
+import org.codehaus.plexus.archiver.jar.JarArchiver;
+import org.codehaus.plexus.archiver.jar.ManifestException;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Creates the archivers of an EAR and of its variants (see {@link EarVariant}), which all archive the same staged
+ * work directory.
+ */
+final class EarArchivers {
+    private final ArchiverManager archiverManager;
+
+    private final List<EarModule> modules;
+
+    private final String defaultLibBundleDir;
+
+    private final boolean deploymentLayout;
+
+    private final String outputTimestamp;
+
+    private final MavenSession session;
+
+    private final MavenProject project;
+
+    private final MavenArchiveConfiguration archive;
+
+    private final Log log;
+
+    /**
+     * @param archiverManager the archiver manager
+     * @param modules the modules of the EAR
+     * @param defaultLibBundleDir the directory of the libraries in the EAR, which may be {@code null}
+     * @param deploymentLayout whether to lay the EAR out for deployment
+     * @param outputTimestamp the timestamp of the entries, for reproducible archives
+     * @param session the current session
+     * @param project the project of the EAR
+     * @param archive the archive configuration
+     * @param log the log
+     */
+    EarArchivers(
+            ArchiverManager archiverManager,
+            List<EarModule> modules,
+            String defaultLibBundleDir,
+            boolean deploymentLayout,
+            String outputTimestamp,
+            MavenSession session,
+            MavenProject project,
+            MavenArchiveConfiguration archive,
+            Log log) {
+        this.archiverManager = archiverManager;
+        this.modules = modules;
+        this.defaultLibBundleDir = defaultLibBundleDir;
+        this.deploymentLayout = deploymentLayout;
+        this.outputTimestamp = outputTimestamp;
+        this.session = session;
+        this.project = project;
+        this.archive = archive;
+        this.log = log;
+    }
+
+    /**
+     * Looks up a new archiver for each archive, since archivers are stateful and executions may run concurrently.
+     *
+     * @param ddFile the application.xml of the archive, which may not exist
+     * @return an EAR archiver if the application.xml exists, a JAR archiver otherwise
+     * @throws MojoExecutionException if no archiver is found
+     */
+    JarArchiver createArchiver(File ddFile) throws MojoExecutionException {
+        try {
+            if (ddFile.exists()) {
+                final EarArchiver theEarArchiver = (EarArchiver) archiverManager.getArchiver("ear");
+                theEarArchiver.setAppxml(ddFile);
+                return theEarArchiver;
+            }
+            // current Plexus EarArchiver does not support application.xml-less JavaEE 5+ case
+            // => fallback to Plexus Jar archiver
+            return (JarArchiver) archiverManager.getArchiver("jar");
+        } catch (NoSuchArchiverException e) {
+            throw new MojoExecutionException("No archiver found for the EAR", e);
+        }
+    }
+
+    /**
+     * Creates the Maven archiver writing an archive, configured for reproducible builds.
+     *
+     * @param archiver the archiver of the archive
+     * @param outputFile the archive
+     * @return the Maven archiver
+     */
+    MavenArchiver createMavenArchiver(JarArchiver archiver, File outputFile) {
+        final MavenArchiver mavenArchiver = new EarMavenArchiver(modules);
+        mavenArchiver.setArchiver(archiver);
+        mavenArchiver.setOutputFile(outputFile);
+        mavenArchiver.setCreatedBy("Maven EAR Plugin", "org.apache.maven.plugins", "maven-ear-plugin");
+        // configure for Reproducible Builds based on outputTimestamp value
+        mavenArchiver.configureReproducibleBuild(outputTimestamp);
+        return mavenArchiver;
+    }
+
+    /**
+     * Creates the comparator ordering the entries of an EAR after its model rather than the file system, even without
+     * outputTimestamp.
+     *
+     * @param ddFile the application.xml of the archive, which may not exist
+     * @return the comparator
+     * @throws IOException if the application.xml cannot be read
+     */
+    ArchiveEntryComparator createEntryComparator(File ddFile) throws IOException {
+        if (deploymentLayout) {
+            return new ArchiveEntryComparator(
+                    ArchiveEntryComparator.getDeploymentOrder(modules, ddFile), defaultLibBundleDir, true);
+        }
+        return new ArchiveEntryComparator(modules, defaultLibBundleDir);
+    }
+
+    /**
+     * Archives the variants of the EAR in parallel, each with its own archiver, from the staged work directory.
+     *
+     * @param variants the variants
+     * @param variantFiles the archives of the variants, in the same order
+     * @param workDirectory the staged work directory
+     * @param includes the packaging includes of the EAR
+     * @param excludes the packaging excludes of the EAR
+     * @param ddFile the application.xml of the EAR, which may not exist
+     * @param pathScanner the scanner of the overlay directories
+     * @throws MojoExecutionException if a variant cannot be archived
+     */
+    void createVariants(
+            List<EarVariant> variants,
+            List<File> variantFiles,
+            File workDirectory,
+            String[] includes,
+            String[] excludes,
+            File ddFile,
+            PathScanner pathScanner)
+            throws MojoExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(variants.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            final List<Future<?>> futures = new ArrayList<>(variants.size());
+            for (int i = 0; i < variants.size(); i++) {
+                final EarVariant variant = variants.get(i);
+                final MavenProject variantProject = createVariantProject(variant);
+                final File variantFile = variantFiles.get(i);
+                futures.add(executor.submit(() -> {
+                    createVariant(
+                            variant,
+                            variantProject,
+                            variantFile,
+                            workDirectory,
+                            includes,
+                            excludes,
+                            ddFile,
+                            pathScanner);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while creating the EAR variants", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Error assembling EAR variant", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Clones the project for a variant with its own build directory, where its Maven archiver writes the
+     * {@code maven-archiver/pom.properties} file added to the archive, so that the variants archived in parallel do
+     * not write the same file. The project is not thread safe, so it is cloned before the variants are archived.
+     */
+    private MavenProject createVariantProject(EarVariant variant) {
+        final MavenProject variantProject = project.clone();
+        variantProject
+                .getBuild()
+                .setDirectory(new File(project.getBuild().getDirectory(), "ear-variants/" + variant.getClassifier())
+                        .getPath());
+        return variantProject;
+    }
+
+    /**
+     * Adds the files of a directory to an archive, as the deprecated {@code Archiver.addDirectory} does.
+     *
+     * @param archiver the archiver
+     * @param directory the directory
+     * @param includes the patterns of the files to add
+     * @param excludes the patterns of the files not to add
+     */
+    static void addDirectory(Archiver archiver, File directory, String[] includes, String[] excludes) {
+        archiver.addFileSet(DefaultFileSet.fileSet(directory)
+                .prefixed("")
+                .includeExclude(includes, excludes)
+                .includeEmptyDirs(archiver.getIncludeEmptyDirs()));
+    }
+
+    private void createVariant(
+            EarVariant variant,
+            MavenProject variantProject,
+            File variantFile,
+            File workDirectory,
+            String[] earIncludes,
+            String[] earExcludes,
+            File ddFile,
+            PathScanner pathScanner)
+            throws MojoExecutionException {
+        log.info("Building EAR " + variant + ": " + variantFile);
+        final String[] includes = variant.getPackagingIncludes() != null
+                ? StringUtils.split(variant.getPackagingIncludes(), ",")
+                : earIncludes;
+        final List<String> excludes = new ArrayList<>(Arrays.asList(
+                variant.getPackagingExcludes() != null
+                        ? StringUtils.split(variant.getPackagingExcludes(), ",")
+                        : earExcludes));
+
+        // the overlay files replace the ones of the work directory
+        final File overlayDirectory = variant.getOverlayDirectory();
+        File variantDdFile = variant.getApplicationXml() != null ? variant.getApplicationXml() : ddFile;
+        if (overlayDirectory != null) {
+            try {
+                for (String overlayFile : pathScanner.list(overlayDirectory.toPath()).keySet()) {
+                    excludes.add(overlayFile.replace(File.separatorChar, '/'));
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error scanning the overlay of EAR " + variant, e);
+            }
+            final File overlayDdFile = new File(overlayDirectory, AbstractEarMojo.APPLICATION_XML_URI);
+            if (variant.getApplicationXml() == null && overlayDdFile.isFile()) {
+                variantDdFile = overlayDdFile;
+            }
+        }
+
+        try {
+            final JarArchiver variantArchiver = createArchiver(variantDdFile);
+            if (variantDdFile.exists()) {
+                // added by the EAR archiver from the descriptor of the variant
+                excludes.add(AbstractEarMojo.APPLICATION_XML_URI);
+            }
+
+            final MavenArchiver archiver = createMavenArchiver(variantArchiver, variantFile);
+            variantArchiver.setFilenameComparator(createEntryComparator(variantDdFile));
+            addDirectory(variantArchiver, workDirectory, includes, excludes.toArray(new String[0]));
+            if (overlayDirectory != null) {
+                addDirectory(
+                        variantArchiver,
+                        overlayDirectory,
+                        new String[] {"**"},
+                        new String[] {AbstractEarMojo.APPLICATION_XML_URI});
+            }
+
+            final EarEvent archiveEvent = EarEvent.beginArchiveWrite();
+            archiver.createArchive(session, variantProject, archive);
+            archiveEvent.commit(
+                    project.getId() + ":" + variant.getClassifier(),
+                    0,
+                    archiveEvent.isEnabled() ? variantFile.length() : 0);
+        } catch (ManifestException | IOException | DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Error assembling EAR " + variant, e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.ear.util.EarDelta;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+/**
+ * Creates the delta between a previous build of the EAR and the EAR of the project, so that the new EAR can be shipped
+ * as its changes from the previous one and reconstructed byte for byte with the {@code apply-delta} goal.
+ * <p>
+ * The delta holds the added and changed entries, the list of the deleted ones and the layout of the new EAR; the data
+ * of the unchanged entries is copied from the previous EAR when the delta is applied. It is attached to the project
+ * with the {@code delta} classifier, so it is bound after the {@code ear} goal.
+ *
+ * @since 3.5.0
+ */
+@Mojo(name = "delta", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
+public class EarDeltaMojo extends AbstractEarDeltaMojo {
+    /**
+     * The new build of the EAR. Defaults to the EAR of the project.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.targetEar")
+    private File targetEar;
+
+    /**
+     * The delta to create.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(
+            property = "ear.deltaFile",
+            defaultValue = "${project.build.directory}/${project.build.finalName}-delta.zip",
+            required = true)
+    private File deltaFile;
+
+    /**
+     * Whether to attach the delta to the project with the {@code delta} classifier.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.attachDelta", defaultValue = "true")
+    private boolean attachDelta;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    private final MavenProjectHelper projectHelper;
+
+    @Inject
+    public EarDeltaMojo(MavenProjectHelper projectHelper) {
+        this.projectHelper = projectHelper;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final File base = getBaseEar();
+        File target = targetEar;
+        if (target == null) {
+            target = project.getArtifact().getFile();
+        }
+        if (target == null || !target.isFile()) {
+            throw new MojoExecutionException("No EAR to create a delta for, did you run the ear goal?");
+        }
+
+        final long startTime = System.nanoTime();
+        final EarDelta delta;
+        try {
+            delta = EarDelta.create(base.toPath(), target.toPath(), deltaFile.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to create the delta from " + base + " to " + target, e);
+        }
+        getLog().info("Created EAR delta " + deltaFile + " from " + base + ": "
+                + delta.getAddedEntries().size() + " added, " + delta.getModifiedEntries().size() + " modified and "
+                + delta.getDeletedEntries().size() + " deleted entries, "
+                + delta.getCopiedBytes() + " bytes reused, " + deltaFile.length() + " bytes shipped in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+        for (String entry : delta.getModifiedEntries()) {
+            getLog().debug("Modified entry " + entry);
+        }
+
+        if (attachDelta) {
+            projectHelper.attachArtifact(project, "zip", "delta", deltaFile);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.plugins.ear.util.DirectorySync;
+import org.apache.maven.project.MavenProjectHelper;
+import org.apache.maven.shared.filtering.MavenFileFilter;
+import org.apache.maven.shared.filtering.MavenResourcesFiltering;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.eclipse.aether.RepositorySystem;
+
+/**
+ * Builds an exploded J2EE Enterprise Archive (EAR) in the work directory, skipping the creation of the archive.
+ * <p>
+ * The modules, the deployment descriptors and the EAR sources are staged as for the {@code ear} goal, and the manifest
+ * is written to {@code META-INF/MANIFEST.MF}. The work directory becomes the file of the project artifact, so that it
+ * can be deployed as is. The packaging includes and excludes only apply to the archive, so they are ignored.
+ * <p>
+ * The exploded EAR can also be synchronized to a deployment directory, such as the {@code standalone/deployments}
+ * directory of WildFly, copying only the files which changed since the previous synchronization.
+ *
+ * @since 3.5.0
+ */
+@Mojo(
+        name = "exploded",
+        defaultPhase = LifecyclePhase.PACKAGE,
+        threadSafe = true,
+        requiresDependencyResolution = ResolutionScope.TEST)
+public class EarExplodedMojo extends EarMojo {
+
+    /**
+     * The directory to synchronize the exploded EAR to, typically the deployment directory of an application server.
+     * Only the files whose content or modification time changed are copied and the files which are not part of the
+     * EAR anymore are deleted, so that redeploying after a small change takes little I/O. The content of the files is
+     * compared through the digests of the EAR index, which are cached next to the work directory. Nothing is
+     * synchronized if not set.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.deploymentDirectory")
+    private File deploymentDirectory;
+
+    /**
+     * The name of the exploded EAR in the deployment directory.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.deploymentName", defaultValue = "${project.build.finalName}.ear")
+    private String deploymentName;
+
+    /**
+     * The suffix of the marker file created or touched next to the exploded EAR in the deployment directory when the
+     * synchronization changed it, such as {@code .dodeploy} for the deployment scanner of WildFly. No marker file is
+     * written if empty.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.deploymentMarker", defaultValue = ".dodeploy")
+    private String deploymentMarker;
+
+    @Inject
+    public EarExplodedMojo(
+            MavenProjectHelper projectHelper,
+            ArchiverManager archiverManager,
+            MavenFileFilter mavenFileFilter,
+            MavenResourcesFiltering mavenResourcesFiltering,
+            RepositorySystem repositorySystem) {
+        super(projectHelper, archiverManager, mavenFileFilter, mavenResourcesFiltering, repositorySystem);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        super.execute();
+
+        if (deploymentDirectory != null) {
+            synchronizeDeployment();
+        }
+    }
+
+    @Override
+    protected boolean isExploded() {
+        return true;
+    }
+
+    private void synchronizeDeployment() throws MojoExecutionException {
+        final long startTime = System.nanoTime();
+        final Path target = deploymentDirectory.toPath().resolve(deploymentName);
+        try {
+            final DirectorySync sync = DirectorySync.synchronize(
+                    getWorkDirectory().toPath(),
+                    target,
+                    getWorkDirectoryDigests(),
+                    new File(getWorkDirectory().getPath() + ".sync").toPath());
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            if (!sync.isChanged()) {
+                getLog().info("Deployment " + target + " is up to date (" + millis + " ms)");
+                return;
+            }
+            getLog().info("Synchronized deployment " + target + ": " + sync.getCopiedFiles() + " file(s) copied ("
+                    + sync.getCopiedBytes() + " bytes), " + sync.getDeletedFiles() + " file(s) deleted in " + millis
+                    + " ms");
+
+            if (deploymentMarker != null && !deploymentMarker.trim().isEmpty()) {
+                final Path marker = deploymentDirectory.toPath().resolve(deploymentName + deploymentMarker.trim());
+                if (Files.exists(marker)) {
+                    Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+                } else {
+                    Files.createFile(marker);
+                }
+                getLog().debug("Touched deployment marker " + marker);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to synchronize the exploded EAR to " + target, e);
+        }
+    }
+}
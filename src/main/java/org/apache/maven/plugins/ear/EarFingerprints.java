@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugins.ear.util.InputFingerprint;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Fingerprints the inputs of an EAR: everything it is built from, so that the EAR of the previous build is reused if
+ * none changed, and the values its sources are filtered with, so that only the sources whose content or filter values
+ * changed are filtered again.
+ */
+final class EarFingerprints {
+    private static final List<String> GENERATED_DESCRIPTORS =
+            Arrays.asList(AbstractEarMojo.APPLICATION_XML_URI, "META-INF/jboss-app.xml");
+
+    private final MavenProject project;
+
+    private final MavenSession session;
+
+    private final List<String> filters;
+
+    /**
+     * @param project the project of the EAR
+     * @param session the current session, which may be {@code null}
+     * @param filters the filters of the EAR sources, relative to the base directory of the project or absolute, which
+     *            may be {@code null}
+     */
+    EarFingerprints(MavenProject project, MavenSession session, List<String> filters) {
+        this.project = project;
+        this.session = session;
+        this.filters = filters;
+    }
+
+    /**
+     * @return the filter files
+     */
+    List<File> getFilterFiles() {
+        final List<File> filterFiles = new ArrayList<>();
+        if (filters != null) {
+            for (String filter : filters) {
+                final File filterFile = new File(filter);
+                filterFiles.add(filterFile.isAbsolute() ? filterFile : new File(project.getBasedir(), filter));
+            }
+        }
+        return filterFiles;
+    }
+
+    /**
+     * Computes the fingerprint of everything the EAR is built from, without resolving the modules: all the artifacts
+     * of the project are fingerprinted, since the modules are a subset of them. The artifacts are identified by their
+     * path, size and modification time, not by a digest of their content. The files of the work directory are added
+     * by {@link #addWorkDirectory}.
+     *
+     * @param mojo the class of the mojo building the EAR
+     * @param mojoExecution the execution of the mojo, which may be {@code null}
+     * @param earSources the files of the EAR sources directory
+     * @param applicationXml the custom application.xml, which may be {@code null}
+     * @param manifestFile the manifest file, which may be {@code null}
+     * @param workDirectory the work directory, holding the generated deployment descriptors
+     * @param variants the variants of the EAR
+     * @return the fingerprint
+     * @throws IOException if an input cannot be read
+     */
+    String computeInputFingerprint(
+            Class<?> mojo,
+            MojoExecution mojoExecution,
+            Map<String, BasicFileAttributes> earSources,
+            File applicationXml,
+            File manifestFile,
+            File workDirectory,
+            List<EarVariant> variants)
+            throws IOException {
+        final InputFingerprint fingerprint = new InputFingerprint().add("mojo", mojo.getName());
+        if (mojoExecution != null) {
+            if (mojoExecution.getMojoDescriptor() != null) {
+                fingerprint.add("plugin", mojoExecution.getMojoDescriptor().getPluginDescriptor().getId());
+            }
+            fingerprint.add("configuration", mojoExecution.getConfiguration());
+        }
+        fingerprint
+                .add("project", project.getId())
+                .addFileContent("pom", project.getFile())
+                .add("model", serialize(project.getModel()))
+                .addAll("properties", project.getProperties())
+                .addAll("userProperties", session != null ? session.getUserProperties() : null)
+                .addAll("systemProperties", session != null ? session.getSystemProperties() : null);
+
+        final Map<String, Artifact> artifacts = new TreeMap<>();
+        for (Artifact artifact : project.getArtifacts()) {
+            artifacts.put(artifact.getId(), artifact);
+        }
+        for (Artifact artifact : artifacts.values()) {
+            fingerprint.addFileStatus(
+                    artifact.getId() + ":" + artifact.getScope() + ":" + artifact.isOptional(), artifact.getFile());
+        }
+
+        fingerprint.addFiles("earSourceDirectory", earSources).addFileContent("applicationXml", applicationXml);
+        for (File filterFile : getFilterFiles()) {
+            fingerprint.addFileContent("filter", filterFile);
+        }
+        for (EarVariant variant : variants) {
+            fingerprint
+                    .add("variant", variant.getClassifier())
+                    .addFileContent("variantApplicationXml", variant.getApplicationXml())
+                    .addDirectory("overlayDirectory", variant.getOverlayDirectory());
+        }
+        fingerprint.addFileContent("manifestFile", manifestFile);
+        // generated by the generate-application-xml goal, rewritten even if unchanged
+        for (String descriptor : GENERATED_DESCRIPTORS) {
+            fingerprint.addFileContent(descriptor, new File(workDirectory, descriptor));
+        }
+        return fingerprint.getValue();
+    }
+
+    /**
+     * Adds the files of the work directory to the fingerprint of the inputs, by path, size and modification time, since
+     * everything staged there is archived, including the files staged by other plugins. The fingerprint of the previous
+     * build is stored once the EAR is written, so that it covers the work directory as that build left it.
+     *
+     * @param inputFingerprint the fingerprint computed by {@link #computeInputFingerprint}
+     * @param workFiles the files of the work directory
+     * @return the fingerprint
+     */
+    String addWorkDirectory(String inputFingerprint, Map<String, BasicFileAttributes> workFiles) {
+        final Map<String, BasicFileAttributes> files = new TreeMap<>(workFiles);
+        // fingerprinted by their content, since they are rewritten even if unchanged
+        files.keySet().removeIf(file -> GENERATED_DESCRIPTORS.contains(file.replace(File.separatorChar, '/')));
+        return new InputFingerprint()
+                .add("inputs", inputFingerprint)
+                .addFiles("workDirectory", files)
+                .getValue();
+    }
+
+    /**
+     * Serializes a model, so as to fingerprint what the POM inherits and what profiles and interpolation change.
+     */
+    private static byte[] serialize(Model model) throws IOException {
+        if (model == null) {
+            return new byte[0];
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MavenXpp3Writer().write(out, model);
+        return out.toByteArray();
+    }
+
+    /**
+     * Computes the fingerprint of the values the EAR sources are filtered with: everything the default filter wrappers
+     * interpolate from, that is the model and the properties of the project, the properties of the session and the
+     * filters, including the build filters of the model. The wrappers are not given the session, so the settings
+     * cannot be interpolated and are not part of the fingerprint.
+     *
+     * @param escapeString the escape string of the filtering
+     * @param escapedBackslashesInFilePath whether the backslashes of the file paths are escaped
+     * @param encoding the encoding of the EAR sources
+     * @return the fingerprint
+     * @throws IOException if a filter cannot be read
+     */
+    String computeFilterFingerprint(String escapeString, boolean escapedBackslashesInFilePath, String encoding)
+            throws IOException {
+        final InputFingerprint fingerprint = new InputFingerprint()
+                .add("project", project.getId())
+                .add("model", serialize(project.getModel()))
+                .add("basedir", project.getBasedir())
+                .add("build", project.getBuild().getDirectory() + ":" + project.getBuild().getFinalName())
+                .addAll("properties", project.getProperties())
+                .addAll("userProperties", session != null ? session.getUserProperties() : null)
+                .addAll("systemProperties", session != null ? session.getSystemProperties() : null)
+                .add("escapeString", escapeString)
+                .add("escapedBackslashesInFilePath", escapedBackslashesInFilePath)
+                .add("encoding", encoding);
+        for (File filterFile : getFilterFiles()) {
+            fingerprint.addFileContent("filter", filterFile);
+        }
+        for (String buildFilter : project.getBuild().getFilters()) {
+            final File filterFile = new File(buildFilter);
+            fingerprint.addFileContent(
+                    "buildFilter", filterFile.isAbsolute() ? filterFile : new File(project.getBasedir(), buildFilter));
+        }
+        return fingerprint.getValue();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.ear.util.EarIndex;
+
+/**
+ * Generates the content index of a staged EAR (see {@link EarIndex}) and embeds it in the work directory or writes it
+ * next to the EAR, as configured by the {@code earIndex} parameter.
+ */
+final class EarIndexGenerator {
+    private final boolean embed;
+
+    private final boolean attach;
+
+    /**
+     * @param earIndex where to put the index: {@code none}, {@code embed}, {@code attach} or {@code both}
+     * @throws MojoExecutionException if the value is invalid
+     */
+    EarIndexGenerator(String earIndex) throws MojoExecutionException {
+        embed = "embed".equals(earIndex) || "both".equals(earIndex);
+        attach = "attach".equals(earIndex) || "both".equals(earIndex);
+        if (!embed && !attach && !"none".equals(earIndex)) {
+            throw new MojoExecutionException(
+                    "Invalid earIndex [" + earIndex + "], expected none, embed, attach or both");
+        }
+    }
+
+    /**
+     * @return {@code true} if an index is generated
+     */
+    boolean isEnabled() {
+        return embed || attach;
+    }
+
+    /**
+     * @return {@code true} if the index is written next to the EAR, to be attached
+     */
+    boolean isAttached() {
+        return attach;
+    }
+
+    /**
+     * Indexes the files staged to the work directory, as they will be archived.
+     *
+     * @param workDirectory the work directory
+     * @param files the attributes of the files to archive, by relative path
+     * @param modules the modules of the EAR, whose entries are indexed as well
+     * @param indexFile the file the index is written to if attached
+     * @param log the log
+     * @return {@code true} if the index was embedded in the work directory
+     * @throws MojoExecutionException if the index cannot be generated
+     */
+    boolean generate(
+            File workDirectory,
+            Map<String, BasicFileAttributes> files,
+            List<EarModule> modules,
+            File indexFile,
+            Log log)
+            throws MojoExecutionException {
+        final Map<String, BasicFileAttributes> indexedFiles = new LinkedHashMap<>(files);
+        indexedFiles.remove(Paths.get(EarIndex.INDEX_NAME).toString());
+        try {
+            final List<EarIndex.Entry> entries = index(workDirectory, indexedFiles, modules, log);
+            if (embed) {
+                EarIndex.write(entries, workDirectory.toPath().resolve(EarIndex.INDEX_NAME));
+            }
+            if (attach) {
+                EarIndex.write(entries, indexFile.toPath());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error generating " + EarIndex.INDEX_NAME, e);
+        }
+        return embed;
+    }
+
+    /**
+     * Indexes some files of the work directory, with the checksums cached next to it.
+     *
+     * @param workDirectory the work directory
+     * @param files the attributes of the files to index, by relative path
+     * @param modules the modules of the EAR, whose entries are indexed as well
+     * @param log the log
+     * @return the entries, sorted by name
+     * @throws IOException if a file cannot be read
+     */
+    static List<EarIndex.Entry> index(
+            File workDirectory, Map<String, BasicFileAttributes> files, List<EarModule> modules, Log log)
+            throws IOException {
+        final Set<String> moduleUris = new HashSet<>();
+        for (EarModule module : modules) {
+            moduleUris.add(module.getUri());
+        }
+        final Path directory = workDirectory.toPath();
+        final EarIndex index = new EarIndex(
+                new File(workDirectory.getPath() + ".index").toPath(),
+                Runtime.getRuntime().availableProcessors());
+        final List<EarIndex.Entry> entries = index.index(directory, files, moduleUris::contains);
+        index.storeCache();
+        log.debug("Indexed " + entries.size() + " EAR entries, " + index.getCacheHits() + " from cache");
+        return entries;
+    }
+}
@@ -21,28 +21,44 @@ package org.apache.maven.plugins.ear;
 import javax.inject.Inject;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.ProviderMismatchException;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 import org.apache.maven.archiver.MavenArchiveConfiguration;
 import org.apache.maven.archiver.MavenArchiver;
@@ -55,9 +71,23 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
-import org.apache.maven.plugins.ear.util.EarMavenArchiver;
+import org.apache.maven.plugins.ear.util.ArchiveEntryComparator;
+import org.apache.maven.plugins.ear.util.ByteBudget;
+import org.apache.maven.plugins.ear.util.CompositionReport;
+import org.apache.maven.plugins.ear.util.EarBuildReport;
+import org.apache.maven.plugins.ear.util.EarEvent;
+import org.apache.maven.plugins.ear.util.EarIndex;
+import org.apache.maven.plugins.ear.util.FileDigests;
+import org.apache.maven.plugins.ear.util.IncrementalCopy;
+import org.apache.maven.plugins.ear.util.InputFingerprint;
+import org.apache.maven.plugins.ear.util.JarIndex;
 import org.apache.maven.plugins.ear.util.JavaEEVersion;
+import org.apache.maven.plugins.ear.util.JsonWriter;
+import org.apache.maven.plugins.ear.util.ModuleArchiveRewriter;
+import org.apache.maven.plugins.ear.util.ModuleStore;
+import org.apache.maven.plugins.ear.util.PathScanner;
 import org.apache.maven.project.MavenProjectHelper;
+import org.apache.maven.shared.filtering.ChangeDetection;
 import org.apache.maven.shared.filtering.FilterWrapper;
 import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.apache.maven.shared.filtering.MavenFilteringException;
@@ -67,7 +97,6 @@ import org.apache.maven.shared.mapping.MappingUtils;
 import org.apache.maven.shared.utils.io.FileUtils;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.UnArchiver;
-import org.codehaus.plexus.archiver.ear.EarArchiver;
 import org.codehaus.plexus.archiver.jar.JarArchiver;
 import org.codehaus.plexus.archiver.jar.Manifest;
 import org.codehaus.plexus.archiver.jar.Manifest.Attribute;
@@ -76,8 +105,8 @@ import org.codehaus.plexus.archiver.manager.ArchiverManager;
 import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
 import org.codehaus.plexus.components.io.filemappers.FileMapper;
 import org.codehaus.plexus.interpolation.InterpolationException;
-import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.StringUtils;
+import org.eclipse.aether.RepositorySystem;
 
 /**
  * Builds J2EE Enterprise Archive (EAR) files.
@@ -122,6 +151,17 @@ public class EarMojo extends AbstractEarMojo {
     @Parameter(defaultValue = "false")
     private boolean filtering;
 
+    /**
+     * Whether to filter again only the EAR sources whose content or filter values changed since the previous build.
+     * The filter values are fingerprinted from the effective model of the project, the filters and the properties of
+     * the project and of the session. Set to {@code false} to filter all the EAR sources on every build, for instance
+     * when a filtered value comes from elsewhere.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.incrementalFiltering", defaultValue = "true")
+    private boolean incrementalFiltering = true;
+
     /**
      * Filters (property files) to include during the interpolation of the pom.xml.
      *
@@ -164,6 +204,17 @@ public class EarMojo extends AbstractEarMojo {
     @Parameter(defaultValue = "false")
     private boolean skipClassPathModification;
 
+    /**
+     * Whether to add to the manifest Class-Path of each module only the libraries of its own transitive runtime
+     * dependencies, instead of all the libraries of the EAR. The dependency graph of each module is collected from its
+     * POM, so that the class loader of a module only searches the JARs it actually needs. The entries already present
+     * in the Class-Path of a module are kept, and all the libraries are added if the graph cannot be collected.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.classPathFromDependencies", defaultValue = "false")
+    private boolean classPathFromDependencies;
+
     /**
      * The location of a custom application.xml file to be used within the EAR file.
      */
@@ -236,14 +287,187 @@ public class EarMojo extends AbstractEarMojo {
     private boolean skinnyModules;
 
     /**
-     * The Plexus EAR archiver to create the output archive.
+     * Whether to generate a {@code META-INF/INDEX.LIST} JarIndex mapping each package to the library of the
+     * {@link #defaultLibBundleDir} providing it, so that class loaders supporting the index can locate classes
+     * without probing every library. Requires {@link #defaultLibBundleDir} to be set.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(defaultValue = "false")
+    private boolean generateLibraryIndex;
+
+    /**
+     * Whether to lay the EAR out for deployment: the manifest and the standard and vendor deployment descriptors are
+     * written before the other entries of {@code META-INF}, and the modules are written in the order of
+     * {@code application.xml}, which is their initialization order when {@code initialize-in-order} is set. Servers
+     * streaming the EAR can then parse the descriptors and start deploying modules before the whole archive is read.
+     * The entries are otherwise written with the descriptors first, then the modules in their declared order and the
+     * libraries sorted by name.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.deploymentLayout", defaultValue = "false")
+    private boolean deploymentLayout;
+
+    /**
+     * The size in bytes of the buffer used to stream a packed module to the work directory when its manifest
+     * Class-Path is changed or its libraries are removed (see {@link #skinnyWars}). The modules are streamed entry by
+     * entry without being decompressed, so that the memory used does not depend on their size nor on their number of
+     * entries; ZIP64 extensions are used as needed for modules of more than 4 GB or 65535 entries.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.zipBufferSize", defaultValue = "65536")
+    private int zipBufferSize = ModuleArchiveRewriter.DEFAULT_BUFFER_SIZE;
+
+    /**
+     * Whether to reuse the EAR of the previous build when none of its inputs changed: the artifacts of the project,
+     * the EAR sources, the deployment descriptors, the filters, the manifest file, the configuration of the plugin, the
+     * POM and the effective model of the project, the user and system properties of the session, and the files of the
+     * work directory, including the ones staged there by other plugins. The inputs are fingerprinted before the
+     * modules are even resolved and, if the fingerprint matches the one stored next to the EAR and the EAR was not
+     * modified since, the EAR is attached as is. Set to {@code false} to always rebuild the EAR.
+     * <p>
+     * The artifacts and the files of the work directory are identified by their path, size and modification time, not
+     * by a digest of their content: a file replaced by another one of the same size and modification time, such as a
+     * file restored from a cache along with its timestamp, is not detected.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.skipIfUnchanged", defaultValue = "true")
+    private boolean skipIfUnchanged = true;
+
+    /**
+     * The directory of a store of processed modules shared by the EAR projects of the machine, for instance
+     * {@code ${user.home}/.m2/ear-cache}. The modules whose manifest Class-Path is changed or whose libraries are
+     * removed (see {@link #skinnyWars}) are stored under a digest of their content and of the changes made to them,
+     * so that another build producing the same module links or copies it from the store instead of rewriting it. The
+     * modules of an exploded EAR are always copied, since they may be modified in place once deployed. No store is
+     * used if not set.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.moduleStore")
+    private File moduleStore;
+
+    /**
+     * The maximum size in bytes of the {@link #moduleStore}. The least recently used modules are removed from the
+     * store when it gets bigger.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.moduleStoreMaxSize", defaultValue = "10737418240")
+    private long moduleStoreMaxSize = 10L * 1024 * 1024 * 1024;
+
+    /**
+     * What to do with the libraries which no module uses: {@code keep} them without any analysis, {@code warn} about
+     * them or {@code exclude} them from the EAR. A library is used if a class of a module, or of a used library,
+     * references one of its classes, including by a class name in a string constant. The libraries providing services,
+     * tag libraries, web fragments or CDI beans, the libraries without classes and the libraries listed in the
+     * application.xml are always used. A library bundled in a module is used if the module references it, and an
+     * excluded library is not removed from the skinny modules (see {@link #skinnyWars}). The class references of each
+     * archive are cached by its digest.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.unusedLibraries", defaultValue = "keep")
+    private String unusedLibraries;
+
+    /**
+     * The libraries always used, such as the ones whose classes are only loaded by name from a configuration file, as
+     * {@code groupId:artifactId} patterns where {@code *} matches any characters.
+     *
+     * @since 3.5.0
+     */
+    @Parameter
+    private List<String> usedLibraries;
+
+    /**
+     * Whether to index the content of the EAR: every entry, and every entry of the modules bundled as archives, with
+     * its size, CRC-32 and SHA-256, so that deployment tools can compare two releases and redeploy only the modules
+     * which changed. The index is a JSON document which is either {@code embed}ded in the EAR as
+     * {@code META-INF/ear-index.json}, written next to the EAR and {@code attach}ed with the {@code ear-index}
+     * classifier, or {@code both}. No index is generated if {@code none}. Each staged file is read once to index it,
+     * and not at all if it was not staged again since the previous build.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.earIndex", defaultValue = "none")
+    private String earIndex;
+
+    /**
+     * The digest algorithms of the checksums of the EAR archives, such as {@code SHA-256} or {@code SHA-512}, written
+     * next to each archive as a {@code .sha256} or {@code .sha512} file holding the hexadecimal digest. All the
+     * checksums are computed in a single read of the archive, right after it is written. When the archive of the
+     * previous build is reused (see {@link #skipIfUnchanged}), its checksums are kept as long as they are not older
+     * than the archive, so that the archive is not read at all. No checksum is written if empty.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.checksumAlgorithms")
+    private List<String> checksumAlgorithms;
+
+    /**
+     * Whether to attach the checksum files of the EAR archives to the project, with the classifier of their archive
+     * and a type such as {@code ear.sha256}, so that they are installed and deployed along with it.
+     *
+     * @since 3.5.0
      */
-    private EarArchiver earArchiver;
+    @Parameter(property = "ear.attachChecksums", defaultValue = "false")
+    private boolean attachChecksums;
 
     /**
-     * The Plexus JAR archiver to create the output archive if no EAR application descriptor is provided (JavaEE 5+).
+     * The maximum size in bytes of the modules staged at once to the work directory. The modules are staged in
+     * parallel, so that reading, decompressing and writing them overlap, as long as the sum of their sizes stays below
+     * this limit; a bigger module is staged alone. When the EAR is written while its modules are staged (see
+     * {@link #pipelinedArchive}), the limit also counts the staged modules the archiver did not take yet.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.stagingBytesInFlight", defaultValue = "268435456")
+    private long stagingBytesInFlight = 256L * 1024 * 1024;
+
+    /**
+     * Whether to write the EAR while its packed modules are being staged, so that their staging overlaps with the
+     * compression of the EAR, instead of writing it once the whole work directory is staged. The EAR is the same
+     * either way. It is written after the staging when the staged work directory is changed afterwards, that is when
+     * a library index or an EAR index is generated or when an EAR source replaces a packed module.
+     *
+     * @since 3.5.0
      */
-    private JarArchiver jarArchiver;
+    @Parameter(property = "ear.pipelinedArchive", defaultValue = "true")
+    private boolean pipelinedArchive = true;
+
+    /**
+     * Whether to report the composition of the EAR: the archive size, uncompressed size and entry count of each module,
+     * whether it was unpacked or had libraries removed (see {@link #skinnyWars}), the time spent staging it and the
+     * libraries bundled more than once across the modules. The modules are logged sorted by decreasing size and the
+     * report is written as JSON to {@link #compositionReportFile}, so that its growth can be tracked from build to
+     * build. The report of the previous build is kept when the EAR is reused (see {@link #skipIfUnchanged}).
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.compositionReport", defaultValue = "false")
+    private boolean compositionReport;
+
+    /**
+     * The file the composition report is written to.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ear-composition.json", required = true)
+    private File compositionReportFile;
+
+    /**
+     * The variants of the EAR to build from the same staged work directory, each attached with its own classifier.
+     * The modules are staged once for all the variants, which only differ by their packaging includes and excludes,
+     * their {@code application.xml} and the files of their overlay directory. The variants are archived in parallel
+     * once the main EAR is written. See {@link EarVariant}.
+     *
+     * @since 3.5.0
+     */
+    @Parameter
+    private List<EarVariant> variants;
 
     /**
      * The archive configuration to use. See <a href="https://maven.apache.org/shared/maven-archiver/">Maven Archiver
@@ -273,6 +497,8 @@ public class EarMojo extends AbstractEarMojo {
 
     private MavenResourcesFiltering mavenResourcesFiltering;
 
+    private RepositorySystem repositorySystem;
+
     /**
      * @since 2.3.2
      */
@@ -281,20 +507,37 @@ public class EarMojo extends AbstractEarMojo {
 
     private List<FilterWrapper> filterWrappers;
 
+    private ModuleStore moduleStoreInstance;
+
+    /**
+     * The unused libraries excluded from the EAR, which are not removed from the skinny modules either.
+     */
+    private final Set<EarModule> excludedLibraries = new HashSet<>();
+
+    private CompositionReport composition;
+
+    /**
+     * The dependencies of the modules, kept across executions.
+     */
+    private ModuleDependencies moduleDependencies;
+
+    /**
+     * Walks each directory tree once per execution.
+     */
+    private final PathScanner pathScanner = new PathScanner();
+
     @Inject
     public EarMojo(
-            EarArchiver earArchiver,
-            JarArchiver jarArchiver,
             MavenProjectHelper projectHelper,
             ArchiverManager archiverManager,
             MavenFileFilter mavenFileFilter,
-            MavenResourcesFiltering mavenResourcesFiltering) {
-        this.earArchiver = earArchiver;
-        this.jarArchiver = jarArchiver;
+            MavenResourcesFiltering mavenResourcesFiltering,
+            RepositorySystem repositorySystem) {
         this.projectHelper = projectHelper;
         this.archiverManager = archiverManager;
         this.mavenFileFilter = mavenFileFilter;
         this.mavenResourcesFiltering = mavenResourcesFiltering;
+        this.repositorySystem = repositorySystem;
     }
 
     /**
@@ -302,9 +545,6 @@ public class EarMojo extends AbstractEarMojo {
      */
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        // Initializes ear modules
-        super.execute();
-
         // Normalize classifier: trim whitespace and treat empty as null
         if (classifier != null) {
             classifier = classifier.trim();
@@ -314,45 +554,112 @@ public class EarMojo extends AbstractEarMojo {
         }
 
         File earFile = getEarFile(outputDirectory, finalName, classifier);
-        MavenArchiver archiver = new EarMavenArchiver(getModules());
-        File ddFile = new File(getWorkDirectory(), APPLICATION_XML_URI);
+        final List<File> outputFiles = new ArrayList<>();
+        outputFiles.add(earFile);
+        for (EarVariant variant : getVariants()) {
+            outputFiles.add(getEarFile(outputDirectory, finalName, variant.getClassifier()));
+        }
+        final EarBuildReport report = getBuildReport();
+        final File fingerprintFile = new File(earFile.getPath() + ".fingerprint");
+        String fingerprint = null;
+        if (skipIfUnchanged && !isExploded()) {
+            final long fingerprintStart = System.nanoTime();
+            try {
+                fingerprint = getFingerprints()
+                        .computeInputFingerprint(
+                                getClass(),
+                                getMojoExecution(),
+                                pathScanner.list(earSourceDirectory.toPath()),
+                                applicationXml,
+                                archive.getManifestFile(),
+                                getWorkDirectory(),
+                                getVariants());
+                final String workFingerprint = getFingerprints()
+                        .addWorkDirectory(fingerprint, pathScanner.list(getWorkDirectory().toPath()));
+                if (InputFingerprint.isUpToDate(fingerprintFile, workFingerprint, outputFiles)) {
+                    report.phase(EarBuildReport.FINGERPRINT, fingerprintStart);
+                    getLog().info("EAR inputs unchanged, reusing " + earFile);
+                    attachEar(earFile);
+                    for (int i = 0; i < getVariants().size(); i++) {
+                        projectHelper.attachArtifact(
+                                getProject(), "ear", getVariants().get(i).getClassifier(), outputFiles.get(i + 1));
+                    }
+                    if (new EarIndexGenerator(earIndex).isAttached() && getEarIndexFile().isFile()) {
+                        attachEarIndex();
+                    }
+                    writeChecksums(outputFiles, true);
+                    writeBuildReport();
+                    return;
+                }
+                Files.deleteIfExists(fingerprintFile.toPath());
+            } catch (IOException e) {
+                getLog().warn("Cannot fingerprint the EAR inputs, rebuilding it: " + e.getMessage());
+                fingerprint = null;
+            }
+            report.phase(EarBuildReport.FINGERPRINT, fingerprintStart);
+        }
 
-        JarArchiver theArchiver;
-        if (ddFile.exists()) {
-            earArchiver.setAppxml(ddFile);
-            theArchiver = earArchiver;
-        } else {
-            // current Plexus EarArchiver does not support application.xml-less JavaEE 5+ case
-            // => fallback to Plexus Jar archiver
-            theArchiver = jarArchiver;
+        // Initializes ear modules
+        super.execute();
+
+        excludedLibraries.clear();
+        if (!"keep".equals(unusedLibraries)) {
+            final long analysisStartTime = System.nanoTime();
+            handleUnusedLibraries();
+            report.phase(EarBuildReport.LIBRARY_ANALYSIS, analysisStartTime);
         }
-        getLog().debug("Ear archiver implementation [" + theArchiver.getClass().getName() + "]");
-        archiver.setArchiver(theArchiver);
-        archiver.setOutputFile(earFile);
-        archiver.setCreatedBy("Maven EAR Plugin", "org.apache.maven.plugins", "maven-ear-plugin");
 
-        // configure for Reproducible Builds based on outputTimestamp value
-        archiver.configureReproducibleBuild(outputTimestamp);
+        final EarArchivers archivers = new EarArchivers(
+                archiverManager,
+                getModules(),
+                defaultLibBundleDir,
+                deploymentLayout,
+                outputTimestamp,
+                session,
+                getProject(),
+                archive,
+                getLog());
+        File ddFile = new File(getWorkDirectory(), APPLICATION_XML_URI);
+
+        final JarArchiver theArchiver = archivers.createArchiver(ddFile);
+        getLog().debug("Ear archiver implementation [" + theArchiver.getClass().getName() + "]");
+        final MavenArchiver archiver = archivers.createMavenArchiver(theArchiver, earFile);
 
         final JavaEEVersion javaEEVersion = JavaEEVersion.getJavaEEVersion(version);
 
+        long startTime = System.nanoTime();
         final Collection<String> outdatedResources = initOutdatedResources();
+        report.phase(EarBuildReport.OUTDATED_RESOURCES, startTime);
 
         // Initializes unpack types
         List<String> unpackTypesList = createUnpackList();
 
-        // Copy modules
-        copyModules(javaEEVersion, unpackTypesList, outdatedResources);
+        final EarIndexGenerator earIndexGenerator = new EarIndexGenerator(earIndex);
+        final ArchivePipeline pipeline = createArchivePipeline(unpackTypesList, earIndexGenerator, report);
+
+        startTime = System.nanoTime();
+        collectModuleDependencies();
+        report.phase(EarBuildReport.MODULE_RESOLUTION, startTime);
+
+        // Copy modules, the packed ones being staged while the EAR is written if pipelined
+        startTime = System.nanoTime();
+        final List<EarModule> stagedModules = new ArrayList<>(getModules());
+        if (pipeline != null) {
+            stagedModules.removeIf(module -> !isUnpacked(module, unpackTypesList));
+        }
+        copyModules(stagedModules, javaEEVersion, unpackTypesList, outdatedResources);
+        report.phase(EarBuildReport.STAGING, startTime);
 
         // Copy source files
+        startTime = System.nanoTime();
         try {
             File earSourceDir = earSourceDirectory;
 
             if (earSourceDir.exists()) {
                 getLog().debug("Copy ear sources to " + getWorkDirectory().getAbsolutePath());
                 String[] fileNames = getEarFiles(earSourceDir);
+                copyEarSources(earSourceDir, fileNames);
                 for (String fileName : fileNames) {
-                    copyFile(new File(earSourceDir, fileName), new File(getWorkDirectory(), fileName));
                     outdatedResources.remove(Paths.get(fileName).toString());
                 }
             }
@@ -369,6 +676,7 @@ public class EarMojo extends AbstractEarMojo {
         } catch (MavenFilteringException e) {
             throw new MojoExecutionException("Error filtering EAR sources", e);
         }
+        report.phase(EarBuildReport.SOURCES, startTime);
 
         // Check if deployment descriptor is there
         if (!ddFile.exists() && (javaEEVersion.lt(JavaEEVersion.FIVE))) {
@@ -379,20 +687,135 @@ public class EarMojo extends AbstractEarMojo {
         if (getJbossConfiguration() != null) {
             outdatedResources.remove(Paths.get("META-INF/jboss-app.xml").toString());
         }
+        if (pipeline != null) {
+            for (String modulePath : pipeline.getModulePaths()) {
+                outdatedResources.remove(Paths.get(modulePath).toString());
+            }
+        }
 
+        startTime = System.nanoTime();
         deleteOutdatedResources(outdatedResources);
+        report.phase(EarBuildReport.OUTDATED_RESOURCES, startTime);
+
+        if (generateLibraryIndex) {
+            startTime = System.nanoTime();
+            generateLibraryIndex();
+            report.phase(EarBuildReport.LIBRARY_INDEX, startTime);
+        }
 
+        if (earIndexGenerator.isEnabled()) {
+            startTime = System.nanoTime();
+            generateEarIndex(earIndexGenerator);
+            report.phase(EarBuildReport.EAR_INDEX, startTime);
+        }
+
+        if (isExploded()) {
+            writeExplodedManifest(archiver);
+            getLog().info("Exploded EAR assembled in " + getWorkDirectory());
+            if (classifier != null) {
+                projectHelper.attachArtifact(getProject(), "ear", classifier, getWorkDirectory());
+            } else {
+                getProject().getArtifact().setFile(getWorkDirectory());
+            }
+            writeCompositionReport();
+            writeBuildReport();
+            return;
+        }
+
+        startTime = System.nanoTime();
         try {
             getLog().debug("Excluding " + Arrays.asList(getPackagingExcludes()) + " from the generated EAR.");
             getLog().debug("Including " + Arrays.asList(getPackagingIncludes()) + " in the generated EAR.");
 
-            archiver.getArchiver().addDirectory(getWorkDirectory(), getPackagingIncludes(), getPackagingExcludes());
-
-            archiver.createArchive(session, getProject(), archive);
-        } catch (ManifestException | IOException | DependencyResolutionRequiredException e) {
+            final ArchiveEntryComparator entryComparator = archivers.createEntryComparator(ddFile);
+            theArchiver.setFilenameComparator(entryComparator);
+            if (pipeline != null) {
+                pipeline.addTo(
+                        archiver.getArchiver(), entryComparator, getPackagingIncludes(), getPackagingExcludes());
+                final Collection<String> stagedOutdatedResources = Collections.synchronizedSet(new HashSet<>());
+                pipeline.run(
+                        module -> copyModule(module, javaEEVersion, unpackTypesList, stagedOutdatedResources),
+                        () -> writeArchive(archiver, earFile));
+            } else {
+                EarArchivers.addDirectory(
+                        archiver.getArchiver(), getWorkDirectory(), getPackagingIncludes(), getPackagingExcludes());
+                writeArchive(archiver, earFile);
+                report.phase(EarBuildReport.ARCHIVE, startTime);
+            }
+        } catch (ManifestException | IOException | DependencyResolutionRequiredException | ArchiverException e) {
             throw new MojoExecutionException("Error assembling EAR", e);
+        } catch (ExecutionException e) {
+            throwStagingFailure(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while assembling EAR", e);
+        }
+
+        if (!getVariants().isEmpty()) {
+            startTime = System.nanoTime();
+            final List<File> variantFiles = outputFiles.subList(1, outputFiles.size());
+            archivers.createVariants(
+                    getVariants(),
+                    variantFiles,
+                    getWorkDirectory(),
+                    getPackagingIncludes(),
+                    getPackagingExcludes(),
+                    ddFile,
+                    pathScanner);
+            // the project is not thread safe
+            for (int i = 0; i < variantFiles.size(); i++) {
+                projectHelper.attachArtifact(
+                        getProject(), "ear", getVariants().get(i).getClassifier(), variantFiles.get(i));
+            }
+            report.phase(EarBuildReport.VARIANTS, startTime);
+        }
+
+        if (fingerprint != null) {
+            try {
+                pathScanner.forget(getWorkDirectory().toPath());
+                InputFingerprint.store(
+                        fingerprintFile,
+                        getFingerprints()
+                                .addWorkDirectory(fingerprint, pathScanner.list(getWorkDirectory().toPath())),
+                        outputFiles);
+            } catch (IOException e) {
+                getLog().warn("Cannot store the fingerprint of the EAR inputs: " + e.getMessage());
+            }
+        }
+
+        attachEar(earFile);
+
+        startTime = System.nanoTime();
+        writeChecksums(outputFiles, false);
+        report.phase(EarBuildReport.CHECKSUMS, startTime);
+
+        writeCompositionReport();
+        writeBuildReport();
+    }
+
+    private List<EarVariant> getVariants() throws MojoExecutionException {
+        if (variants == null) {
+            variants = new ArrayList<>();
         }
+        final Set<String> classifiers = new HashSet<>();
+        classifiers.add(Objects.toString(classifier, ""));
+        for (EarVariant variant : variants) {
+            if (variant.getClassifier() == null || variant.getClassifier().trim().isEmpty()) {
+                throw new MojoExecutionException("The classifier of an EAR variant is required");
+            }
+            if (!classifiers.add(variant.getClassifier())) {
+                throw new MojoExecutionException("Duplicate EAR classifier " + variant.getClassifier());
+            }
+            // a missing overlay would silently package the descriptors of the main EAR
+            if (variant.getOverlayDirectory() != null && !variant.getOverlayDirectory().isDirectory()) {
+                throw new MojoExecutionException("The overlay directory of EAR " + variant + " does not exist: "
+                        + variant.getOverlayDirectory());
+            }
+        }
+        return variants;
+    }
 
+    private void attachEar(File earFile) {
         if (classifier != null) {
             projectHelper.attachArtifact(getProject(), "ear", classifier, earFile);
         } else {
@@ -400,66 +823,392 @@ public class EarMojo extends AbstractEarMojo {
         }
     }
 
-    private void copyModules(
-            final JavaEEVersion javaEEVersion, List<String> unpackTypesList, Collection<String> outdatedResources)
-            throws MojoExecutionException, MojoFailureException {
+    /**
+     * Writes the checksum files of the EAR archives and attaches them if required.
+     *
+     * @param earFiles the EAR archive followed by the archives of its variants
+     */
+    private void writeChecksums(List<File> earFiles, boolean reused) throws MojoExecutionException {
+        if (checksumAlgorithms == null || checksumAlgorithms.isEmpty()) {
+            return;
+        }
+        final FileDigests digests;
         try {
-            for (EarModule module : getModules()) {
-                final File sourceFile = module.getArtifact().getFile();
-                final File destinationFile = buildDestinationFile(getWorkDirectory(), module.getUri());
-                if (!sourceFile.isFile()) {
-                    throw new MojoExecutionException("Cannot copy a directory: " + sourceFile.getAbsolutePath()
-                            + "; Did you package/install " + module.getArtifact() + "?");
+            digests = new FileDigests(checksumAlgorithms);
+        } catch (NoSuchAlgorithmException e) {
+            throw new MojoExecutionException("Unsupported checksum algorithm in " + checksumAlgorithms, e);
+        }
+        for (int i = 0; i < earFiles.size(); i++) {
+            final File earFile = earFiles.get(i);
+            final Map<String, Path> sidecars;
+            try {
+                // the sidecars written along with a reused EAR are kept, so as not to read it
+                sidecars = reused
+                        ? digests.writeOutdatedSidecars(earFile.toPath())
+                        : digests.writeSidecars(earFile.toPath());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to write the checksums of " + earFile, e);
+            }
+            getLog().debug("Checksums of " + earFile + " written to " + sidecars.values());
+            if (attachChecksums) {
+                final String earClassifier = i == 0 ? classifier : getVariants().get(i - 1).getClassifier();
+                for (Map.Entry<String, Path> sidecar : sidecars.entrySet()) {
+                    projectHelper.attachArtifact(
+                            getProject(),
+                            "ear." + FileDigests.getExtension(sidecar.getKey()),
+                            earClassifier,
+                            sidecar.getValue().toFile());
                 }
+            }
+        }
+    }
+
+    /**
+     * Whether to stop after the staging of the work directory, leaving an exploded EAR instead of an archive.
+     *
+     * @return {@code false} to build the EAR archive
+     */
+    protected boolean isExploded() {
+        return false;
+    }
+
+    /**
+     * Returns the files the work directory is staged from apart from the EAR sources: the module artifacts, the
+     * custom deployment descriptor, the filters and the manifest file.
+     *
+     * @return the input files, which may not exist
+     */
+    protected List<File> getInputFiles() {
+        final List<File> inputFiles = new ArrayList<>();
+        for (EarModule module : getModules()) {
+            if (module.getArtifact().getFile() != null) {
+                inputFiles.add(module.getArtifact().getFile());
+            }
+        }
+        if (applicationXml != null) {
+            inputFiles.add(applicationXml);
+        }
+        inputFiles.addAll(getFingerprints().getFilterFiles());
+        if (archive.getManifestFile() != null) {
+            inputFiles.add(archive.getManifestFile());
+        }
+        return inputFiles;
+    }
+
+    /**
+     * Returns the digests of the files of the work directory, as indexed for the EAR index, so that only the files
+     * staged again since they were last indexed are read.
+     *
+     * @return the SHA-256 digests of the staged files by relative path
+     * @throws IOException if the work directory cannot be scanned or a staged file cannot be read
+     */
+    protected Map<String, String> getWorkDirectoryDigests() throws IOException {
+        final Path workDirectory = getWorkDirectory().toPath();
+        pathScanner.forget(workDirectory);
+        final Map<String, String> digests = new HashMap<>();
+        for (EarIndex.Entry entry :
+                EarIndexGenerator.index(getWorkDirectory(), pathScanner.list(workDirectory), getModules(), getLog())) {
+            digests.put(entry.getName(), entry.getSha256());
+        }
+        return digests;
+    }
+
+    /**
+     * @return the directory of the EAR sources
+     */
+    protected File getEarSourceDirectory() {
+        return earSourceDirectory;
+    }
 
-                if (destinationFile.getCanonicalPath().equals(sourceFile.getCanonicalPath())) {
-                    getLog().info("Skipping artifact [" + module + "], as it already exists at [" + module.getUri()
-                            + "]");
-                    // FIXME: Shouldn't that result in a build failure!?
-                    continue;
+    /**
+     * Forgets the scanned content of the EAR sources and of the work directory, so that the next execution scans them
+     * again after they changed. The other state of this mojo, such as the dependencies of the modules, is kept.
+     */
+    protected void forgetScannedDirectories() {
+        pathScanner.forget(earSourceDirectory.toPath());
+        pathScanner.forget(getWorkDirectory().toPath());
+    }
+
+    /**
+     * Writes to the work directory the manifest the archiver would have generated, since there is no archiver to add
+     * it in an exploded EAR.
+     */
+    private void writeExplodedManifest(MavenArchiver archiver) throws MojoExecutionException {
+        try {
+            final Manifest manifest;
+            final File manifestFile = archive.getManifestFile();
+            if (manifestFile != null) {
+                manifest = readManifest(manifestFile.toPath());
+                // the configured entries take precedence over the manifest file, as in the archive
+                final Manifest configured = archiver.getManifest(session, getProject(), archive);
+                manifest.getMainAttributes().putAll(configured.getMainAttributes());
+                for (Map.Entry<String, Attributes> section : configured.getEntries().entrySet()) {
+                    manifest.getEntries()
+                            .computeIfAbsent(section.getKey(), name -> new Attributes())
+                            .putAll(section.getValue());
                 }
+            } else {
+                manifest = archiver.getManifest(session, getProject(), archive);
+            }
 
-                // If the module is within the unpack list, make sure that no unpack wasn't forced (null or true)
-                // If the module is not in the unpack list, it should be true
-                if ((unpackTypesList.contains(module.getType())
-                                && (module.shouldUnpack() == null || module.shouldUnpack()))
-                        || (module.shouldUnpack() != null && module.shouldUnpack())) {
-                    getLog().debug("Copying artifact [" + module + "] to [" + module.getUri() + "] (unpacked)");
-                    // Make sure that the destination is a directory to avoid plexus nasty stuff :)
-                    if (!destinationFile.isDirectory() && !destinationFile.mkdirs()) {
-                        throw new MojoExecutionException("Error creating " + destinationFile);
-                    }
-                    unpack(sourceFile, destinationFile, outdatedResources);
+            final Path explodedManifest = getWorkDirectory().toPath().resolve(JarFile.MANIFEST_NAME);
+            Files.createDirectories(explodedManifest.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(explodedManifest, StandardCharsets.UTF_8)) {
+                manifest.write(writer);
+            }
+            final FileTime outputFileTime = getOutputFileTime();
+            if (outputFileTime != null) {
+                Files.setLastModifiedTime(explodedManifest, outputFileTime);
+            }
+        } catch (ManifestException | IOException | DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Error writing the manifest of the exploded EAR", e);
+        }
+    }
 
-                    if (module.changeManifestClasspath()) {
-                        changeManifestClasspath(module, destinationFile, javaEEVersion, outdatedResources);
+    private void writeArchive(MavenArchiver archiver, File earFile)
+            throws ManifestException, IOException, DependencyResolutionRequiredException {
+        final EarEvent archiveEvent = EarEvent.beginArchiveWrite();
+        archiver.createArchive(session, getProject(), archive);
+        archiveEvent.commit(getProject().getId(), 0, archiveEvent.isEnabled() ? earFile.length() : 0);
+    }
+
+    /**
+     * Creates the pipeline writing the EAR while its packed modules are staged, unless the staged work directory is
+     * changed once staged.
+     *
+     * @return the pipeline, or {@code null} if the EAR is written once the work directory is staged
+     */
+    private ArchivePipeline createArchivePipeline(
+            List<String> unpackTypesList, EarIndexGenerator earIndexGenerator, EarBuildReport report)
+            throws MojoExecutionException {
+        if (!pipelinedArchive || isExploded() || generateLibraryIndex || earIndexGenerator.isEnabled()) {
+            return null;
+        }
+        final List<EarModule> packedModules = new ArrayList<>();
+        for (EarModule module : getModules()) {
+            if (!isUnpacked(module, unpackTypesList)) {
+                packedModules.add(module);
+            }
+        }
+        final ArchivePipeline pipeline =
+                new ArchivePipeline(packedModules, getWorkDirectory(), stagingBytesInFlight, report);
+        final List<String> sources = new ArrayList<>();
+        if (earSourceDirectory.exists()) {
+            try {
+                sources.addAll(Arrays.asList(getEarFiles(earSourceDirectory)));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error scanning EAR sources", e);
+            }
+        }
+        if (applicationXml != null) {
+            sources.add(APPLICATION_XML_URI);
+        }
+        for (String source : sources) {
+            if (pipeline.isStagedByModule(source)) {
+                getLog().debug("Writing the EAR once staged, since " + source + " replaces a module");
+                return null;
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * Stages the modules to the work directory on a thread pool, so that the reads, decompression and writes of the
+     * modules overlap. The modules staged at once are bounded by their size with {@link #stagingBytesInFlight}.
+     */
+    void copyModules(
+            List<EarModule> modules,
+            final JavaEEVersion javaEEVersion,
+            List<String> unpackTypesList,
+            Collection<String> outdatedResources)
+            throws MojoExecutionException, MojoFailureException {
+        composition = compositionReport ? new CompositionReport() : null;
+        // removed from by the staging threads
+        final Collection<String> stagedOutdatedResources = Collections.synchronizedCollection(outdatedResources);
+        final ByteBudget budget = new ByteBudget(Math.max(1, stagingBytesInFlight));
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(modules.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            final List<Future<?>> futures = new ArrayList<>(modules.size());
+            for (EarModule module : modules) {
+                futures.add(executor.submit(() -> {
+                    final long bytes = budget.acquire(module.getArtifact().getFile().length());
+                    try {
+                        copyModule(module, javaEEVersion, unpackTypesList, stagedOutdatedResources);
+                    } finally {
+                        budget.release(bytes);
                     }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while copying EAR modules", e);
+        } catch (ExecutionException e) {
+            throwStagingFailure(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void throwStagingFailure(Throwable cause) throws MojoExecutionException, MojoFailureException {
+        if (cause instanceof MojoExecutionException) {
+            throw (MojoExecutionException) cause;
+        }
+        if (cause instanceof MojoFailureException) {
+            throw (MojoFailureException) cause;
+        }
+        if (cause instanceof IOException) {
+            throw new MojoExecutionException("Error copying EAR modules", cause);
+        }
+        if (cause instanceof ArchiverException) {
+            throw new MojoExecutionException("Error unpacking EAR modules", cause);
+        }
+        if (cause instanceof NoSuchArchiverException) {
+            throw new MojoExecutionException("No Archiver found for EAR modules", cause);
+        }
+        throw new MojoExecutionException("Error copying EAR modules", cause);
+    }
+
+    private static boolean isUnpacked(EarModule module, List<String> unpackTypesList) {
+        // If the module is within the unpack list, make sure that no unpack wasn't forced (null or true)
+        // If the module is not in the unpack list, it should be true
+        return (unpackTypesList.contains(module.getType()) && (module.shouldUnpack() == null || module.shouldUnpack()))
+                || (module.shouldUnpack() != null && module.shouldUnpack());
+    }
+
+    private void copyModule(
+            EarModule module,
+            JavaEEVersion javaEEVersion,
+            List<String> unpackTypesList,
+            Collection<String> outdatedResources)
+            throws MojoExecutionException, MojoFailureException, IOException, ArchiverException,
+                    NoSuchArchiverException {
+        final EarBuildReport report = getBuildReport();
+        final long startTime = System.nanoTime();
+        final EarEvent stagingEvent = EarEvent.beginModuleStaging();
+        final boolean measure = isBuildReportEnabled() || stagingEvent.isEnabled();
+        final File sourceFile = module.getArtifact().getFile();
+        final File destinationFile = buildDestinationFile(getWorkDirectory(), module.getUri());
+        if (!sourceFile.isFile()) {
+            throw new MojoExecutionException("Cannot copy a directory: " + sourceFile.getAbsolutePath()
+                    + "; Did you package/install " + module.getArtifact() + "?");
+        }
+
+        if (destinationFile.getCanonicalPath().equals(sourceFile.getCanonicalPath())) {
+            getLog().info("Skipping artifact [" + module + "], as it already exists at [" + module.getUri() + "]");
+            // FIXME: Shouldn't that result in a build failure!?
+            recordModule(module, "skipped", 0, 0, startTime, stagingEvent);
+            return;
+        }
+
+        if (isUnpacked(module, unpackTypesList)) {
+            getLog().debug("Copying artifact [" + module + "] to [" + module.getUri() + "] (unpacked)");
+            // Make sure that the destination is a directory to avoid plexus nasty stuff :)
+            if (!destinationFile.isDirectory() && !destinationFile.mkdirs()) {
+                throw new MojoExecutionException("Error creating " + destinationFile);
+            }
+            final long unpackStartTime = System.nanoTime();
+            final EarEvent unpackEvent = EarEvent.beginUnpack();
+            final List<Path> extractedFiles = measure || unpackEvent.isEnabled() ? new ArrayList<>() : null;
+            unpack(sourceFile, destinationFile, outdatedResources, extractedFiles);
+            final long bytesRead = extractedFiles != null ? sourceFile.length() : 0;
+            final long bytesWritten = extractedFiles != null ? sizeOf(extractedFiles) : 0;
+            unpackEvent.commit(module.getArtifact().getId(), bytesRead, bytesWritten);
+            report.phase(EarBuildReport.UNPACK, unpackStartTime);
+
+            if (module.changeManifestClasspath()) {
+                changeManifestClasspath(module, destinationFile, javaEEVersion, outdatedResources);
+            }
+            recordModule(module, "unpacked", bytesRead, bytesWritten, startTime, stagingEvent);
+        } else {
+            // an empty destination was reserved for the archiver, no module being empty
+            if (sourceFile.lastModified() > destinationFile.lastModified() || destinationFile.length() == 0) {
+                getLog().debug("Copying artifact [" + module + "] to [" + module.getUri() + "]");
+                createParentIfNecessary(destinationFile);
+                if (module.changeManifestClasspath() && isManifestClasspathChanged(module)) {
+                    // Stream the module to the work directory with its manifest changed at once
+                    rewriteModuleArchive(module, sourceFile, destinationFile, javaEEVersion);
                 } else {
-                    if (sourceFile.lastModified() > destinationFile.lastModified()) {
-                        getLog().debug("Copying artifact [" + module + "] to [" + module.getUri() + "]");
-                        createParentIfNecessary(destinationFile);
-                        Files.copy(
-                                sourceFile.toPath(),
-                                destinationFile.toPath(),
-                                LinkOption.NOFOLLOW_LINKS,
-                                StandardCopyOption.REPLACE_EXISTING);
-                        if (module.changeManifestClasspath()) {
-                            changeManifestClasspath(module, destinationFile, javaEEVersion, outdatedResources);
-                        }
-                    } else {
-                        getLog().debug("Skipping artifact [" + module + "], as it is already up to date at ["
-                                + module.getUri() + "]");
-                    }
-                    removeFromOutdatedResources(destinationFile.toPath(), outdatedResources);
+                    Files.copy(
+                            sourceFile.toPath(),
+                            destinationFile.toPath(),
+                            LinkOption.NOFOLLOW_LINKS,
+                            StandardCopyOption.REPLACE_EXISTING);
                 }
+                recordModule(
+                        module,
+                        "copied",
+                        measure ? sourceFile.length() : 0,
+                        measure ? destinationFile.length() : 0,
+                        startTime,
+                        stagingEvent);
+            } else {
+                getLog().debug("Skipping artifact [" + module + "], as it is already up to date at ["
+                        + module.getUri() + "]");
+                report.count(EarBuildReport.UP_TO_DATE);
+                recordModule(module, EarBuildReport.UP_TO_DATE, 0, 0, startTime, stagingEvent);
+            }
+            removeFromOutdatedResources(destinationFile.toPath(), outdatedResources);
+        }
+    }
+
+    private void recordModule(
+            EarModule module, String action, long bytesRead, long bytesWritten, long startTime, EarEvent stagingEvent)
+            throws IOException {
+        final long stagingNanos = System.nanoTime() - startTime;
+        if (isBuildReportEnabled()) {
+            getBuildReport().module(module.getUri(), action, bytesRead, bytesWritten, startTime);
+        }
+        stagingEvent.commit(module.getArtifact().getId(), bytesRead, bytesWritten);
+        if (composition != null) {
+            final File sourceFile = module.getArtifact().getFile();
+            composition.module(
+                    module.getUri(),
+                    module.getType(),
+                    sourceFile.toPath(),
+                    "unpacked".equals(action),
+                    "skipped".equals(action) ? Collections.<String>emptyList() : getStrippedEntries(module, sourceFile),
+                    stagingNanos);
+        }
+    }
+
+    /**
+     * Returns the entries removed from a module when staging it, that is the libraries of a skinny module which are
+     * also modules of the EAR.
+     */
+    private Collection<String> getStrippedEntries(EarModule module, File sourceFile) throws IOException {
+        if (!module.changeManifestClasspath() || !isSkinny(module)) {
+            return Collections.emptyList();
+        }
+        try (ZipFile zipFile = new ZipFile(sourceFile)) {
+            return getSkinnyLibraries(module, path -> zipFile.getEntry(path) != null);
+        } catch (ZipException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private void writeCompositionReport() throws MojoExecutionException {
+        if (composition == null) {
+            return;
+        }
+        getLog().info("Composition of the EAR:");
+        for (String line : composition.table()) {
+            getLog().info("  " + line);
+        }
+        try {
+            Files.createDirectories(compositionReportFile.getAbsoluteFile().getParentFile().toPath());
+            try (Writer out = Files.newBufferedWriter(compositionReportFile.toPath(), StandardCharsets.UTF_8);
+                    JsonWriter writer = new JsonWriter(out)) {
+                composition.write(writer);
             }
         } catch (IOException e) {
-            throw new MojoExecutionException("Error copying EAR modules", e);
-        } catch (ArchiverException e) {
-            throw new MojoExecutionException("Error unpacking EAR modules", e);
-        } catch (NoSuchArchiverException e) {
-            throw new MojoExecutionException("No Archiver found for EAR modules", e);
+            throw new MojoExecutionException("Failed to write composition report " + compositionReportFile, e);
         }
+        getLog().debug("Composition report written to " + compositionReportFile);
     }
 
     private List<String> createUnpackList() throws MojoExecutionException {
@@ -583,17 +1332,11 @@ public class EarMojo extends AbstractEarMojo {
      * @param sourceDir the directory to be scanned
      * @return the array of filenames, relative to the sourceDir
      */
-    private String[] getEarFiles(File sourceDir) {
-        DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setBasedir(sourceDir);
-        scanner.setExcludes(getExcludes());
-        scanner.addDefaultExcludes();
-
-        scanner.setIncludes(getIncludes());
-
-        scanner.scan();
-
-        return scanner.getIncludedFiles();
+    private String[] getEarFiles(File sourceDir) throws IOException {
+        return pathScanner
+                .scan(sourceDir.toPath(), getIncludes(), getExcludes(), true)
+                .keySet()
+                .toArray(new String[0]);
     }
 
     /**
@@ -608,6 +1351,12 @@ public class EarMojo extends AbstractEarMojo {
      */
     public void unpack(File source, final File destDir, final Collection<String> outdatedResources)
             throws ArchiverException, NoSuchArchiverException, IOException {
+        unpack(source, destDir, outdatedResources, null);
+    }
+
+    private void unpack(
+            File source, final File destDir, final Collection<String> outdatedResources, List<Path> extractedFiles)
+            throws ArchiverException, NoSuchArchiverException, IOException {
         Path destPath = destDir.toPath();
 
         UnArchiver unArchiver = archiverManager.getUnArchiver("zip");
@@ -616,6 +1365,9 @@ public class EarMojo extends AbstractEarMojo {
         unArchiver.setFileMappers(new FileMapper[] {
             pName -> {
                 removeFromOutdatedResources(destPath.resolve(pName), outdatedResources);
+                if (extractedFiles != null) {
+                    extractedFiles.add(destPath.resolve(pName));
+                }
                 return pName;
             }
         });
@@ -624,17 +1376,93 @@ public class EarMojo extends AbstractEarMojo {
         unArchiver.extract();
     }
 
+    private static long sizeOf(List<Path> files) throws IOException {
+        long size = 0;
+        for (Path file : files) {
+            if (Files.isRegularFile(file)) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
     private void copyFile(File source, File target)
             throws MavenFilteringException, IOException, MojoExecutionException {
         createParentIfNecessary(target);
         if (filtering && !isNonFilteredExtension(source.getName())) {
-            mavenFileFilter.copyFile(source, target, true, getFilterWrappers(), encoding);
+            mavenFileFilter.copyFile(
+                    source, target, true, getFilterWrappers(), encoding, ChangeDetection.CONTENT);
         } else {
             Files.copy(
                     source.toPath(), target.toPath(), LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
+    /**
+     * Copies the EAR sources to the work directory on a thread pool, skipping the files whose source content and filter
+     * values did not change since they were copied by a previous build.
+     */
+    private void copyEarSources(File earSourceDir, String[] fileNames)
+            throws MavenFilteringException, IOException, MojoExecutionException {
+        // computed once, on the calling thread
+        final List<FilterWrapper> wrappers = filtering ? getFilterWrappers() : null;
+        final String filterFingerprint = filtering
+                ? getFingerprints().computeFilterFingerprint(escapeString, escapedBackslashesInFilePath, encoding)
+                : "";
+        final IncrementalCopy incrementalCopy =
+                new IncrementalCopy(new File(getWorkDirectory().getPath() + ".sources").toPath(), filterFingerprint);
+        final AtomicInteger copiedFiles = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(fileNames.length, Runtime.getRuntime().availableProcessors())));
+        try {
+            final List<Future<?>> futures = new ArrayList<>(fileNames.length);
+            for (String fileName : fileNames) {
+                final File source = new File(earSourceDir, fileName);
+                final File target = new File(getWorkDirectory(), fileName);
+                final boolean filtered = filtering && !isNonFilteredExtension(source.getName());
+                futures.add(executor.submit(() -> {
+                    final String sourceDigest = IncrementalCopy.digest(source.toPath());
+                    if ((incrementalFiltering || !filtered)
+                            && incrementalCopy.isUpToDate(fileName, sourceDigest, filtered, target.toPath())) {
+                        return null;
+                    }
+                    createParentIfNecessary(target);
+                    if (filtered) {
+                        mavenFileFilter.copyFile(source, target, true, wrappers, encoding, ChangeDetection.CONTENT);
+                    } else {
+                        IncrementalCopy.transfer(source.toPath(), target.toPath());
+                    }
+                    incrementalCopy.record(fileName, sourceDigest, filtered, target.toPath());
+                    copiedFiles.incrementAndGet();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while copying the EAR sources", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MavenFilteringException) {
+                throw (MavenFilteringException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new MojoExecutionException("Error copying EAR sources", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        incrementalCopy.store();
+        getLog().debug("Copied " + copiedFiles + " of " + fileNames.length + " EAR source files");
+    }
+
+    private EarFingerprints getFingerprints() {
+        return new EarFingerprints(getProject(), session, filters);
+    }
+
     private void createParentIfNecessary(File target) throws IOException {
         // Silly that we have to do this ourselves
         File parentDirectory = target.getParentFile();
@@ -669,33 +1497,31 @@ public class EarMojo extends AbstractEarMojo {
         return filterWrappers;
     }
 
+    private boolean isManifestClasspathChanged(EarModule module) {
+        return module.getLibDir() == null || skinnyModules || (skinnyWars && module instanceof WebModule);
+    }
+
+    private boolean isSkinny(EarModule module) {
+        return module.getLibDir() != null && (skinnyModules || (skinnyWars && module instanceof WebModule));
+    }
+
     private void changeManifestClasspath(
             EarModule module, File original, JavaEEVersion javaEEVersion, Collection<String> outdatedResources)
             throws MojoFailureException {
-        final String moduleLibDir = module.getLibDir();
-        if (!((moduleLibDir == null) || skinnyModules || (skinnyWars && module instanceof WebModule))) {
+        if (!isManifestClasspathChanged(module)) {
             return;
         }
 
-        // for new created items
-        FileTime outputFileTime = MavenArchiver.parseBuildOutputTimestamp(outputTimestamp)
-                .map(FileTime::from)
-                .orElse(null);
+        final long startTime = System.nanoTime();
+        final EarEvent manifestEvent = EarEvent.beginManifestRewrite();
+        long manifestBytesRead = 0;
+        long manifestBytesWritten = 0;
 
-        FileSystem fileSystem = null;
+        // for new created items
+        FileTime outputFileTime = getOutputFileTime();
 
         try {
-            Path workDirectory;
-
-            // Handle the case that the destination might be a directory (project-038)
-            // We can get FileSystems only for files
-            if (original.isFile()) {
-                fileSystem = FileSystems.newFileSystem(
-                        original.toPath(), Thread.currentThread().getContextClassLoader());
-                workDirectory = fileSystem.getRootDirectories().iterator().next();
-            } else {
-                workDirectory = original.toPath();
-            }
+            Path workDirectory = original.toPath();
 
             // Create a META-INF/MANIFEST.MF file if it doesn't exist (project-038)
             Path metaInfDirectory = workDirectory.resolve("META-INF");
@@ -718,103 +1544,26 @@ public class EarMojo extends AbstractEarMojo {
             }
 
             Manifest mf = readManifest(manifestFile);
-            Attribute classPath = mf.getMainSection().getAttribute("Class-Path");
-            List<String> classPathElements = new ArrayList<>();
-
-            boolean classPathExists;
-            if (classPath != null) {
-                classPathExists = true;
-                classPathElements.addAll(Arrays.asList(classPath.getValue().split(" ")));
-            } else {
-                classPathExists = false;
-                classPath = new Attribute("Class-Path", "");
+            if (manifestEvent.isEnabled()) {
+                manifestBytesRead = Files.size(manifestFile);
             }
 
-            if ((moduleLibDir != null) && (skinnyModules || (skinnyWars && module instanceof WebModule))) {
+            if (isSkinny(module)) {
                 // Remove modules
-                for (EarModule otherModule : getAllEarModules()) {
-                    if (module.equals(otherModule)) {
-                        continue;
-                    }
-                    // MEAR-189:
-                    // We use the original name, cause in case of outputFileNameMapping
-                    // we could not not delete it and it will end up in the resulting EAR and the WAR
-                    // will not be cleaned up.
-                    final Path workLibDir = workDirectory.resolve(moduleLibDir);
-                    Path artifact =
-                            workLibDir.resolve(module.getArtifact().getFile().getName());
-
-                    // MEAR-217
-                    // If WAR contains files with timestamps, but EAR strips them away (useBaseVersion=true)
-                    // the artifact is not found. Therefore, respect the current fileNameMapping additionally.
-
-                    if (!Files.exists(artifact)) {
-                        getLog().debug("module does not exist with original file name.");
-                        artifact = workLibDir.resolve(otherModule.getBundleFileName());
-                        getLog().debug("Artifact with mapping: " + artifact.toAbsolutePath());
-                    }
-
-                    if (!Files.exists(artifact)) {
-                        getLog().debug("Artifact with mapping does not exist.");
-                        artifact = workLibDir.resolve(
-                                otherModule.getArtifact().getFile().getName());
-                        getLog().debug("Artifact with original file name: " + artifact.toAbsolutePath());
-                    }
-
-                    if (!Files.exists(artifact)) {
-                        getLog().debug("Artifact with original file name does not exist.");
-                        final Artifact otherModuleArtifact = otherModule.getArtifact();
-                        if (otherModuleArtifact.isSnapshot()) {
-                            try {
-                                artifact = workLibDir.resolve(MappingUtils.evaluateFileNameMapping(
-                                        ARTIFACT_DEFAULT_FILE_NAME_MAPPING, otherModuleArtifact));
-                                getLog().debug("Artifact with default mapping file name: " + artifact.toAbsolutePath());
-                            } catch (InterpolationException e) {
-                                getLog().warn("Failed to evaluate file name for [" + otherModule
-                                        + "] module using mapping: " + ARTIFACT_DEFAULT_FILE_NAME_MAPPING);
-                            }
-                        }
-                    }
-
-                    if (Files.exists(artifact)) {
-                        getLog().debug(" -> Artifact to delete: " + artifact);
-                        Files.delete(artifact);
+                final EarEvent stripEvent = EarEvent.beginSkinnyWarStrip();
+                long strippedBytes = 0;
+                for (String library : getSkinnyLibraries(module, path -> Files.exists(workDirectory.resolve(path)))) {
+                    final Path artifact = workDirectory.resolve(library);
+                    getLog().debug(" -> Artifact to delete: " + artifact);
+                    if (stripEvent.isEnabled()) {
+                        strippedBytes += Files.size(artifact);
                     }
+                    Files.delete(artifact);
                 }
+                stripEvent.commit(module.getArtifact().getId(), strippedBytes, 0);
             }
 
-            // Modify the classpath entries in the manifest
-            final boolean forceClassPathModification =
-                    javaEEVersion.lt(JavaEEVersion.FIVE) || defaultLibBundleDir == null;
-            final boolean classPathExtension = !skipClassPathModification || forceClassPathModification;
-            for (EarModule otherModule : getModules()) {
-                if (module.equals(otherModule)) {
-                    continue;
-                }
-                final int moduleClassPathIndex = findModuleInClassPathElements(classPathElements, otherModule);
-                if (moduleClassPathIndex != -1) {
-                    if (otherModule.isClassPathItem()) {
-                        classPathElements.set(moduleClassPathIndex, otherModule.getUri());
-                    } else {
-                        classPathElements.remove(moduleClassPathIndex);
-                    }
-                } else if (otherModule.isClassPathItem() && classPathExtension) {
-                    classPathElements.add(otherModule.getUri());
-                }
-            }
-
-            // Remove provided modules from classpath
-            for (EarModule otherModule : getProvidedEarModules()) {
-                final int moduleClassPathIndex = findModuleInClassPathElements(classPathElements, otherModule);
-                if (moduleClassPathIndex != -1) {
-                    classPathElements.remove(moduleClassPathIndex);
-                }
-            }
-
-            if (!skipClassPathModification || !classPathElements.isEmpty() || classPathExists) {
-                classPath.setValue(StringUtils.join(classPathElements.iterator(), " "));
-                mf.getMainSection().addConfiguredAttribute(classPath);
-
+            if (updateManifestClasspath(module, mf, javaEEVersion)) {
                 // Write the manifest to disk, preserve timestamp
                 FileTime lastModifiedTime = Files.getLastModifiedTime(manifestFile);
                 try (BufferedWriter writer = Files.newBufferedWriter(
@@ -827,25 +1576,317 @@ public class EarMojo extends AbstractEarMojo {
                 }
                 Files.setLastModifiedTime(manifestFile, lastModifiedTime);
                 removeFromOutdatedResources(manifestFile, outdatedResources);
+                if (manifestEvent.isEnabled()) {
+                    manifestBytesWritten = Files.size(manifestFile);
+                }
             }
 
-            if (fileSystem != null) {
-                fileSystem.close();
-                fileSystem = null;
-            }
+            manifestEvent.commit(module.getArtifact().getId(), manifestBytesRead, manifestBytesWritten);
         } catch (ManifestException | IOException | ArchiverException e) {
             throw new MojoFailureException(e.getMessage(), e);
         } finally {
-            if (fileSystem != null) {
+            getBuildReport().phase(EarBuildReport.MANIFEST_REWRITE, startTime);
+        }
+    }
+
+    /**
+     * Copies a packed module to the work directory, changing its manifest Class-Path and removing the libraries of a
+     * skinny module on the fly. The module is streamed in a single pass without being extracted nor buffered, so that
+     * the memory used does not depend on its size.
+     */
+    void rewriteModuleArchive(
+            EarModule module, File source, File destination, JavaEEVersion javaEEVersion)
+            throws MojoFailureException {
+        final long startTime = System.nanoTime();
+        final EarEvent manifestEvent = EarEvent.beginManifestRewrite();
+        long manifestBytesRead = 0;
+        long manifestBytesWritten = 0;
+
+        try (ModuleArchiveRewriter rewriter = new ModuleArchiveRewriter(source.toPath())) {
+            rewriter.setAddedEntriesTime(getOutputFileTime());
+
+            // Create a META-INF/MANIFEST.MF file if it doesn't exist (project-038)
+            final Manifest mf;
+            if (rewriter.hasEntry(JarFile.MANIFEST_NAME)) {
+                try (InputStream in = rewriter.getInputStream(JarFile.MANIFEST_NAME)) {
+                    mf = new Manifest(in);
+                }
+                manifestBytesRead = rewriter.getSize(JarFile.MANIFEST_NAME);
+            } else {
+                getLog().debug(
+                                "This project did not have a META-INF/MANIFEST.MF file before, so a new file was created.");
+                mf = new Manifest(new ByteArrayInputStream(new byte[0]));
+                rewriter.replaceEntry(JarFile.MANIFEST_NAME, new byte[0]);
+            }
+
+            if (isSkinny(module)) {
+                // Remove modules
+                final EarEvent stripEvent = EarEvent.beginSkinnyWarStrip();
+                long strippedBytes = 0;
+                for (String library : getSkinnyLibraries(module, rewriter::hasEntry)) {
+                    getLog().debug(" -> Artifact to delete: " + library);
+                    strippedBytes += rewriter.getSize(library);
+                    rewriter.removeEntry(library);
+                }
+                stripEvent.commit(module.getArtifact().getId(), strippedBytes, 0);
+            }
+
+            if (updateManifestClasspath(module, mf, javaEEVersion)) {
+                final StringWriter writer = new StringWriter();
+                mf.write(writer);
+                final byte[] content = writer.toString().getBytes(StandardCharsets.UTF_8);
+                rewriter.replaceEntry(JarFile.MANIFEST_NAME, content);
+                manifestBytesWritten = content.length;
+            }
+
+            String storeKey = null;
+            if (moduleStore != null) {
+                final InputFingerprint fingerprint = new InputFingerprint().addFileContent("module", source);
+                rewriter.addChanges(fingerprint);
+                storeKey = fingerprint.getValue();
+                if (getModuleStore().fetch(storeKey, destination.toPath())) {
+                    getLog().debug("Fetched [" + module + "] from module store " + moduleStore);
+                    getBuildReport().count(EarBuildReport.MODULE_STORE_HIT);
+                    return;
+                }
+            }
+
+            rewriter.writeTo(destination.toPath(), zipBufferSize);
+            manifestEvent.commit(module.getArtifact().getId(), manifestBytesRead, manifestBytesWritten);
+
+            if (storeKey != null) {
                 try {
-                    fileSystem.close();
+                    getModuleStore().put(storeKey, destination.toPath());
                 } catch (IOException e) {
-                    // ignore here
+                    getLog().warn("Cannot store [" + module + "] in module store " + moduleStore + ": "
+                            + e.getMessage());
                 }
             }
+        } catch (ManifestException | IOException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        } finally {
+            getBuildReport().phase(EarBuildReport.MANIFEST_REWRITE, startTime);
+        }
+    }
+
+    private synchronized ModuleStore getModuleStore() {
+        if (moduleStoreInstance == null) {
+            moduleStoreInstance = new ModuleStore(moduleStore.toPath(), moduleStoreMaxSize, !isExploded());
+        }
+        return moduleStoreInstance;
+    }
+
+    /**
+     * Returns the libraries bundled in a skinny module which are also modules of the EAR.
+     *
+     * @param module the skinny module
+     * @param exists tells whether a path relative to the root of the module exists
+     * @return the paths of the libraries to remove, relative to the root of the module
+     */
+    private List<String> getSkinnyLibraries(EarModule module, Predicate<String> exists) {
+        final List<String> libraries = new ArrayList<>();
+        final String libPath = Objects.toString(AbstractEarModule.cleanArchivePath(module.getLibDir()), "");
+        for (EarModule otherModule : getAllEarModules()) {
+            // an excluded unused library is in neither the EAR nor the module otherwise
+            if (module.equals(otherModule) || excludedLibraries.contains(otherModule)) {
+                continue;
+            }
+            // MEAR-189:
+            // We use the original name, cause in case of outputFileNameMapping
+            // we could not not delete it and it will end up in the resulting EAR and the WAR
+            // will not be cleaned up.
+            String artifact = libPath + module.getArtifact().getFile().getName();
+
+            // MEAR-217
+            // If WAR contains files with timestamps, but EAR strips them away (useBaseVersion=true)
+            // the artifact is not found. Therefore, respect the current fileNameMapping additionally.
+
+            if (!exists.test(artifact)) {
+                getLog().debug("module does not exist with original file name.");
+                artifact = libPath + otherModule.getBundleFileName();
+                getLog().debug("Artifact with mapping: " + artifact);
+            }
+
+            if (!exists.test(artifact)) {
+                getLog().debug("Artifact with mapping does not exist.");
+                artifact = libPath + otherModule.getArtifact().getFile().getName();
+                getLog().debug("Artifact with original file name: " + artifact);
+            }
+
+            if (!exists.test(artifact)) {
+                getLog().debug("Artifact with original file name does not exist.");
+                final Artifact otherModuleArtifact = otherModule.getArtifact();
+                if (otherModuleArtifact.isSnapshot()) {
+                    try {
+                        artifact = libPath
+                                + MappingUtils.evaluateFileNameMapping(
+                                        ARTIFACT_DEFAULT_FILE_NAME_MAPPING, otherModuleArtifact);
+                        getLog().debug("Artifact with default mapping file name: " + artifact);
+                    } catch (InterpolationException e) {
+                        getLog().warn("Failed to evaluate file name for [" + otherModule
+                                + "] module using mapping: " + ARTIFACT_DEFAULT_FILE_NAME_MAPPING);
+                    }
+                }
+            }
+
+            if (exists.test(artifact) && !libraries.contains(artifact)) {
+                libraries.add(artifact);
+            }
+        }
+        return libraries;
+    }
+
+    /**
+     * Modifies the Class-Path entries of a module manifest.
+     *
+     * @return {@code true} if the manifest has to be written
+     */
+    private boolean updateManifestClasspath(EarModule module, Manifest mf, JavaEEVersion javaEEVersion)
+            throws ManifestException {
+        Attribute classPath = mf.getMainSection().getAttribute("Class-Path");
+        List<String> classPathElements = new ArrayList<>();
+
+        boolean classPathExists;
+        if (classPath != null) {
+            classPathExists = true;
+            classPathElements.addAll(Arrays.asList(classPath.getValue().split(" ")));
+        } else {
+            classPathExists = false;
+            classPath = new Attribute("Class-Path", "");
+        }
+
+        // Modify the classpath entries in the manifest
+        final boolean forceClassPathModification = javaEEVersion.lt(JavaEEVersion.FIVE) || defaultLibBundleDir == null;
+        final boolean classPathExtension = !skipClassPathModification || forceClassPathModification;
+        for (EarModule otherModule : getModules()) {
+            if (module.equals(otherModule)) {
+                continue;
+            }
+            final int moduleClassPathIndex = findModuleInClassPathElements(classPathElements, otherModule);
+            if (moduleClassPathIndex != -1) {
+                if (otherModule.isClassPathItem()) {
+                    classPathElements.set(moduleClassPathIndex, otherModule.getUri());
+                } else {
+                    classPathElements.remove(moduleClassPathIndex);
+                }
+            } else if (otherModule.isClassPathItem() && classPathExtension && isDependencyOf(otherModule, module)) {
+                classPathElements.add(otherModule.getUri());
+            }
+        }
+
+        // Remove provided modules from classpath
+        for (EarModule otherModule : getProvidedEarModules()) {
+            final int moduleClassPathIndex = findModuleInClassPathElements(classPathElements, otherModule);
+            if (moduleClassPathIndex != -1) {
+                classPathElements.remove(moduleClassPathIndex);
+            }
+        }
+
+        if (!skipClassPathModification || !classPathElements.isEmpty() || classPathExists) {
+            classPath.setValue(StringUtils.join(classPathElements.iterator(), " "));
+            mf.getMainSection().addConfiguredAttribute(classPath);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collects the dependencies of the modules whose Class-Path may be changed, before they are staged in parallel.
+     */
+    private void collectModuleDependencies() {
+        if (!classPathFromDependencies) {
+            return;
+        }
+        if (moduleDependencies == null) {
+            moduleDependencies = new ModuleDependencies(repositorySystem, getLog());
+        }
+        final List<EarModule> modules = new ArrayList<>(getModules());
+        modules.removeIf(module -> !module.changeManifestClasspath());
+        moduleDependencies.collect(
+                modules, session.getRepositorySession(), getProject().getRemoteProjectRepositories());
+    }
+
+    /**
+     * Tells whether a library has to be added to the Class-Path of a module.
+     */
+    private boolean isDependencyOf(EarModule library, EarModule module) {
+        return !classPathFromDependencies || moduleDependencies.isDependencyOf(library, module);
+    }
+
+    /**
+     * Analyzes the class references of the module artifacts, then warns about the unused libraries or removes them
+     * from the modules to stage.
+     */
+    private void handleUnusedLibraries() throws MojoExecutionException {
+        final UnusedLibraries analysis = new UnusedLibraries(unusedLibraries, usedLibraries);
+        final File cacheDirectory = new File(getProject().getBuild().getDirectory(), "ear-library-analysis");
+        for (EarModule module : analysis.find(getModules(), cacheDirectory, getLog())) {
+            getBuildReport().count(EarBuildReport.UNUSED_LIBRARY);
+            if (analysis.isExclude()) {
+                getLog().info("Excluding unused library [" + module + "]");
+                getModules().remove(module);
+                excludedLibraries.add(module);
+            } else {
+                getLog().warn("Library [" + module + "] is not used by any module");
+            }
         }
     }
 
+    private FileTime getOutputFileTime() {
+        return MavenArchiver.parseBuildOutputTimestamp(outputTimestamp)
+                .map(FileTime::from)
+                .orElse(null);
+    }
+
+    private void generateLibraryIndex() throws MojoExecutionException {
+        if (defaultLibBundleDir == null) {
+            getLog().warn("No defaultLibBundleDir configured, skipping generation of " + JarIndex.INDEX_NAME);
+            return;
+        }
+        final String libDirectory = Objects.toString(AbstractEarModule.cleanArchivePath(defaultLibBundleDir), "");
+        try {
+            final JarIndex index = JarIndex.scan(
+                    getWorkDirectory().toPath(), libDirectory, Runtime.getRuntime().availableProcessors());
+            if (index.isEmpty()) {
+                getLog().debug("No library found in [" + libDirectory + "], skipping " + JarIndex.INDEX_NAME);
+                return;
+            }
+            getLog().debug(
+                    "Writing " + JarIndex.INDEX_NAME + " for " + index.getPackagesByJar().size() + " libraries");
+            index.write(getWorkDirectory().toPath().resolve(JarIndex.INDEX_NAME));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error generating " + JarIndex.INDEX_NAME, e);
+        }
+    }
+
+    /**
+     * Indexes the files staged to the work directory, as they will be archived, and embeds or attaches the index.
+     */
+    private void generateEarIndex(EarIndexGenerator generator) throws MojoExecutionException {
+        final Path workDirectory = getWorkDirectory().toPath();
+        final Map<String, BasicFileAttributes> files;
+        try {
+            files = pathScanner.scan(workDirectory, getPackagingIncludes(), getPackagingExcludes(), true);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error scanning " + workDirectory, e);
+        }
+        if (generator.generate(getWorkDirectory(), files, getModules(), getEarIndexFile(), getLog())) {
+            pathScanner.forget(workDirectory);
+        }
+        if (generator.isAttached()) {
+            attachEarIndex();
+        }
+    }
+
+    private File getEarIndexFile() {
+        return new File(outputDirectory, finalName + (classifier != null ? "-" + classifier : "") + "-ear-index.json");
+    }
+
+    private void attachEarIndex() {
+        projectHelper.attachArtifact(
+                getProject(), "json", classifier != null ? classifier + "-ear-index" : "ear-index", getEarIndexFile());
+    }
+
     private static Manifest readManifest(Path manifestFile) throws IOException {
         // Read the manifest from disk
         try (InputStream in = Files.newInputStream(manifestFile)) {
@@ -853,35 +1894,50 @@ public class EarMojo extends AbstractEarMojo {
         }
     }
 
-    private Collection<String> initOutdatedResources() {
-        final Collection<String> outdatedResources = new ArrayList<>();
+    Collection<String> initOutdatedResources() {
+        // a set, since every staged file is removed from it
+        final Collection<String> outdatedResources = new LinkedHashSet<>();
 
-        if (getWorkDirectory().exists()) {
-            try {
-                Files.walkFileTree(getWorkDirectory().toPath(), new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        outdatedResources.add(
-                                getWorkDirectory().toPath().relativize(file).toString());
-                        return super.visitFile(file, attrs);
-                    }
-                });
-            } catch (IOException e) {
-                getLog().warn("Can't detect outdated resources", e);
-            }
+        try {
+            outdatedResources.addAll(pathScanner.list(getWorkDirectory().toPath()).keySet());
+        } catch (IOException e) {
+            getLog().warn("Can't detect outdated resources", e);
         }
 
         getLog().debug("initOutdatedResources: " + outdatedResources);
         return outdatedResources;
     }
 
+    /**
+     * Returns the time the current build started, in milliseconds: the resources of the work directory modified since
+     * then are written by this build and kept even if no module or source maps to them.
+     *
+     * @return the start time of the session
+     */
+    protected long getBuildStartTime() {
+        return session.getStartTime().getTime();
+    }
+
     private void deleteOutdatedResources(final Collection<String> outdatedResources) {
         getLog().debug("deleteOutdatedResources: " + outdatedResources);
-        final long startTime = session.getStartTime().getTime();
+        final long startTime = getBuildStartTime();
 
-        getLog().debug("deleteOutdatedResources session startTime: " + startTime);
+        getLog().debug("deleteOutdatedResources build startTime: " + startTime);
 
+        final Map<String, BasicFileAttributes> workFiles;
+        try {
+            // listed by initOutdatedResources, before the staging
+            workFiles = pathScanner.list(getWorkDirectory().toPath());
+        } catch (IOException e) {
+            getLog().warn("Can't delete outdated resources", e);
+            return;
+        }
         for (String outdatedResource : outdatedResources) {
+            final BasicFileAttributes attrs = workFiles.get(outdatedResource);
+            if (attrs != null && attrs.lastModifiedTime().toMillis() >= startTime) {
+                continue;
+            }
+            // it may have been rewritten since it was listed
             File resourceFile = new File(getWorkDirectory(), outdatedResource);
             if (resourceFile.lastModified() < startTime) {
                 getLog().debug("deleting outdated resource " + outdatedResource);
@@ -889,9 +1945,10 @@ public class EarMojo extends AbstractEarMojo {
                 resourceFile.delete();
             }
         }
+        pathScanner.forget(getWorkDirectory().toPath());
     }
 
-    private void removeFromOutdatedResources(Path destination, Collection<String> outdatedResources) {
+    void removeFromOutdatedResources(Path destination, Collection<String> outdatedResources) {
         Path relativeDestFile;
         try {
             relativeDestFile = getWorkDirectory().toPath().relativize(destination.normalize());
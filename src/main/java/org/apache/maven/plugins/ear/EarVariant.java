@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+
+/**
+ * A variant of the EAR, built from the same staged work directory as the main EAR and attached with its own
+ * classifier. A variant may package a different set of files, use its own {@code application.xml} and overlay some
+ * files of the work directory, typically the deployment descriptors of a target environment.
+ *
+ * @since 3.5.0
+ */
+public class EarVariant {
+    private String classifier;
+
+    private String packagingIncludes;
+
+    private String packagingExcludes;
+
+    private File applicationXml;
+
+    private File overlayDirectory;
+
+    /**
+     * @return the classifier of the variant, which is required
+     */
+    public String getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * @return the comma separated list of tokens to include when packaging the variant, or {@code null} to use the
+     *         ones of the EAR
+     */
+    public String getPackagingIncludes() {
+        return packagingIncludes;
+    }
+
+    /**
+     * @return the comma separated list of tokens to exclude when packaging the variant, or {@code null} to use the
+     *         ones of the EAR
+     */
+    public String getPackagingExcludes() {
+        return packagingExcludes;
+    }
+
+    /**
+     * @return the {@code application.xml} of the variant, or {@code null} to use the one of the EAR
+     */
+    public File getApplicationXml() {
+        return applicationXml;
+    }
+
+    /**
+     * @return the directory whose files replace or are added to the ones of the work directory, or {@code null}; the
+     *         build fails if it is configured but does not exist
+     */
+    public File getOverlayDirectory() {
+        return overlayDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "variant " + classifier;
+    }
+}
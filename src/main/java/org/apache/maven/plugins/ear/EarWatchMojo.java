@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.plugins.ear.util.FileWatcher;
+import org.apache.maven.project.MavenProjectHelper;
+import org.apache.maven.shared.filtering.MavenFileFilter;
+import org.apache.maven.shared.filtering.MavenResourcesFiltering;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.eclipse.aether.RepositorySystem;
+
+/**
+ * Builds an exploded J2EE Enterprise Archive (EAR) as the {@code exploded} goal does, then keeps running and updates it
+ * whenever its inputs change, until the build is interrupted.
+ * <p>
+ * The module artifacts, the EAR sources, the custom deployment descriptor, the filters and the manifest file are
+ * watched. On a change, the exploded EAR is staged again in the same mojo, so that only the changed modules and
+ * sources are copied and the resolved dependencies of the modules are reused. Rebuilding a module in another build,
+ * such as {@code mvn package -pl my-ejb}, is then enough to refresh the EAR and its deployment directory.
+ *
+ * @since 3.5.0
+ */
+@Mojo(name = "watch", threadSafe = true, requiresDependencyResolution = ResolutionScope.TEST)
+public class EarWatchMojo extends EarExplodedMojo {
+
+    /**
+     * The time without any change to wait for before updating the exploded EAR, in milliseconds, so that several
+     * changes made at once, such as a module being rewritten, trigger a single update.
+     *
+     * @since 3.5.0
+     */
+    @Parameter(property = "ear.watchQuietPeriod", defaultValue = "200")
+    private long watchQuietPeriod;
+
+    /**
+     * The start time of the current update, 0 before the first one.
+     */
+    private long updateStartTime;
+
+    @Inject
+    public EarWatchMojo(
+            MavenProjectHelper projectHelper,
+            ArchiverManager archiverManager,
+            MavenFileFilter mavenFileFilter,
+            MavenResourcesFiltering mavenResourcesFiltering,
+            RepositorySystem repositorySystem) {
+        super(projectHelper, archiverManager, mavenFileFilter, mavenResourcesFiltering, repositorySystem);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        super.execute();
+
+        final List<Path> inputFiles = new ArrayList<>();
+        for (File inputFile : getInputFiles()) {
+            inputFiles.add(inputFile.toPath());
+        }
+        final List<Path> trees = getEarSourceDirectory().isDirectory()
+                ? Collections.singletonList(getEarSourceDirectory().toPath())
+                : Collections.<Path>emptyList();
+
+        try (FileWatcher watcher = new FileWatcher(inputFiles, trees)) {
+            getLog().info("Watching " + inputFiles.size() + " file(s) in " + watcher.getWatchedDirectories()
+                    + " director(y/ies) for changes, press Ctrl+C to stop");
+            while (true) {
+                final Set<Path> changes = watcher.awaitChanges(watchQuietPeriod, 0);
+                getLog().info("Detected " + changes.size() + " change(s), updating " + getWorkDirectory());
+                for (Path change : changes) {
+                    getLog().debug("Changed: " + change);
+                }
+                update();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to watch the inputs of the EAR", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLog().info("Stopped watching the inputs of the EAR");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An update starts a new build: the resources left by the previous ones are outdated unless staged again.
+     */
+    @Override
+    protected long getBuildStartTime() {
+        return updateStartTime > 0 ? updateStartTime : super.getBuildStartTime();
+    }
+
+    /**
+     * Stages the changes, logging a failure instead of stopping, since the inputs may be fixed by a later change.
+     */
+    private void update() {
+        final long startTime = System.nanoTime();
+        updateStartTime = System.currentTimeMillis();
+        forgetScannedDirectories();
+        resetBuildReport();
+        try {
+            super.execute();
+            getLog().info("Updated " + getWorkDirectory() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+        } catch (MojoExecutionException | MojoFailureException e) {
+            getLog().error("Failed to update " + getWorkDirectory() + ": " + e.getMessage(), e);
+        }
+    }
+}
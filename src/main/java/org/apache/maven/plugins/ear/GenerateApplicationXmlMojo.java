@@ -30,6 +30,8 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.plugins.ear.util.EarBuildReport;
+import org.apache.maven.plugins.ear.util.EarEvent;
 import org.apache.maven.plugins.ear.util.JavaEEVersion;
 import org.codehaus.plexus.configuration.PlexusConfiguration;
 import org.codehaus.plexus.interpolation.InterpolationException;
@@ -162,6 +164,8 @@ public class GenerateApplicationXmlMojo extends AbstractEarMojo {
         // Initializes ear modules
         super.execute();
 
+        final long startTime = System.nanoTime();
+
         // Handle application.xml
         if (!generateApplicationXml) {
             getLog().debug("Generation of application.xml is disabled");
@@ -205,6 +209,9 @@ public class GenerateApplicationXmlMojo extends AbstractEarMojo {
                 throw new MojoExecutionException("Unable to copy jboss-app.xml to final destination", e);
             }
         }
+        getBuildReport().phase(EarBuildReport.DEPLOYMENT_DESCRIPTORS, startTime);
+
+        writeBuildReport();
     }
 
     /**
@@ -214,6 +221,7 @@ public class GenerateApplicationXmlMojo extends AbstractEarMojo {
      * @throws EarPluginException if the configuration is invalid
      */
     protected void generateStandardDeploymentDescriptor(JavaEEVersion javaEEVersion) throws EarPluginException {
+        final EarEvent event = EarEvent.beginDescriptorWrite();
         File outputDir = new File(generatedDescriptorLocation);
         if (!outputDir.exists()) {
             if (!outputDir.mkdirs()) {
@@ -238,6 +246,7 @@ public class GenerateApplicationXmlMojo extends AbstractEarMojo {
                         initializeInOrder)
                 .setApplicationId(applicationId);
         writer.write(context);
+        event.commit(APPLICATION_XML_URI, 0, event.isEnabled() ? descriptor.length() : 0);
     }
 
     /**
@@ -246,6 +255,7 @@ public class GenerateApplicationXmlMojo extends AbstractEarMojo {
      * @throws EarPluginException if the configuration is invalid
      */
     protected void generateJbossDeploymentDescriptor() throws EarPluginException {
+        final EarEvent event = EarEvent.beginDescriptorWrite();
         File outputDir = new File(generatedDescriptorLocation);
         if (!outputDir.exists()) {
             if (!outputDir.mkdirs()) {
@@ -257,6 +267,7 @@ public class GenerateApplicationXmlMojo extends AbstractEarMojo {
 
         JbossAppXmlWriter writer = new JbossAppXmlWriter(encoding);
         writer.write(descriptor, getJbossConfiguration(), getModules());
+        event.commit(META_INF + "/jboss-app.xml", 0, event.isEnabled() ? descriptor.length() : 0);
     }
 
     /**
@@ -98,6 +98,13 @@ public class JarModule extends AbstractEarModule {
         }
     }
 
+    /**
+     * @return {@code true} if the module is listed in the generated application.xml
+     */
+    boolean isIncludeInApplicationXml() {
+        return Boolean.TRUE.equals(includeInApplicationXml);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Collects the transitive runtime dependencies of the modules from their POM, once per module, so that the Class-Path
+ * of a module only lists the libraries it actually needs. The dependencies are kept across executions.
+ * <p>
+ * The dependencies are collected by {@link #collect(Collection, RepositorySystemSession, List)} before the modules are
+ * staged, so that the staging threads look them up without any lock.
+ */
+final class ModuleDependencies {
+    private final RepositorySystem repositorySystem;
+
+    private final Log log;
+
+    /**
+     * The versionless keys of the transitive runtime dependencies of each module, {@code null} if unknown.
+     */
+    private final Map<EarModule, Set<String>> dependencies = new HashMap<>();
+
+    /**
+     * @param repositorySystem the repository system collecting the dependencies
+     * @param log the log
+     */
+    ModuleDependencies(RepositorySystem repositorySystem, Log log) {
+        this.repositorySystem = repositorySystem;
+        this.log = log;
+    }
+
+    /**
+     * Collects the dependencies of the modules which were not collected by a previous execution.
+     *
+     * @param modules the modules
+     * @param session the repository session
+     * @param repositories the repositories of the project
+     */
+    void collect(Collection<EarModule> modules, RepositorySystemSession session, List<RemoteRepository> repositories) {
+        for (EarModule module : modules) {
+            if (!dependencies.containsKey(module)) {
+                dependencies.put(module, collect(module, session, repositories));
+            }
+        }
+    }
+
+    /**
+     * Tells whether a library is a transitive runtime dependency of a module.
+     *
+     * @param library the library
+     * @param module the module
+     * @return {@code true} if the library is a dependency of the module or if they were not or cannot be collected
+     */
+    boolean isDependencyOf(EarModule library, EarModule module) {
+        final Set<String> moduleDependencies = dependencies.get(module);
+        return moduleDependencies == null || moduleDependencies.contains(getVersionlessKey(library.getArtifact()));
+    }
+
+    /**
+     * @return the versionless keys of the dependencies, or {@code null} if they cannot be collected
+     */
+    private Set<String> collect(
+            EarModule module, RepositorySystemSession session, List<RemoteRepository> repositories) {
+        Set<String> moduleDependencies = null;
+        try {
+            final CollectRequest request = new CollectRequest(
+                    new Dependency(RepositoryUtils.toArtifact(module.getArtifact()), Artifact.SCOPE_RUNTIME),
+                    repositories);
+            final DependencyNode root = repositorySystem.collectDependencies(session, request).getRoot();
+            moduleDependencies = new HashSet<>();
+            addRuntimeDependencies(root, moduleDependencies);
+            log.debug("Class-Path dependencies of [" + module + "]: " + moduleDependencies);
+        } catch (DependencyCollectionException e) {
+            log.warn("Cannot collect the dependencies of [" + module
+                    + "], adding all the libraries to its Class-Path: " + e.getMessage());
+        }
+        return moduleDependencies;
+    }
+
+    private static void addRuntimeDependencies(DependencyNode node, Set<String> dependencies) {
+        for (DependencyNode child : node.getChildren()) {
+            final String scope = child.getDependency().getScope();
+            if (Artifact.SCOPE_TEST.equals(scope) || Artifact.SCOPE_PROVIDED.equals(scope)) {
+                continue;
+            }
+            final org.eclipse.aether.artifact.Artifact artifact = child.getArtifact();
+            if (dependencies.add(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                    + artifact.getClassifier())) {
+                addRuntimeDependencies(child, dependencies);
+            }
+        }
+    }
+
+    private static String getVersionlessKey(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                + Objects.toString(artifact.getClassifier(), "");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.ear.util.LibraryAnalyzer;
+
+/**
+ * Finds the libraries of an EAR which no module uses, as configured by the {@code unusedLibraries} and
+ * {@code usedLibraries} parameters.
+ */
+final class UnusedLibraries {
+    private final boolean exclude;
+
+    private final List<Pattern> usedLibraryPatterns = new ArrayList<>();
+
+    /**
+     * @param unusedLibraries what to do with the unused libraries: {@code warn} or {@code exclude}
+     * @param usedLibraries the libraries always used, as {@code groupId:artifactId} patterns, which may be
+     *            {@code null}
+     * @throws MojoExecutionException if the action is invalid
+     */
+    UnusedLibraries(String unusedLibraries, List<String> usedLibraries) throws MojoExecutionException {
+        exclude = "exclude".equals(unusedLibraries);
+        if (!exclude && !"warn".equals(unusedLibraries)) {
+            throw new MojoExecutionException(
+                    "Invalid unusedLibraries [" + unusedLibraries + "], expected keep, warn or exclude");
+        }
+        if (usedLibraries != null) {
+            for (String usedLibrary : usedLibraries) {
+                // * matches any characters, everything else is literal
+                final String quoted = Pattern.quote(usedLibrary.trim());
+                usedLibraryPatterns.add(Pattern.compile(quoted.replace("*", "\\E.*\\Q")));
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the unused libraries are excluded from the EAR, {@code false} if they are only warned
+     *         about
+     */
+    boolean isExclude() {
+        return exclude;
+    }
+
+    /**
+     * Analyzes the class references of the module artifacts to find the libraries which no module uses.
+     *
+     * @param modules the modules of the EAR
+     * @param cacheDirectory the directory the class references of the archives are cached to
+     * @param log the log
+     * @return the unused libraries
+     * @throws MojoExecutionException if a module cannot be analyzed
+     */
+    List<EarModule> find(List<EarModule> modules, File cacheDirectory, Log log) throws MojoExecutionException {
+        final Map<Path, EarModule> libraries = new LinkedHashMap<>();
+        final List<Path> roots = new ArrayList<>();
+        for (EarModule module : modules) {
+            final Path file = module.getArtifact().getFile().toPath();
+            final String key = module.getArtifact().getGroupId() + ":" + module.getArtifact().getArtifactId();
+            if (module instanceof JarModule
+                    && !((JarModule) module).isIncludeInApplicationXml()
+                    && usedLibraryPatterns.stream().noneMatch(pattern -> pattern.matcher(key).matches())) {
+                libraries.put(file, module);
+            } else {
+                roots.add(file);
+            }
+        }
+        final List<EarModule> unusedModules = new ArrayList<>();
+        if (libraries.isEmpty()) {
+            return unusedModules;
+        }
+
+        final LibraryAnalyzer analyzer =
+                new LibraryAnalyzer(cacheDirectory.toPath(), Runtime.getRuntime().availableProcessors());
+        final Set<Path> unused;
+        try {
+            unused = analyzer.findUnusedLibraries(roots, libraries.keySet());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error analyzing the class references of the modules", e);
+        }
+        log.debug("Analyzed " + (roots.size() + libraries.size()) + " archives, " + analyzer.getCacheHits()
+                + " from the cache");
+        for (Path library : unused) {
+            unusedModules.add(libraries.get(library));
+        }
+        return unusedModules;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugins.ear.EarModule;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Orders the file names of a directory of the EAR work directory, so that the entries of the EAR follow its model
+ * rather than the order in which the file system lists them: the {@code META-INF} deployment descriptors first, then
+ * the modules in their declared order, then the library directory, sorted, and finally any other file, sorted.
+ * <p>
+ * The archivers scan the work directory depth first, sorting the names of each directory with this comparator. As it
+ * only gets bare file names, a name is ranked after the first module whose URI has it as one of its path segments.
+ * Names of the same rank are sorted, so that the order is always total and deterministic.
+ * <p>
+ * The deployment layout additionally puts the manifest and the standard and vendor deployment descriptors before any
+ * other entry of their directory, so that servers streaming the EAR can parse them before reading the modules.
+ */
+public class ArchiveEntryComparator implements Comparator<String> {
+    private static final String META_INF = "META-INF";
+
+    /**
+     * The names of the manifest and of the deployment descriptors read first by application servers.
+     */
+    private static final Set<String> DESCRIPTORS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "MANIFEST.MF",
+            "application.xml",
+            "jboss-app.xml",
+            "jboss-deployment-structure.xml",
+            "weblogic-application.xml",
+            "glassfish-application.xml",
+            "sun-application.xml",
+            "ibm-application-bnd.xml",
+            "ibm-application-ext.xml",
+            "ibm-application-bnd.xmi",
+            "ibm-application-ext.xmi")));
+
+    private static final Set<String> MODULE_URI_ELEMENTS =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("ejb", "java", "connector")));
+
+    private final Map<String, Integer> ranks = new HashMap<>();
+
+    private final int unrankedRank;
+
+    private final boolean deploymentLayout;
+
+    /**
+     * @param modules the modules of the EAR, in their declared order
+     * @param libraryDirectory the library directory of the EAR, or {@code null} if there is none
+     */
+    public ArchiveEntryComparator(List<EarModule> modules, String libraryDirectory) {
+        this(getUris(modules), libraryDirectory, false);
+    }
+
+    /**
+     * @param moduleUris the URIs of the modules of the EAR, in the order their entries should be written
+     * @param libraryDirectory the library directory of the EAR, or {@code null} if there is none
+     * @param deploymentLayout whether to put the deployment descriptors first
+     */
+    public ArchiveEntryComparator(List<String> moduleUris, String libraryDirectory, boolean deploymentLayout) {
+        this.deploymentLayout = deploymentLayout;
+        final String libPath = normalize(libraryDirectory);
+        int rank = 1;
+        for (String moduleUri : moduleUris) {
+            final String uri = normalize(moduleUri);
+            if (uri.isEmpty() || (!libPath.isEmpty() && uri.startsWith(libPath + "/"))) {
+                // Libraries are sorted by name
+                continue;
+            }
+            rankSegments(uri, rank++);
+        }
+        if (!libPath.isEmpty()) {
+            rankSegments(libPath, rank++);
+        }
+        unrankedRank = rank;
+    }
+
+    /**
+     * Returns the URIs of the modules of the EAR in deployment order: first the modules of an application deployment
+     * descriptor in their order of appearance, which is also their initialization order if {@code initialize-in-order}
+     * is set, then the other modules in their declared order.
+     *
+     * @param modules the modules of the EAR, in their declared order
+     * @param applicationXml the {@code application.xml} of the EAR, which may not exist
+     * @return the module URIs in deployment order
+     * @throws IOException if the deployment descriptor cannot be read or parsed
+     */
+    public static List<String> getDeploymentOrder(List<EarModule> modules, File applicationXml) throws IOException {
+        final Set<String> uris = new LinkedHashSet<>();
+        if (applicationXml.isFile()) {
+            final Xpp3Dom application;
+            try (InputStream in = Files.newInputStream(applicationXml.toPath())) {
+                application = Xpp3DomBuilder.build(in, null);
+            } catch (XmlPullParserException e) {
+                throw new IOException("Failed to parse " + applicationXml, e);
+            }
+            for (Xpp3Dom module : application.getChildren("module")) {
+                for (Xpp3Dom child : module.getChildren()) {
+                    final Xpp3Dom uri = "web".equals(child.getName())
+                            ? child.getChild("web-uri")
+                            : MODULE_URI_ELEMENTS.contains(child.getName()) ? child : null;
+                    if (uri != null && uri.getValue() != null && !uri.getValue().trim().isEmpty()) {
+                        uris.add(uri.getValue().trim());
+                    }
+                }
+            }
+        }
+        uris.addAll(getUris(modules));
+        return new ArrayList<>(uris);
+    }
+
+    private static List<String> getUris(List<EarModule> modules) {
+        final List<String> uris = new ArrayList<>(modules.size());
+        for (EarModule module : modules) {
+            uris.add(module.getUri());
+        }
+        return uris;
+    }
+
+    private void rankSegments(String path, int rank) {
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                ranks.putIfAbsent(segment, rank);
+            }
+        }
+    }
+
+    private static String normalize(String path) {
+        if (path == null) {
+            return "";
+        }
+        String normalized = path.replace('\\', '/');
+        while (normalized.startsWith("/") || normalized.startsWith("./")) {
+            normalized = normalized.substring(normalized.indexOf('/') + 1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    private int rank(String name) {
+        if (META_INF.equals(name) || (deploymentLayout && DESCRIPTORS.contains(name))) {
+            return 0;
+        }
+        return ranks.getOrDefault(name, unrankedRank);
+    }
+
+    @Override
+    public int compare(String name1, String name2) {
+        final int result = Integer.compare(rank(name1), rank(name2));
+        return result != 0 ? result : name1.compareTo(name2);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+/**
+ * Bounds the number of bytes processed at once by concurrent tasks, such as the modules staged in parallel, so that
+ * the reads, writes and decompression of several tasks overlap without their buffers and the dirty pages they produce
+ * growing with the number of tasks.
+ * <p>
+ * A task acquires its size before starting and releases it once done. A task bigger than the whole budget is let
+ * through alone rather than blocked forever.
+ */
+public class ByteBudget {
+    private final long maxBytes;
+
+    private long bytesInFlight;
+
+    /**
+     * @param maxBytes the maximum number of bytes in flight, at least 1
+     */
+    public ByteBudget(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The budget must be at least 1 byte: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Waits until some bytes fit in the budget and takes them.
+     *
+     * @param bytes the number of bytes to take
+     * @return the number of bytes taken, to {@link #release(long) release} once done
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public synchronized long acquire(long bytes) throws InterruptedException {
+        final long taken = Math.max(0, bytes);
+        while (bytesInFlight > 0 && bytesInFlight + taken > maxBytes) {
+            wait();
+        }
+        bytesInFlight += taken;
+        return taken;
+    }
+
+    /**
+     * Gives back bytes taken by {@link #acquire(long)}.
+     *
+     * @param bytes the number of bytes taken
+     */
+    public synchronized void release(long bytes) {
+        bytesInFlight -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * @return the number of bytes currently taken
+     */
+    public synchronized long getBytesInFlight() {
+        return bytesInFlight;
+    }
+}
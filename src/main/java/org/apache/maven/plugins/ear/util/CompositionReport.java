@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Describes what an EAR is made of: the archive size, uncompressed size and entry count of each module, how it was
+ * staged and how long it took, along with the libraries bundled more than once, either inside several modules or both
+ * inside a module and as a library of the EAR.
+ * <p>
+ * The sizes are read from the central directory of the module archives, so that nothing is extracted; the entries
+ * removed from a module when staging it are left out. Libraries are matched by file name, which is what the class
+ * loaders of most servers see of them. All the methods are thread safe.
+ */
+public class CompositionReport {
+    private final List<ModuleComposition> modules = new ArrayList<>();
+
+    /**
+     * Records the composition of a module.
+     *
+     * @param uri the URI of the module in the EAR
+     * @param type the type of the module
+     * @param archive the module archive the module was staged from
+     * @param unpacked whether the module was unpacked in the EAR
+     * @param strippedEntries the entries removed from the module archive when staging it, such as the libraries of a
+     *            skinny module which are also libraries of the EAR
+     * @param stagingNanos the time spent staging the module, in nanoseconds
+     * @throws IOException if the module archive cannot be read
+     */
+    public void module(
+            String uri,
+            String type,
+            Path archive,
+            boolean unpacked,
+            Collection<String> strippedEntries,
+            long stagingNanos)
+            throws IOException {
+        final ModuleComposition module =
+                new ModuleComposition(uri, type, unpacked, !strippedEntries.isEmpty(), stagingNanos);
+        module.compressedSize = Files.size(archive);
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (strippedEntries.contains(entry.getName())) {
+                    module.compressedSize -= Math.max(0, entry.getCompressedSize());
+                    continue;
+                }
+                module.entries++;
+                module.uncompressedSize += Math.max(0, entry.getSize());
+                if (isLibrary(entry.getName())) {
+                    module.libraries.add(entry.getName());
+                }
+            }
+        } catch (ZipException e) {
+            // not an archive, such as a plain file bundled as a module
+            module.entries = 1;
+            module.uncompressedSize = module.compressedSize;
+        }
+        synchronized (this) {
+            modules.add(module);
+        }
+    }
+
+    /**
+     * @return the modules sorted by decreasing archive size, then by URI
+     */
+    public synchronized List<ModuleComposition> getModules() {
+        final List<ModuleComposition> sorted = new ArrayList<>(modules);
+        sorted.sort(Comparator.comparingLong((ModuleComposition module) -> module.compressedSize)
+                .reversed()
+                .thenComparing(module -> module.uri));
+        return sorted;
+    }
+
+    /**
+     * Finds the libraries bundled more than once in the EAR. A module of the EAR which is itself a library counts as
+     * one of the locations of its file name.
+     *
+     * @return the locations of each duplicated library, as {@code module!/path} for the libraries bundled in a module,
+     *         by file name
+     */
+    public synchronized Map<String, List<String>> getDuplicates() {
+        final Map<String, List<String>> locations = new TreeMap<>();
+        for (ModuleComposition module : modules) {
+            if (isLibrary(module.uri)) {
+                locations.computeIfAbsent(fileName(module.uri), k -> new ArrayList<>()).add(module.uri);
+            }
+            for (String library : module.libraries) {
+                locations
+                        .computeIfAbsent(fileName(library), k -> new ArrayList<>())
+                        .add(module.uri + "!/" + library);
+            }
+        }
+        locations.values().removeIf(paths -> paths.size() < 2);
+        locations.values().forEach(paths -> paths.sort(null));
+        return locations;
+    }
+
+    /**
+     * Formats the report as a table, one line per module sorted by decreasing archive size, followed by the duplicated
+     * libraries.
+     *
+     * @return the lines of the table
+     */
+    public synchronized List<String> table() {
+        final List<ModuleComposition> sorted = getModules();
+        int width = "Module".length();
+        for (ModuleComposition module : sorted) {
+            width = Math.max(width, module.uri.length());
+        }
+        final String format = "%-" + width + "s  %-6s  %10s  %12s  %7s  %-18s  %7s";
+        final List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, format, "Module", "Type", "Size", "Uncompressed", "Entries", "Staging",
+                "Time"));
+        long compressed = 0;
+        long uncompressed = 0;
+        long entries = 0;
+        for (ModuleComposition module : sorted) {
+            lines.add(String.format(
+                    Locale.ROOT,
+                    format,
+                    module.uri,
+                    module.type,
+                    EarBuildReport.formatBytes(module.compressedSize),
+                    EarBuildReport.formatBytes(module.uncompressedSize),
+                    module.entries,
+                    module.getStaging(),
+                    module.getStagingMillis() + " ms"));
+            compressed += module.compressedSize;
+            uncompressed += module.uncompressedSize;
+            entries += module.entries;
+        }
+        lines.add(String.format(
+                Locale.ROOT,
+                format,
+                "Total",
+                "",
+                EarBuildReport.formatBytes(compressed),
+                EarBuildReport.formatBytes(uncompressed),
+                entries,
+                "",
+                ""));
+        for (Map.Entry<String, List<String>> duplicate : getDuplicates().entrySet()) {
+            lines.add("Duplicate " + duplicate.getKey() + ": " + String.join(", ", duplicate.getValue()));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes this report as a JSON object.
+     *
+     * @param writer the writer
+     * @throws IOException in case of an I/O error
+     */
+    public synchronized void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("modules").beginArray();
+        for (ModuleComposition module : getModules()) {
+            writer.beginObject()
+                    .member("uri", module.uri)
+                    .member("type", module.type)
+                    .member("compressedSize", module.compressedSize)
+                    .member("uncompressedSize", module.uncompressedSize)
+                    .member("entries", module.entries)
+                    .member("unpacked", module.unpacked)
+                    .member("stripped", module.stripped)
+                    .member("stagingMillis", module.getStagingMillis());
+            writer.name("libraries").beginArray();
+            for (String library : module.libraries) {
+                writer.value(library);
+            }
+            writer.endArray().endObject();
+        }
+        writer.endArray();
+        writer.name("duplicates").beginObject();
+        for (Map.Entry<String, List<String>> duplicate : getDuplicates().entrySet()) {
+            writer.name(duplicate.getKey()).beginArray();
+            for (String location : duplicate.getValue()) {
+                writer.value(location);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    private static boolean isLibrary(String name) {
+        return name.endsWith(".jar");
+    }
+
+    private static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * The composition of a module of the EAR.
+     */
+    public static final class ModuleComposition {
+        private final String uri;
+
+        private final String type;
+
+        private final boolean unpacked;
+
+        private final boolean stripped;
+
+        private final long stagingNanos;
+
+        private long compressedSize;
+
+        private long uncompressedSize;
+
+        private int entries;
+
+        // the libraries bundled in the module, by path
+        private final Set<String> libraries = new TreeSet<>();
+
+        ModuleComposition(String uri, String type, boolean unpacked, boolean stripped, long stagingNanos) {
+            this.uri = uri;
+            this.type = type;
+            this.unpacked = unpacked;
+            this.stripped = stripped;
+            this.stagingNanos = stagingNanos;
+        }
+
+        /**
+         * @return the URI of the module in the EAR
+         */
+        public String getUri() {
+            return uri;
+        }
+
+        /**
+         * @return the size of the module archive
+         */
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * @return the sum of the sizes of the entries of the module archive
+         */
+        public long getUncompressedSize() {
+            return uncompressedSize;
+        }
+
+        /**
+         * @return the number of files in the module archive
+         */
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return the time spent staging the module, in milliseconds
+         */
+        public long getStagingMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(stagingNanos);
+        }
+
+        private String getStaging() {
+            if (unpacked) {
+                return stripped ? "unpacked, stripped" : "unpacked";
+            }
+            return stripped ? "stripped" : "packed";
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Synchronizes a target directory with a source directory, typically an exploded EAR with a deployment directory.
+ * <p>
+ * Only the files whose content or modification time differ are copied, keeping the modification time of their source,
+ * and the files and directories which are not in the source directory anymore are deleted. Since the modification
+ * times may be fixed by {@code outputTimestamp}, the content of the files is compared through their digests: each
+ * copied file is recorded in a state file with the digest of its source and the {@link FileStamp} of its copy, so that
+ * an unchanged file costs two file status lookups as long as its copy was not modified since. The digests of the
+ * source files are typically the ones of the EAR index, which are only computed again for the files staged again.
+ */
+public class DirectorySync {
+    /**
+     * The key of the recorded target directory, which is not a relative path.
+     */
+    private static final String TARGET = "/target";
+
+    private final Properties previous = new Properties();
+
+    private final Properties current = new Properties();
+
+    private int copiedFiles;
+
+    private int deletedFiles;
+
+    private int createdDirectories;
+
+    private long copiedBytes;
+
+    private DirectorySync() {}
+
+    /**
+     * Synchronizes the target directory with the source directory.
+     *
+     * @param source the source directory
+     * @param target the target directory, created if it does not exist
+     * @param sourceDigests the digests of the source files by relative path, as computed by
+     *            {@link IncrementalCopy#digest(Path)}; the missing ones are computed
+     * @param stateFile the file the copied files are recorded to, read if it exists
+     * @return the outcome of the synchronization
+     * @throws IOException if a file cannot be copied or deleted
+     */
+    public static DirectorySync synchronize(
+            final Path source, final Path target, final Map<String, String> sourceDigests, final Path stateFile)
+            throws IOException {
+        final DirectorySync sync = new DirectorySync();
+        final String targetPath = target.toAbsolutePath().toString();
+        if (Files.isRegularFile(stateFile)) {
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                sync.previous.load(in);
+            }
+            if (!targetPath.equals(sync.previous.getProperty(TARGET))) {
+                // recorded for another target directory
+                sync.previous.clear();
+            }
+        }
+        sync.current.setProperty(TARGET, targetPath);
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                final Path targetDir = target.resolve(source.relativize(dir).toString());
+                if (Files.isRegularFile(targetDir, LinkOption.NOFOLLOW_LINKS)) {
+                    sync.delete(targetDir);
+                }
+                if (!Files.isDirectory(targetDir)) {
+                    Files.createDirectories(targetDir);
+                    sync.createdDirectories++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final String name = source.relativize(file).toString().replace(File.separatorChar, '/');
+                final Path targetFile = target.resolve(name);
+                String digest = sourceDigests.get(name);
+                if (digest == null) {
+                    digest = IncrementalCopy.digest(file);
+                }
+                if (Files.isDirectory(targetFile, LinkOption.NOFOLLOW_LINKS)) {
+                    sync.delete(targetFile);
+                } else if (Files.exists(targetFile, LinkOption.NOFOLLOW_LINKS)
+                        && sync.isUpToDate(name, digest, attrs, targetFile)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                sync.current.setProperty(name, digest + ':' + FileStamp.of(targetFile));
+                sync.copiedFiles++;
+                sync.copiedBytes += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Files.walkFileTree(target, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!Files.isDirectory(source.resolve(target.relativize(dir).toString()))) {
+                    sync.delete(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!Files.exists(source.resolve(target.relativize(file).toString()))) {
+                    sync.delete(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Files.createDirectories(stateFile.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(stateFile)) {
+            sync.current.store(out, null);
+        }
+        return sync;
+    }
+
+    /**
+     * Tells whether a target file has the content and the modification time of its source. The content of a file
+     * copied by a previous synchronization is known from its record as long as its stamp did not change, and is
+     * compared otherwise.
+     */
+    private boolean isUpToDate(String name, String sourceDigest, BasicFileAttributes sourceAttrs, Path targetFile)
+            throws IOException {
+        final BasicFileAttributes targetAttrs =
+                Files.readAttributes(targetFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        // Copies may not keep the full precision of the modification time
+        if (targetAttrs.size() != sourceAttrs.size()
+                || targetAttrs.lastModifiedTime().toMillis()
+                        != sourceAttrs.lastModifiedTime().toMillis()) {
+            return false;
+        }
+        final String stamp = FileStamp.of(targetFile, targetAttrs);
+        final String record = sourceDigest + ':' + stamp;
+        if ((stamp == null || !record.equals(previous.getProperty(name)))
+                && !sourceDigest.equals(IncrementalCopy.digest(targetFile))) {
+            return false;
+        }
+        current.setProperty(name, record);
+        return true;
+    }
+
+    /**
+     * Deletes a file, or a directory and its content.
+     */
+    private void delete(Path path) throws IOException {
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                deletedFiles++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                deletedFiles++;
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * @return the number of files copied to the target directory
+     */
+    public int getCopiedFiles() {
+        return copiedFiles;
+    }
+
+    /**
+     * @return the number of bytes copied to the target directory
+     */
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * @return the number of files and directories deleted from the target directory
+     */
+    public int getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    /**
+     * @return {@code true} if the target directory was changed
+     */
+    public boolean isChanged() {
+        return copiedFiles > 0 || deletedFiles > 0 || createdDirectories > 0;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records where the time of a single mojo execution goes: the wall time of each phase, the bytes read and written for
+ * each module and a few counters such as the number of modules found up to date.
+ * <p>
+ * Phases are identified by name and measured in wall time: a phase which runs several times, possibly at once on
+ * several threads (an unpack per module for instance), reports the time during which at least one of its runs was in
+ * progress rather than the sum of their durations. Phases may overlap, such as the staging of the modules and the
+ * archive when the EAR is written while its modules are staged. All the methods are thread safe.
+ */
+public class EarBuildReport {
+    /**
+     * Computation and check of the fingerprint of the inputs of the EAR.
+     */
+    public static final String FINGERPRINT = "fingerprint";
+
+    /**
+     * Resolution of the EAR modules from the project dependencies, and collection of the dependencies of each module
+     * when its Class-Path is derived from them.
+     */
+    public static final String MODULE_RESOLUTION = "module-resolution";
+
+    /**
+     * Generation of the deployment descriptors.
+     */
+    public static final String DEPLOYMENT_DESCRIPTORS = "deployment-descriptors";
+
+    /**
+     * Staging of the modules to the work directory as a whole, unpack and manifest rewrite included.
+     */
+    public static final String STAGING = "staging";
+
+    /**
+     * Extraction of the unpacked modules to the work directory.
+     */
+    public static final String UNPACK = "unpack";
+
+    /**
+     * Rewrite of the manifest Class-Path of the modules.
+     */
+    public static final String MANIFEST_REWRITE = "manifest-rewrite";
+
+    /**
+     * Copy and filtering of the EAR sources.
+     */
+    public static final String SOURCES = "sources";
+
+    /**
+     * Listing and removal of the outdated resources of the work directory.
+     */
+    public static final String OUTDATED_RESOURCES = "outdated-resources";
+
+    /**
+     * Analysis of the class references of the modules to find the unused libraries.
+     */
+    public static final String LIBRARY_ANALYSIS = "library-analysis";
+
+    /**
+     * Generation of the JarIndex of the libraries.
+     */
+    public static final String LIBRARY_INDEX = "library-index";
+
+    /**
+     * Generation of the content index of the EAR.
+     */
+    public static final String EAR_INDEX = "ear-index";
+
+    /**
+     * Creation of the EAR archive.
+     */
+    public static final String ARCHIVE = "archive";
+
+    /**
+     * Creation of the archives of the EAR variants.
+     */
+    public static final String VARIANTS = "variants";
+
+    /**
+     * Computation of the checksums of the archives.
+     */
+    public static final String CHECKSUMS = "checksums";
+
+    /**
+     * Counter of the modules which were already up to date in the work directory.
+     */
+    public static final String UP_TO_DATE = "up-to-date";
+
+    /**
+     * Counter of the processed modules fetched from the module store instead of being processed again.
+     */
+    public static final String MODULE_STORE_HIT = "module-store-hit";
+
+    /**
+     * Counter of the libraries which no module references.
+     */
+    public static final String UNUSED_LIBRARY = "unused-library";
+
+    private final String execution;
+
+    private final long startTime = System.nanoTime();
+
+    private long endTime;
+
+    /**
+     * The start and end of each run of each phase.
+     */
+    private final Map<String, List<long[]>> phases = new LinkedHashMap<>();
+
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    private final List<ModuleStatistics> modules = new ArrayList<>();
+
+    /**
+     * @param execution the mojo execution being reported, for instance {@code ear:ear (default-ear)}
+     */
+    public EarBuildReport(String execution) {
+        this.execution = execution;
+    }
+
+    /**
+     * @return the mojo execution being reported
+     */
+    public String getExecution() {
+        return execution;
+    }
+
+    /**
+     * Records a run of a phase, from the given start time until now.
+     *
+     * @param phase the phase
+     * @param startNanos the start of the run, as returned by {@link System#nanoTime()}
+     */
+    public synchronized void phase(String phase, long startNanos) {
+        phases.computeIfAbsent(phase, name -> new ArrayList<>()).add(new long[] {startNanos, System.nanoTime()});
+    }
+
+    /**
+     * Increments a counter.
+     *
+     * @param counter the counter
+     */
+    public synchronized void count(String counter) {
+        counters.merge(counter, 1L, Long::sum);
+    }
+
+    /**
+     * Records the processing of a module.
+     *
+     * @param uri the URI of the module in the EAR
+     * @param action what was done with the module: {@code copied}, {@code unpacked}, {@code up-to-date}, ...
+     * @param bytesRead the number of bytes read
+     * @param bytesWritten the number of bytes written to the work directory
+     * @param startNanos the start of the processing, as returned by {@link System#nanoTime()}
+     */
+    public synchronized void module(String uri, String action, long bytesRead, long bytesWritten, long startNanos) {
+        modules.add(new ModuleStatistics(uri, action, bytesRead, bytesWritten, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Marks the end of the execution.
+     */
+    public synchronized void end() {
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * @return the wall time of each phase, in milliseconds
+     */
+    public synchronized Map<String, Long> getPhases() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        phases.forEach((phase, runs) -> result.put(phase, TimeUnit.NANOSECONDS.toMillis(wallTime(runs))));
+        return result;
+    }
+
+    /**
+     * Returns the length of the union of the runs of a phase, so that the runs overlapping on several threads count
+     * once.
+     */
+    private static long wallTime(List<long[]> runs) {
+        final List<long[]> sorted = new ArrayList<>(runs);
+        sorted.sort(Comparator.comparingLong(run -> run[0]));
+        long nanos = 0;
+        long end = Long.MIN_VALUE;
+        for (long[] run : sorted) {
+            if (run[1] > end) {
+                nanos += run[1] - Math.max(run[0], end);
+                end = run[1];
+            }
+        }
+        return nanos;
+    }
+
+    /**
+     * @param counter the counter
+     * @return the current value of the counter
+     */
+    public synchronized long getCounter(String counter) {
+        return counters.getOrDefault(counter, 0L);
+    }
+
+    /**
+     * @return a one line summary of the execution
+     */
+    public synchronized String summary() {
+        final StringBuilder summary = new StringBuilder(execution)
+                .append(" took ")
+                .append(getTotalMillis())
+                .append(" ms");
+        if (!phases.isEmpty()) {
+            summary.append(" (");
+            String separator = "";
+            for (Map.Entry<String, Long> phase : getPhases().entrySet()) {
+                summary.append(separator)
+                        .append(phase.getKey())
+                        .append(' ')
+                        .append(phase.getValue())
+                        .append(" ms");
+                separator = ", ";
+            }
+            summary.append(')');
+        }
+        if (!modules.isEmpty()) {
+            long read = 0;
+            long written = 0;
+            for (ModuleStatistics module : modules) {
+                read += module.bytesRead;
+                written += module.bytesWritten;
+            }
+            summary.append(", ")
+                    .append(modules.size())
+                    .append(" modules, ")
+                    .append(formatBytes(read))
+                    .append(" read, ")
+                    .append(formatBytes(written))
+                    .append(" written, ")
+                    .append(getCounter(UP_TO_DATE))
+                    .append(" up to date");
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Writes this report as a JSON object.
+     *
+     * @param writer the writer
+     * @throws IOException in case of an I/O error
+     */
+    public synchronized void write(JsonWriter writer) throws IOException {
+        writer.beginObject().member("execution", execution).member("totalMillis", getTotalMillis());
+        writer.name("phases").beginObject();
+        for (Map.Entry<String, Long> phase : getPhases().entrySet()) {
+            writer.member(phase.getKey(), phase.getValue());
+        }
+        writer.endObject();
+        writer.name("counters").beginObject();
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            writer.member(counter.getKey(), counter.getValue());
+        }
+        writer.endObject();
+        writer.name("modules").beginArray();
+        for (ModuleStatistics module : modules) {
+            writer.beginObject()
+                    .member("uri", module.uri)
+                    .member("action", module.action)
+                    .member("bytesRead", module.bytesRead)
+                    .member("bytesWritten", module.bytesWritten)
+                    .member("millis", TimeUnit.NANOSECONDS.toMillis(module.nanos))
+                    .endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((endTime == 0 ? System.nanoTime() : endTime) - startTime);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static final class ModuleStatistics {
+        private final String uri;
+
+        private final String action;
+
+        private final long bytesRead;
+
+        private final long bytesWritten;
+
+        private final long nanos;
+
+        ModuleStatistics(String uri, String action, long bytesRead, long bytesWritten, long nanos) {
+            this.uri = uri;
+            this.action = action;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.nanos = nanos;
+        }
+    }
+}
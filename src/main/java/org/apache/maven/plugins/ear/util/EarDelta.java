@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Creates and applies the delta between two builds of an EAR, so that a new EAR can be shipped as the changes from an
+ * EAR which is already there.
+ * <p>
+ * The new EAR is described as a sequence of byte ranges, each either copied from the previous EAR or stored in the
+ * delta. The compressed data of an entry is copied when the previous EAR has an entry with the same compressed data,
+ * whatever its name; everything else, that is the data of the added and changed entries, the local headers and the
+ * central directory, is stored in the delta. Applying the delta thus reconstructs a byte-identical EAR, which is
+ * checked against the SHA-256 of the new EAR recorded in the delta, as the previous EAR is before applying it.
+ * <p>
+ * A delta is a ZIP archive holding the description of the ranges, the stored bytes, the digests of both EARs and the
+ * list of the added, modified and deleted entries.
+ */
+public class EarDelta {
+    private static final String INFO_ENTRY = "ear-delta.properties";
+
+    private static final String RANGES_ENTRY = "ranges";
+
+    private static final String DATA_ENTRY = "data";
+
+    private static final String CHANGES_ENTRY = "changes";
+
+    private static final String FORMAT = "1";
+
+    private static final String COPY = "C";
+
+    private static final String STORE = "S";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<String> addedEntries = new ArrayList<>();
+
+    private final List<String> modifiedEntries = new ArrayList<>();
+
+    private final List<String> deletedEntries = new ArrayList<>();
+
+    private long copiedBytes;
+
+    private long storedBytes;
+
+    private EarDelta() {}
+
+    /**
+     * Creates the delta between two builds of an EAR.
+     *
+     * @param base the previous EAR
+     * @param target the new EAR
+     * @param delta the delta to create, replaced if it exists
+     * @return the outcome of the creation
+     * @throws IOException if an EAR cannot be read or the delta cannot be written
+     */
+    public static EarDelta create(Path base, Path target, Path delta) throws IOException {
+        final EarDelta earDelta = new EarDelta();
+
+        // the ranges of the compressed data of the previous EAR, by digest
+        final Map<String, long[]> baseData = new HashMap<>();
+        final Map<String, String> baseEntries = new TreeMap<>();
+        try (ZipFile zipFile = ZipFile.builder().setPath(base).get();
+                FileChannel channel = FileChannel.open(base, StandardOpenOption.READ)) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+                final String digest = digest(channel, entry.getDataOffset(), entry.getCompressedSize());
+                baseData.putIfAbsent(digest, new long[] {entry.getDataOffset(), entry.getCompressedSize()});
+                baseEntries.put(entry.getName(), digest);
+            }
+        }
+
+        final List<long[]> ranges = new ArrayList<>();
+        final Map<String, String> targetEntries = new TreeMap<>();
+        Files.createDirectories(delta.toAbsolutePath().getParent());
+        try (ZipFile zipFile = ZipFile.builder().setPath(target).get();
+                FileChannel channel = FileChannel.open(target, StandardOpenOption.READ);
+                ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(delta))) {
+            out.putNextEntry(new ZipEntry(DATA_ENTRY));
+            long position = 0;
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+                final long offset = entry.getDataOffset();
+                final long size = entry.getCompressedSize();
+                final String digest = digest(channel, offset, size);
+                targetEntries.put(entry.getName(), digest);
+                final long[] baseRange = size > 0 ? baseData.get(digest) : null;
+                if (baseRange == null || offset < position) {
+                    continue;
+                }
+                earDelta.store(channel, position, offset - position, out, ranges);
+                ranges.add(new long[] {baseRange[0], size});
+                earDelta.copiedBytes += size;
+                position = offset + size;
+            }
+            earDelta.store(channel, position, channel.size() - position, out, ranges);
+            out.closeEntry();
+
+            out.putNextEntry(new ZipEntry(RANGES_ENTRY));
+            final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (long[] range : ranges) {
+                writer.write(range[0] < 0 ? STORE + ' ' + range[1] : COPY + ' ' + range[0] + ' ' + range[1]);
+                writer.newLine();
+            }
+            writer.flush();
+            out.closeEntry();
+
+            for (Map.Entry<String, String> entry : targetEntries.entrySet()) {
+                final String baseDigest = baseEntries.get(entry.getKey());
+                if (baseDigest == null) {
+                    earDelta.addedEntries.add(entry.getKey());
+                } else if (!baseDigest.equals(entry.getValue())) {
+                    earDelta.modifiedEntries.add(entry.getKey());
+                }
+            }
+            for (String name : baseEntries.keySet()) {
+                if (!targetEntries.containsKey(name)) {
+                    earDelta.deletedEntries.add(name);
+                }
+            }
+            out.putNextEntry(new ZipEntry(CHANGES_ENTRY));
+            writeChanges(writer, "A ", earDelta.addedEntries);
+            writeChanges(writer, "M ", earDelta.modifiedEntries);
+            writeChanges(writer, "D ", earDelta.deletedEntries);
+            writer.flush();
+            out.closeEntry();
+
+            final Properties info = new Properties();
+            info.setProperty("format", FORMAT);
+            info.setProperty("base.size", Long.toString(Files.size(base)));
+            info.setProperty("base.sha256", digest(base));
+            info.setProperty("target.size", Long.toString(channel.size()));
+            info.setProperty("target.sha256", digest(target));
+            out.putNextEntry(new ZipEntry(INFO_ENTRY));
+            info.store(out, null);
+            out.closeEntry();
+        }
+        return earDelta;
+    }
+
+    /**
+     * Reconstructs a new EAR from the previous EAR and their delta.
+     *
+     * @param base the previous EAR
+     * @param delta the delta created from the previous EAR
+     * @param target the new EAR to reconstruct, replaced if it exists
+     * @throws IOException if the delta was not created from the previous EAR, if the reconstructed EAR does not match
+     *             the new EAR or if a file cannot be read or written
+     */
+    public static void apply(Path base, Path delta, Path target) throws IOException {
+        try (ZipFile zipFile = ZipFile.builder().setPath(delta).get()) {
+            final Properties info = new Properties();
+            final ZipArchiveEntry infoEntry = zipFile.getEntry(INFO_ENTRY);
+            if (infoEntry == null) {
+                throw new IOException(delta + " is not an EAR delta");
+            }
+            try (InputStream in = zipFile.getInputStream(infoEntry)) {
+                info.load(in);
+            }
+            if (!FORMAT.equals(info.getProperty("format"))) {
+                throw new IOException("Unsupported EAR delta format " + info.getProperty("format") + " in " + delta);
+            }
+            if (Files.size(base) != Long.parseLong(info.getProperty("base.size"))
+                    || !digest(base).equals(info.getProperty("base.sha256"))) {
+                throw new IOException("The EAR delta " + delta + " was not created from " + base);
+            }
+
+            final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.createDirectories(temporary.toAbsolutePath().getParent());
+            try (BufferedReader ranges = new BufferedReader(new InputStreamReader(
+                            zipFile.getInputStream(zipFile.getEntry(RANGES_ENTRY)), StandardCharsets.UTF_8));
+                    InputStream data = zipFile.getInputStream(zipFile.getEntry(DATA_ENTRY));
+                    FileChannel baseChannel = FileChannel.open(base, StandardOpenOption.READ);
+                    FileChannel out = FileChannel.open(
+                            temporary,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE)) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                for (String line = ranges.readLine(); line != null; line = ranges.readLine()) {
+                    final String[] fields = line.split(" ");
+                    if (COPY.equals(fields[0])) {
+                        transfer(baseChannel, Long.parseLong(fields[1]), Long.parseLong(fields[2]), out);
+                    } else {
+                        for (long remaining = Long.parseLong(fields[1]); remaining > 0; ) {
+                            final int n = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                            if (n == -1) {
+                                throw new IOException("Truncated EAR delta " + delta);
+                            }
+                            out.write(ByteBuffer.wrap(buffer, 0, n));
+                            remaining -= n;
+                        }
+                    }
+                }
+            }
+            if (Files.size(temporary) != Long.parseLong(info.getProperty("target.size"))
+                    || !digest(temporary).equals(info.getProperty("target.sha256"))) {
+                Files.delete(temporary);
+                throw new IOException("The EAR reconstructed from " + delta + " does not match the original EAR");
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return the names of the entries of the new EAR which are not in the previous EAR, sorted
+     */
+    public List<String> getAddedEntries() {
+        return Collections.unmodifiableList(addedEntries);
+    }
+
+    /**
+     * @return the names of the entries whose content changed, sorted
+     */
+    public List<String> getModifiedEntries() {
+        return Collections.unmodifiableList(modifiedEntries);
+    }
+
+    /**
+     * @return the names of the entries of the previous EAR which are not in the new EAR, sorted
+     */
+    public List<String> getDeletedEntries() {
+        return Collections.unmodifiableList(deletedEntries);
+    }
+
+    /**
+     * @return the number of bytes of the new EAR copied from the previous EAR
+     */
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * @return the number of bytes of the new EAR stored in the delta, before compression
+     */
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * Stores a range of the new EAR in the delta.
+     */
+    private void store(FileChannel channel, long position, long size, OutputStream out, List<long[]> ranges)
+            throws IOException {
+        if (size <= 0) {
+            return;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (long offset = position; offset < position + size; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, position + size - offset));
+            final int n = channel.read(buffer, offset);
+            if (n == -1) {
+                throw new IOException("Unexpected end of archive");
+            }
+            out.write(buffer.array(), 0, n);
+            offset += n;
+        }
+        ranges.add(new long[] {-1, size});
+        storedBytes += size;
+    }
+
+    private static void transfer(FileChannel source, long position, long size, FileChannel out) throws IOException {
+        for (long offset = position; offset < position + size; ) {
+            final long transferred = source.transferTo(offset, position + size - offset, out);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of the previous EAR");
+            }
+            offset += transferred;
+        }
+    }
+
+    private static void writeChanges(BufferedWriter writer, String prefix, List<String> names) throws IOException {
+        for (String name : names) {
+            writer.write(prefix + name);
+            writer.newLine();
+        }
+    }
+
+    private static String digest(FileChannel channel, long position, long size) throws IOException {
+        final MessageDigest digest = newDigest();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (long offset = position; offset < position + size; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, position + size - offset));
+            final int n = channel.read(buffer, offset);
+            if (n == -1) {
+                throw new IOException("Unexpected end of archive");
+            }
+            buffer.flip();
+            digest.update(buffer);
+            offset += n;
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String digest(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return digest(channel, 0, channel.size());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder value = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            value.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return value.toString();
+    }
+}
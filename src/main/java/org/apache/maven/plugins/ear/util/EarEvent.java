@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+/**
+ * A Java Flight Recorder event covering one of the hot paths of the plugin, for a given module.
+ * <p>
+ * This implementation records nothing. The Flight Recorder API is only available as of Java 11, so the recording
+ * implementation is part of the {@code META-INF/versions/11} section of the multi-release plugin JAR. Either way, an
+ * event which is not enabled in the current recording costs nothing but the call to its factory.
+ * <p>
+ * Usage:
+ * <pre>
+ * EarEvent event = EarEvent.beginUnpack();
+ * // ...
+ * event.commit(module.getArtifact().getId(), bytesRead, bytesWritten);
+ * </pre>
+ */
+public class EarEvent {
+    private static final EarEvent DISABLED = new EarEvent();
+
+    private EarEvent() {}
+
+    /**
+     * @return an event covering the staging of a module to the work directory
+     */
+    public static EarEvent beginModuleStaging() {
+        return DISABLED;
+    }
+
+    /**
+     * @return an event covering the extraction of a module to the work directory
+     */
+    public static EarEvent beginUnpack() {
+        return DISABLED;
+    }
+
+    /**
+     * @return an event covering the rewrite of the manifest Class-Path of a module
+     */
+    public static EarEvent beginManifestRewrite() {
+        return DISABLED;
+    }
+
+    /**
+     * @return an event covering the removal of the libraries bundled in a skinny module, the bytes read being the
+     *         size of the removed libraries
+     */
+    public static EarEvent beginSkinnyWarStrip() {
+        return DISABLED;
+    }
+
+    /**
+     * @return an event covering the writing of a deployment descriptor
+     */
+    public static EarEvent beginDescriptorWrite() {
+        return DISABLED;
+    }
+
+    /**
+     * @return an event covering the writing of the EAR archive
+     */
+    public static EarEvent beginArchiveWrite() {
+        return DISABLED;
+    }
+
+    /**
+     * @return {@code true} if the event is being recorded, so that the byte counts are worth computing
+     */
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Ends the event and commits it to the recording.
+     *
+     * @param module the coordinates of the module, or the name of the written file
+     * @param bytesRead the number of bytes read
+     * @param bytesWritten the number of bytes written
+     */
+    public void commit(String module, long bytesRead, long bytesWritten) {
+        // not recorded
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Lists the entries of an EAR with their size, CRC-32 and SHA-256, along with the entries of the modules it bundles
+ * as archives, so that two releases can be compared module by module and entry by entry.
+ * <p>
+ * The staged EAR is indexed once staged, as the files are written by several means, such as the unarchiver of the
+ * unpacked modules or the filtering of the EAR sources. Each file is read once, in a single pass computing its
+ * checksums and, for a module archive, the checksums of its entries as they are inflated. The checksums of a file are
+ * cached by its {@link FileStamp}, so that the files which were not written since the previous build are not read at
+ * all, even if they were written with the same size and modification time.
+ */
+public class EarIndex {
+    /**
+     * The path of the index in the EAR.
+     */
+    public static final String INDEX_NAME = "META-INF/ear-index.json";
+
+    private static final String FILE = "F";
+
+    private static final String NESTED = "N";
+
+    private static final String CACHE_FORMAT = "# ear-index-cache 2";
+
+    private final Path cacheFile;
+
+    private final int threads;
+
+    private final Map<String, CachedEntry> cache = new ConcurrentHashMap<>();
+
+    private final Map<String, CachedEntry> current = new ConcurrentHashMap<>();
+
+    private int cacheHits;
+
+    /**
+     * @param cacheFile the file the checksums are cached to, read if it exists
+     * @param threads the number of files read in parallel
+     * @throws IOException if the cache file cannot be read
+     */
+    public EarIndex(Path cacheFile, int threads) throws IOException {
+        this.cacheFile = cacheFile;
+        this.threads = Math.max(1, threads);
+        if (Files.isRegularFile(cacheFile)) {
+            readCache();
+        }
+    }
+
+    /**
+     * Indexes the files of a staged EAR.
+     *
+     * @param directory the directory the EAR is staged to
+     * @param files the attributes of the files to index by relative path, such as the ones listed by a
+     *            {@link PathScanner}
+     * @param isModule tells whether a file, by relative path with {@code /} separators, is a module archive whose
+     *            entries are indexed as well
+     * @return the entries of the EAR sorted by name
+     * @throws IOException if a file cannot be read
+     */
+    public List<Entry> index(Path directory, Map<String, BasicFileAttributes> files, Predicate<String> isModule)
+            throws IOException {
+        final Map<String, Future<Entry>> futures = new TreeMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())));
+        try {
+            for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+                if (!file.getValue().isRegularFile()) {
+                    continue;
+                }
+                final String name = file.getKey().replace('\\', '/');
+                final BasicFileAttributes attrs = file.getValue();
+                final Path path = directory.resolve(file.getKey());
+                final boolean module = isModule.test(name);
+                futures.put(name, executor.submit(() -> {
+                    final String stamp = FileStamp.of(path, attrs);
+                    CachedEntry cached = cache.get(name);
+                    if (cached != null
+                            && stamp != null
+                            && cached.stamp.equals(stamp)
+                            && (cached.entry.entries != null) == module) {
+                        synchronized (this) {
+                            cacheHits++;
+                        }
+                    } else {
+                        cached = new CachedEntry(stamp, read(name, path, module));
+                    }
+                    current.put(name, cached);
+                    return cached.entry;
+                }));
+            }
+            final List<Entry> entries = new ArrayList<>(futures.size());
+            for (Future<Entry> future : futures.values()) {
+                entries.add(future.get());
+            }
+            return entries;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing " + directory, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error indexing " + directory, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of files whose checksums were found in the cache
+     */
+    public synchronized int getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Stores the checksums of the files indexed since this instance was created, forgetting the others.
+     *
+     * @throws IOException if the cache file cannot be written
+     */
+    public void storeCache() throws IOException {
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+            out.write(CACHE_FORMAT);
+            out.newLine();
+            for (Map.Entry<String, CachedEntry> file : new TreeMap<>(current).entrySet()) {
+                final CachedEntry cached = file.getValue();
+                if (cached.stamp == null) {
+                    // cannot tell whether the file changed
+                    continue;
+                }
+                out.write(String.join(
+                        " ",
+                        FILE,
+                        cached.stamp,
+                        Long.toString(cached.entry.size),
+                        Long.toString(cached.entry.crc),
+                        cached.entry.sha256,
+                        file.getKey()));
+                out.newLine();
+                if (cached.entry.entries != null) {
+                    // an empty module still has a line, so that it is cached as a module
+                    out.write(NESTED);
+                    out.newLine();
+                    for (Entry nested : cached.entry.entries) {
+                        out.write(String.join(
+                                " ",
+                                NESTED,
+                                Long.toString(nested.size),
+                                Long.toString(nested.crc),
+                                nested.sha256,
+                                nested.name));
+                        out.newLine();
+                    }
+                }
+            }
+        }
+    }
+
+    private void readCache() throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!CACHE_FORMAT.equals(in.readLine())) {
+                // written by a previous version
+                return;
+            }
+            String name = null;
+            CachedEntry file = null;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith(FILE + " ")) {
+                    final String[] fields = line.split(" ", 6);
+                    name = fields[5];
+                    file = new CachedEntry(
+                            fields[1],
+                            new Entry(name, Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], null));
+                    cache.put(name, file);
+                } else if (line.equals(NESTED) && file != null) {
+                    file.entry.entries = new ArrayList<>();
+                } else if (line.startsWith(NESTED + " ") && file != null && file.entry.entries != null) {
+                    final String[] fields = line.split(" ", 5);
+                    final long size = Long.parseLong(fields[1]);
+                    final long crc = Long.parseLong(fields[2]);
+                    file.entry.entries.add(new Entry(fields[4], size, crc, fields[3], null));
+                }
+            }
+        } catch (RuntimeException e) {
+            // a corrupted cache is ignored
+            cache.clear();
+        }
+    }
+
+    /**
+     * Reads a file once, computing its checksums and, for a module archive, the ones of its entries.
+     */
+    private static Entry read(String name, Path path, boolean module) throws IOException {
+        final CRC32 crc = new CRC32();
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[64 * 1024];
+        List<Entry> entries = module ? new ArrayList<>() : null;
+        try (InputStream file = Files.newInputStream(path)) {
+            final InputStream in = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    final int b = file.read();
+                    if (b != -1) {
+                        crc.update(b);
+                        digest.update((byte) b);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    final int n = file.read(b, off, len);
+                    if (n > 0) {
+                        crc.update(b, off, n);
+                        digest.update(b, off, n);
+                    }
+                    return n;
+                }
+            };
+            if (module && !readEntries(in, buffer, entries)) {
+                // not an archive after all: indexed as a plain file
+                entries = null;
+            }
+            // the rest of the file, such as the central directory of a module
+            while (in.read(buffer, 0, buffer.length) != -1) {
+                // checksummed by the stream
+            }
+        }
+        if (entries != null) {
+            entries.sort((a, b) -> a.name.compareTo(b.name));
+        }
+        return new Entry(name, Files.size(path), crc.getValue(), toHex(digest.digest()), entries);
+    }
+
+    /**
+     * Reads the entries of a module archive, returning {@code false} if it is not an archive.
+     */
+    private static boolean readEntries(InputStream in, byte[] buffer, List<Entry> entries) throws IOException {
+        // not closed, so that the rest of the file is read by the caller
+        final ZipInputStream zip = new ZipInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+        });
+        try {
+            for (ZipEntry zipEntry = zip.getNextEntry(); zipEntry != null; zipEntry = zip.getNextEntry()) {
+                if (zipEntry.isDirectory()) {
+                    continue;
+                }
+                final CRC32 crc = new CRC32();
+                final MessageDigest digest = newDigest();
+                long size = 0;
+                for (int n = zip.read(buffer, 0, buffer.length); n != -1; n = zip.read(buffer, 0, buffer.length)) {
+                    crc.update(buffer, 0, n);
+                    digest.update(buffer, 0, n);
+                    size += n;
+                }
+                entries.add(new Entry(zipEntry.getName(), size, crc.getValue(), toHex(digest.digest()), null));
+            }
+            return true;
+        } catch (ZipException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes an index as a JSON document.
+     *
+     * @param entries the entries of the EAR
+     * @param writer the writer
+     * @throws IOException in case of an I/O error
+     */
+    public static void write(List<Entry> entries, JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writeEntries(entries, writer);
+        writer.endObject();
+    }
+
+    /**
+     * Writes an index to a file.
+     *
+     * @param entries the entries of the EAR
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Entry> entries, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            write(entries, writer);
+        }
+    }
+
+    private static void writeEntries(List<Entry> entries, JsonWriter writer) throws IOException {
+        writer.name("entries").beginArray();
+        for (Entry entry : entries) {
+            writer.beginObject()
+                    .member("name", entry.name)
+                    .member("size", entry.size)
+                    .member("crc", String.format("%08x", entry.crc))
+                    .member("sha256", entry.sha256);
+            if (entry.entries != null) {
+                writeEntries(entry.entries, writer);
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder value = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            value.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return value.toString();
+    }
+
+    /**
+     * An entry of the EAR or of one of its modules.
+     */
+    public static final class Entry {
+        private final String name;
+
+        private final long size;
+
+        private final long crc;
+
+        private final String sha256;
+
+        private List<Entry> entries;
+
+        Entry(String name, long size, long crc, String sha256, List<Entry> entries) {
+            this.name = name;
+            this.size = size;
+            this.crc = crc;
+            this.sha256 = sha256;
+            this.entries = entries;
+        }
+
+        /**
+         * @return the path of the entry
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the uncompressed size of the entry
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the CRC-32 of the content of the entry
+         */
+        public long getCrc() {
+            return crc;
+        }
+
+        /**
+         * @return the hexadecimal SHA-256 digest of the content of the entry
+         */
+        public String getSha256() {
+            return sha256;
+        }
+
+        /**
+         * @return the entries of the module archive, or {@code null} if the entry is not a module archive
+         */
+        public List<Entry> getEntries() {
+            return entries == null ? null : Collections.unmodifiableList(entries);
+        }
+    }
+
+    private static final class CachedEntry {
+        private final String stamp;
+
+        private final Entry entry;
+
+        CachedEntry(String stamp, Entry entry) {
+            this.stamp = stamp;
+            this.entry = entry;
+        }
+    }
+}
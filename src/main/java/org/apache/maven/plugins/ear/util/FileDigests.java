@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Computes the digests of a file with several algorithms in a single read, and stores them next to the file in the
+ * format of the Maven repositories: a {@code .sha256} file holding the hexadecimal SHA-256 digest, for instance.
+ * <p>
+ * The file is read once whatever the number of algorithms, right after it is written so that it is usually read from
+ * the page cache. The sidecar files of a rewritten file are always written again, since a sidecar file newer than the
+ * file does not tell that it holds the digest of its current content. Only a caller knowing that the file is unchanged
+ * since its sidecar files were written, such as a build reusing the file of the previous one, may keep them (see
+ * {@link #writeOutdatedSidecars(Path)}) and skip reading the file.
+ */
+public class FileDigests {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final List<String> algorithms;
+
+    /**
+     * @param algorithms the names of the digest algorithms, such as {@code SHA-256} or {@code SHA-512}
+     * @throws NoSuchAlgorithmException if an algorithm is not supported by the platform
+     */
+    public FileDigests(Collection<String> algorithms) throws NoSuchAlgorithmException {
+        this.algorithms = new ArrayList<>(algorithms);
+        for (String algorithm : this.algorithms) {
+            MessageDigest.getInstance(algorithm);
+        }
+    }
+
+    /**
+     * Computes the digests of a file.
+     *
+     * @param file the file
+     * @return the hexadecimal digests by algorithm, in the order of the algorithms
+     * @throws IOException if the file cannot be read
+     */
+    public Map<String, String> compute(Path file) throws IOException {
+        final List<MessageDigest> digests = new ArrayList<>(algorithms.size());
+        for (String algorithm : algorithms) {
+            try {
+                digests.add(MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                // checked by the constructor
+                throw new IllegalStateException(e);
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                for (MessageDigest digest : digests) {
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                }
+                buffer.clear();
+            }
+        }
+        final Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < algorithms.size(); i++) {
+            values.put(algorithms.get(i), toHex(digests.get(i).digest()));
+        }
+        return values;
+    }
+
+    /**
+     * Writes the digests of a file to its sidecar files.
+     *
+     * @param file the file
+     * @return the sidecar files by algorithm, in the order of the algorithms
+     * @throws IOException if the file cannot be read or a sidecar file cannot be written
+     */
+    public Map<String, Path> writeSidecars(Path file) throws IOException {
+        final Map<String, Path> sidecars = new LinkedHashMap<>();
+        for (Map.Entry<String, String> digest : compute(file).entrySet()) {
+            final Path sidecar = getSidecar(file, digest.getKey());
+            Files.write(sidecar, digest.getValue().getBytes(StandardCharsets.US_ASCII));
+            sidecars.put(digest.getKey(), sidecar);
+        }
+        return sidecars;
+    }
+
+    /**
+     * Writes the digests of a file known to be unchanged since its sidecar files were written, keeping these sidecar
+     * files unless one of them is missing or older than the file.
+     *
+     * @param file the file
+     * @return the sidecar files by algorithm, in the order of the algorithms
+     * @throws IOException if the file cannot be read or a sidecar file cannot be written
+     */
+    public Map<String, Path> writeOutdatedSidecars(Path file) throws IOException {
+        final FileTime lastModified = Files.getLastModifiedTime(file);
+        final Map<String, Path> sidecars = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            final Path sidecar = getSidecar(file, algorithm);
+            if (!Files.isRegularFile(sidecar) || Files.getLastModifiedTime(sidecar).compareTo(lastModified) < 0) {
+                return writeSidecars(file);
+            }
+            sidecars.put(algorithm, sidecar);
+        }
+        return sidecars;
+    }
+
+    /**
+     * @param file the file
+     * @param algorithm the name of the digest algorithm
+     * @return the file the digest of the file is stored to, such as {@code app.ear.sha256} for {@code SHA-256}
+     */
+    public static Path getSidecar(Path file, String algorithm) {
+        return file.resolveSibling(file.getFileName() + "." + getExtension(algorithm));
+    }
+
+    /**
+     * @param algorithm the name of the digest algorithm
+     * @return the extension of the sidecar files of the algorithm, such as {@code sha256} for {@code SHA-256}
+     */
+    public static String getExtension(String algorithm) {
+        return algorithm.replace("-", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder value = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            value.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+/**
+ * Identifies the state of a file without reading it, so as to tell whether it was written since it was last seen.
+ * <p>
+ * The size and modification time of a file are not enough when the modification times are fixed, as they are by
+ * {@code outputTimestamp} for reproducible builds: a file rewritten with new content of the same size would seem
+ * unchanged. The stamp thus includes the change time of the file, which any write or attribute change updates and
+ * which cannot be set. On file systems without a change time, there is no stamp and the content of the file has to be
+ * compared instead.
+ */
+public final class FileStamp {
+    private FileStamp() {}
+
+    /**
+     * Computes the stamp of a file.
+     *
+     * @param file the file
+     * @param attrs the attributes of the file, as read without following links
+     * @return the stamp of the file, or {@code null} if its file system has no change time
+     * @throws IOException if the change time of the file cannot be read
+     */
+    public static String of(Path file, BasicFileAttributes attrs) throws IOException {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            return null;
+        }
+        final Instant changeTime =
+                ((FileTime) Files.getAttribute(file, "unix:ctime", LinkOption.NOFOLLOW_LINKS)).toInstant();
+        return attrs.size() + ":" + attrs.lastModifiedTime().toMillis() + ":" + changeTime.getEpochSecond() + "."
+                + changeTime.getNano();
+    }
+
+    /**
+     * Computes the stamp of a file.
+     *
+     * @param file the file
+     * @return the stamp of the file, or {@code null} if its file system has no change time
+     * @throws IOException if the attributes of the file cannot be read
+     */
+    public static String of(Path file) throws IOException {
+        return of(file, Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+    }
+}
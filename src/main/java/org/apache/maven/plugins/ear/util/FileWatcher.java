@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches some files and directory trees for changes with a {@link WatchService}, such as the inputs of an exploded
+ * EAR which is updated as they change.
+ * <p>
+ * A file is watched through its parent directory, so that it may be deleted and created again, as build tools do when
+ * they rewrite an archive. The directories created in a watched tree are watched as soon as they are reported. The
+ * changes are gathered until none is reported for a quiet period, so that a burst of changes, such as a module being
+ * rebuilt or a directory being copied, is reported at once.
+ */
+public class FileWatcher implements Closeable {
+    private final WatchService watchService;
+
+    private final Set<Path> files = new HashSet<>();
+
+    private final List<Path> trees = new ArrayList<>();
+
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * @param files the files to watch, which may not exist yet as long as their parent directory does
+     * @param trees the directory trees to watch
+     * @throws IOException if a directory cannot be watched
+     */
+    public FileWatcher(Collection<Path> files, Collection<Path> trees) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path file : files) {
+            final Path normalized = file.toAbsolutePath().normalize();
+            this.files.add(normalized);
+            if (normalized.getParent() != null && Files.isDirectory(normalized.getParent())) {
+                register(normalized.getParent());
+            }
+        }
+        for (Path tree : trees) {
+            final Path normalized = tree.toAbsolutePath().normalize();
+            this.trees.add(normalized);
+            registerTree(normalized, null);
+        }
+    }
+
+    /**
+     * @return the number of directories watched
+     */
+    public int getWatchedDirectories() {
+        return directories.size();
+    }
+
+    /**
+     * Waits for changes of the watched files and trees, then until no change is reported for a quiet period.
+     *
+     * @param quietMillis the quiet period, in milliseconds
+     * @param timeoutMillis the maximum time to wait for a first change, in milliseconds, or {@code 0} to wait forever
+     * @return the changed files, sorted; empty if the timeout elapsed
+     * @throws IOException if a new directory cannot be watched
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Set<Path> awaitChanges(long quietMillis, long timeoutMillis) throws IOException, InterruptedException {
+        final Set<Path> changes = new TreeSet<>();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (changes.isEmpty()) {
+            final WatchKey key;
+            if (timeoutMillis <= 0) {
+                key = watchService.take();
+            } else {
+                final long remaining = deadline - System.nanoTime();
+                key = remaining > 0 ? watchService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (key == null) {
+                    return changes;
+                }
+            }
+            process(key, changes);
+        }
+        for (WatchKey key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+                key != null;
+                key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) {
+            process(key, changes);
+        }
+        return changes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void process(WatchKey key, Set<Path> changes) throws IOException {
+        final Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                // a key of a directory which is not watchable anymore
+                break;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // some events were lost
+                changes.add(directory);
+                continue;
+            }
+            final Path path = directory.resolve((Path) event.context());
+            if (files.contains(path)) {
+                changes.add(path);
+            } else if (isInTree(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    registerTree(path, changes);
+                } else {
+                    changes.add(path);
+                }
+            }
+        }
+        if (!key.reset()) {
+            // the directory is not watchable anymore, such as a deleted directory
+            directories.remove(key);
+        }
+    }
+
+    private boolean isInTree(Path path) {
+        for (Path tree : trees) {
+            if (path.startsWith(tree)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watches the directories of a tree, adding its files to the changes if given.
+     */
+    private void registerTree(Path tree, final Set<Path> changes) throws IOException {
+        if (!Files.isDirectory(tree)) {
+            return;
+        }
+        Files.walkFileTree(tree, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (changes != null) {
+                    changes.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path directory) throws IOException {
+        if (directories.containsValue(directory)) {
+            return;
+        }
+        final WatchKey key = directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, directory);
+    }
+}
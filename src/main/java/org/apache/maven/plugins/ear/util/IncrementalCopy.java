@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers how the files of a copy, such as the filtered copy of the EAR sources, were produced, so that the files
+ * whose source content and filter values did not change are not copied again.
+ * <p>
+ * Each copied file is recorded with the digest of its source, the fingerprint of the filter values it was filtered
+ * with, if any, and the {@link FileStamp} of the copy, so that a copy modified or deleted since is produced again even
+ * when the modification times are fixed by {@code outputTimestamp}. On file systems without file stamps, the digest of
+ * the copy is recorded instead. The records may be checked and updated concurrently.
+ */
+public class IncrementalCopy {
+    private static final String NOT_FILTERED = "-";
+
+    private final Path stateFile;
+
+    private final String filterFingerprint;
+
+    private final Properties previous = new Properties();
+
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+
+    /**
+     * @param stateFile the file the records are stored to, read if it exists
+     * @param filterFingerprint the fingerprint of the filter values of this copy
+     * @throws IOException if the state file cannot be read
+     */
+    public IncrementalCopy(Path stateFile, String filterFingerprint) throws IOException {
+        this.stateFile = stateFile;
+        this.filterFingerprint = filterFingerprint;
+        if (Files.isRegularFile(stateFile)) {
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                previous.load(in);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a file was copied from the same source content with the same filter values, and was not modified
+     * since. A file which is up to date is recorded again.
+     *
+     * @param name the relative path of the file
+     * @param sourceDigest the digest of its source, as computed by {@link #digest(Path)}
+     * @param filtered whether the file is filtered
+     * @param target the copy
+     * @return {@code true} if the copy does not need to be produced again
+     * @throws IOException if the attributes or the content of the copy cannot be read
+     */
+    public boolean isUpToDate(String name, String sourceDigest, boolean filtered, Path target) throws IOException {
+        final String record = previous.getProperty(name);
+        if (record == null || !Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        if (!record.equals(toRecord(sourceDigest, filtered, target))) {
+            return false;
+        }
+        current.put(name, record);
+        return true;
+    }
+
+    /**
+     * Records a file which was just copied.
+     *
+     * @param name the relative path of the file
+     * @param sourceDigest the digest of its source
+     * @param filtered whether the file was filtered
+     * @param target the copy
+     * @throws IOException if the attributes or the content of the copy cannot be read
+     */
+    public void record(String name, String sourceDigest, boolean filtered, Path target) throws IOException {
+        current.put(name, toRecord(sourceDigest, filtered, target));
+    }
+
+    /**
+     * Stores the records of the files checked or copied since this instance was created, forgetting the others.
+     *
+     * @throws IOException if the state file cannot be written
+     */
+    public void store() throws IOException {
+        final Properties properties = new Properties();
+        properties.putAll(current);
+        Files.createDirectories(stateFile.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(stateFile)) {
+            properties.store(out, null);
+        }
+    }
+
+    private String toRecord(String sourceDigest, boolean filtered, Path target) throws IOException {
+        String stamp = FileStamp.of(target);
+        if (stamp == null) {
+            stamp = digest(target);
+        }
+        return sourceDigest + ':' + (filtered ? filterFingerprint : NOT_FILTERED) + ':' + stamp;
+    }
+
+    /**
+     * Computes the digest of the content of a file.
+     *
+     * @param file the file
+     * @return the hexadecimal SHA-256 digest of its content
+     * @throws IOException if the file cannot be read
+     */
+    public static String digest(Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        final StringBuilder value = new StringBuilder();
+        for (byte b : digest.digest()) {
+            value.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return value.toString();
+    }
+
+    /**
+     * Copies a file without filtering it. The content of a regular file is transferred between the file channels,
+     * which lets the operating system copy it without going through the Java heap; a symbolic link is copied as is.
+     *
+     * @param source the file to copy
+     * @param target the copy, replaced if it exists
+     * @throws IOException if the file cannot be copied
+     */
+    public static void transfer(Path source, Path target) throws IOException {
+        if (!Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS)) {
+            Files.copy(source, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        // do not write through a link to another file
+        Files.deleteIfExists(target);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out =
+                        FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            final long size = in.size();
+            for (long position = 0; position < size; ) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    // the source was truncated
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Computes a digest of the inputs of an execution, so that an output built from the same inputs can be reused.
+ * <p>
+ * Large inputs, such as the module artifacts, are identified by their path, size and modification time, which is
+ * enough to detect a rebuilt or re-resolved file without reading it. Small inputs which may be rewritten with the same
+ * content, such as the generated deployment descriptors, are identified by their content.
+ * <p>
+ * The fingerprint is stored along with the size and modification time of the outputs, so that outputs which were
+ * modified or deleted since are not reused.
+ */
+public class InputFingerprint {
+    private static final String FINGERPRINT = "fingerprint";
+
+    private static final String OUTPUTS = "outputs";
+
+    private static final String OUTPUT_SIZE = "output.size.";
+
+    private static final String OUTPUT_LAST_MODIFIED = "output.lastModified.";
+
+    private final MessageDigest digest;
+
+    public InputFingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a named value to the fingerprint.
+     *
+     * @param name the name of the input
+     * @param value its value, which may be {@code null}
+     * @return this fingerprint
+     */
+    public InputFingerprint add(String name, Object value) {
+        update(name);
+        update(String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Adds a named binary value to the fingerprint.
+     *
+     * @param name the name of the input
+     * @param value its value
+     * @return this fingerprint
+     */
+    public InputFingerprint add(String name, byte[] value) {
+        update(name);
+        digest.update(value);
+        update("");
+        return this;
+    }
+
+    /**
+     * Adds the sorted entries of a map to the fingerprint.
+     *
+     * @param name the name of the input
+     * @param values the entries to add, which may be {@code null}
+     * @return this fingerprint
+     */
+    public InputFingerprint addAll(String name, Map<?, ?> values) {
+        update(name);
+        if (values != null) {
+            final Map<String, String> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+            }
+            for (Map.Entry<String, String> entry : sorted.entrySet()) {
+                update(entry.getKey());
+                update(entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the path, size and modification time of a file to the fingerprint. A directory, such as the output directory
+     * of a module of the reactor, is added as by {@link #addDirectory(String, File)}.
+     *
+     * @param name the name of the input
+     * @param file the file, which may be {@code null} or not exist
+     * @return this fingerprint
+     * @throws IOException if the attributes of the file cannot be read
+     */
+    public InputFingerprint addFileStatus(String name, File file) throws IOException {
+        if (file != null && file.isDirectory()) {
+            return addDirectory(name, file);
+        }
+        update(name);
+        if (file == null || !file.exists()) {
+            update("-");
+        } else {
+            final BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            update(file.getAbsolutePath());
+            update(attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+        }
+        return this;
+    }
+
+    /**
+     * Adds the content of a file to the fingerprint.
+     *
+     * @param name the name of the input
+     * @param file the file, which may be {@code null} or not exist
+     * @return this fingerprint
+     * @throws IOException if the file cannot be read
+     */
+    public InputFingerprint addFileContent(String name, File file) throws IOException {
+        update(name);
+        if (file == null || !file.isFile()) {
+            update("-");
+        } else {
+            final byte[] buffer = new byte[8192];
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+            update("");
+        }
+        return this;
+    }
+
+    /**
+     * Adds the relative path, size and modification time of the files of a directory to the fingerprint.
+     *
+     * @param name the name of the input
+     * @param directory the directory, which may be {@code null} or not exist
+     * @return this fingerprint
+     * @throws IOException if the directory cannot be walked
+     */
+    public InputFingerprint addDirectory(String name, File directory) throws IOException {
+        update(name);
+        if (directory == null || !directory.isDirectory()) {
+            update("-");
+            return this;
+        }
+        return addFiles(new PathScanner().list(directory.toPath()));
+    }
+
+    /**
+     * Adds the relative path, size and modification time of some files to the fingerprint, such as the files of a
+     * directory listed by a {@link PathScanner}.
+     *
+     * @param name the name of the input
+     * @param files the attributes of the files by relative path
+     * @return this fingerprint
+     */
+    public InputFingerprint addFiles(String name, Map<String, BasicFileAttributes> files) {
+        update(name);
+        return addFiles(files);
+    }
+
+    private InputFingerprint addFiles(Map<String, BasicFileAttributes> files) {
+        final Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+            if (file.getValue().isRegularFile()) {
+                sorted.put(
+                        file.getKey().replace('\\', '/'),
+                        file.getValue().size() + ":" + file.getValue().lastModifiedTime().toMillis());
+            }
+        }
+        for (Map.Entry<String, String> file : sorted.entrySet()) {
+            update(file.getKey());
+            update(file.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * @return the hexadecimal value of the fingerprint; no input can be added afterwards
+     */
+    public String getValue() {
+        final StringBuilder value = new StringBuilder();
+        for (byte b : digest.digest()) {
+            value.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return value.toString();
+    }
+
+    private void update(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Tells whether some outputs were built from inputs with the given fingerprint and were not modified since.
+     *
+     * @param fingerprintFile the file the fingerprint of the outputs was stored to
+     * @param fingerprint the fingerprint of the current inputs
+     * @param outputs the outputs
+     * @return {@code true} if the outputs can be reused
+     * @throws IOException if the fingerprint file cannot be read
+     */
+    public static boolean isUpToDate(File fingerprintFile, String fingerprint, List<File> outputs)
+            throws IOException {
+        if (!fingerprintFile.isFile()) {
+            return false;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(fingerprintFile.toPath())) {
+            properties.load(in);
+        }
+        if (!fingerprint.equals(properties.getProperty(FINGERPRINT))
+                || !String.valueOf(outputs.size()).equals(properties.getProperty(OUTPUTS))) {
+            return false;
+        }
+        for (int i = 0; i < outputs.size(); i++) {
+            final File output = outputs.get(i);
+            if (!output.isFile()
+                    || !String.valueOf(output.length()).equals(properties.getProperty(OUTPUT_SIZE + i))
+                    || !String.valueOf(output.lastModified())
+                            .equals(properties.getProperty(OUTPUT_LAST_MODIFIED + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the fingerprint of the inputs some outputs were built from.
+     *
+     * @param fingerprintFile the file to store the fingerprint to
+     * @param fingerprint the fingerprint of the inputs
+     * @param outputs the outputs
+     * @throws IOException if the fingerprint file cannot be written
+     */
+    public static void store(File fingerprintFile, String fingerprint, List<File> outputs) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        properties.setProperty(OUTPUTS, String.valueOf(outputs.size()));
+        for (int i = 0; i < outputs.size(); i++) {
+            properties.setProperty(OUTPUT_SIZE + i, String.valueOf(outputs.get(i).length()));
+            properties.setProperty(OUTPUT_LAST_MODIFIED + i, String.valueOf(outputs.get(i).lastModified()));
+        }
+        Files.createDirectories(fingerprintFile.toPath().toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(fingerprintFile.toPath())) {
+            properties.store(out, null);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A package-to-jar index of the libraries bundled in the EAR, written in the
+ * <a href="https://docs.oracle.com/javase/8/docs/technotes/guides/jar/jar.html#JAR_Index">JarIndex</a> format so that
+ * a class loader can go straight to the jar providing a given package instead of probing every library in turn.
+ * <p>
+ * Only the central directory of each library is read, and the libraries are scanned in parallel.
+ */
+public class JarIndex {
+    /**
+     * The location of the index within the EAR.
+     */
+    public static final String INDEX_NAME = "META-INF/INDEX.LIST";
+
+    private static final String INDEX_VERSION = "JarIndex-Version: 1.0";
+
+    private static final String JAR_EXTENSION = ".jar";
+
+    private final Map<String, Set<String>> packagesByJar;
+
+    private JarIndex(Map<String, Set<String>> packagesByJar) {
+        this.packagesByJar = packagesByJar;
+    }
+
+    /**
+     * Builds the index of the jar files located directly in the given library directory.
+     *
+     * @param baseDirectory the root of the exploded EAR
+     * @param libDirectory the library directory, relative to {@code baseDirectory}
+     * @param threads the maximum number of libraries to scan concurrently
+     * @return the index, empty if the library directory does not exist
+     * @throws IOException if a library could not be read
+     */
+    public static JarIndex scan(Path baseDirectory, String libDirectory, int threads) throws IOException {
+        final Path libPath = baseDirectory.resolve(libDirectory).normalize();
+        final List<Path> jars = new ArrayList<>();
+        if (Files.isDirectory(libPath)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(libPath, "*" + JAR_EXTENSION)) {
+                for (Path jar : stream) {
+                    if (Files.isRegularFile(jar)) {
+                        jars.add(jar);
+                    }
+                }
+            }
+        }
+        Collections.sort(jars);
+
+        String prefix = baseDirectory.normalize().relativize(libPath).toString().replace('\\', '/');
+        if (!prefix.isEmpty()) {
+            prefix += "/";
+        }
+
+        final Map<String, Set<String>> packagesByJar = new LinkedHashMap<>();
+        if (jars.isEmpty()) {
+            return new JarIndex(packagesByJar);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jars.size())));
+        try {
+            final List<Future<Set<String>>> futures = new ArrayList<>(jars.size());
+            for (final Path jar : jars) {
+                futures.add(executor.submit(() -> listPackages(jar)));
+            }
+            for (int i = 0; i < jars.size(); i++) {
+                packagesByJar.put(prefix + jars.get(i).getFileName(), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while indexing " + libPath);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to index " + libPath, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new JarIndex(packagesByJar);
+    }
+
+    /**
+     * Lists the packages (and top-level resources) of the given jar, following the rules of the JDK {@code jar -i}
+     * tool.
+     *
+     * @param jar the jar to read
+     * @return the sorted package names, using {@code /} as separator
+     * @throws IOException if the jar could not be read
+     */
+    static Set<String> listPackages(Path jar) throws IOException {
+        final Set<String> packages = new TreeSet<>();
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final String name = entries.nextElement().getName();
+                if (name.startsWith("META-INF/") || name.equals(JarFile.MANIFEST_NAME)) {
+                    continue;
+                }
+                final int pos = name.lastIndexOf('/');
+                if (pos > 0) {
+                    packages.add(name.substring(0, pos));
+                } else if (pos < 0) {
+                    packages.add(name);
+                }
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * @return the indexed packages, keyed by the path of the jar within the EAR
+     */
+    public Map<String, Set<String>> getPackagesByJar() {
+        return Collections.unmodifiableMap(packagesByJar);
+    }
+
+    /**
+     * @return {@code true} if no library has been indexed
+     */
+    public boolean isEmpty() {
+        return packagesByJar.isEmpty();
+    }
+
+    /**
+     * Writes the index to the given file, creating the parent directories if needed.
+     *
+     * @param indexFile the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void write(Path indexFile) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+            writer.write(INDEX_VERSION);
+            writer.write("\n\n");
+            for (Map.Entry<String, Set<String>> entry : packagesByJar.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write("\n");
+                for (String packageName : entry.getValue()) {
+                    writer.write(packageName);
+                    writer.write("\n");
+                }
+                writer.write("\n");
+            }
+        }
+    }
+}
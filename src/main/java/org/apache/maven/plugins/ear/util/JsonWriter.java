@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A minimal streaming writer of indented JSON documents, used for the machine-readable reports of the plugin.
+ */
+public class JsonWriter implements Closeable {
+    private static final String INDENT = "  ";
+
+    private final Writer out;
+
+    // One element per open object or array, true as long as it is empty
+    private final Deque<Boolean> scopes = new ArrayDeque<>();
+
+    private boolean afterName;
+
+    /**
+     * @param out the writer to write the document to
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        scopes.push(Boolean.TRUE);
+        return this;
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter endObject() throws IOException {
+        return end('}');
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        scopes.push(Boolean.TRUE);
+        return this;
+    }
+
+    /**
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter endArray() throws IOException {
+        return end(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name the member name
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter name(String name) throws IOException {
+        newElement();
+        writeString(name);
+        out.write(": ");
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * @param value the value, can be {@code null}
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * @param value the value
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * @param value the value
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(Boolean.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a member with a string value.
+     *
+     * @param name the member name
+     * @param value the value, can be {@code null}
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter member(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a member with a numeric value.
+     *
+     * @param name the member name
+     * @param value the value
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter member(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a member with a boolean value.
+     *
+     * @param name the member name
+     * @param value the value
+     * @return this writer
+     * @throws IOException in case of an I/O error
+     */
+    public JsonWriter member(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write('\n');
+        out.close();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (!scopes.isEmpty()) {
+            newElement();
+        }
+    }
+
+    private void newElement() throws IOException {
+        if (!scopes.pop()) {
+            out.write(',');
+        }
+        scopes.push(Boolean.FALSE);
+        newLine(scopes.size());
+    }
+
+    private JsonWriter end(char c) throws IOException {
+        if (!scopes.pop()) {
+            newLine(scopes.size());
+        }
+        out.write(c);
+        return this;
+    }
+
+    private void newLine(int depth) throws IOException {
+        out.write('\n');
+        for (int i = 0; i < depth; i++) {
+            out.write(INDENT);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Finds the libraries of an EAR which are not reachable from its modules, by reading the class references from the
+ * constant pool of their classes.
+ * <p>
+ * A library is reachable if a class of a module, or of a reachable library, references one of its classes, either as
+ * a type or as a class name in a string constant, which covers most classes loaded by name. Since a container loads
+ * some classes without any reference to them, the libraries providing services, tag libraries, web fragments or CDI
+ * beans are reachable too, as well as the libraries without classes, which cannot be analyzed. The nested archives of
+ * the modules, such as the libraries of a WAR, are analyzed separately and their references are added to the ones of
+ * their module: a module referencing a class of a library it bundles still references the library of the EAR
+ * providing the same class, which is thus reachable, since it may replace the bundled one in a skinny module.
+ * <p>
+ * The archives are analyzed in parallel, and the classes of each archive are cached by the digest of its content, so
+ * that only the new or updated archives are read again.
+ */
+public class LibraryAnalyzer {
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * The entries which make a container load the classes of a library without any reference to them.
+     */
+    private static final Pattern DISCOVERED_ENTRY = Pattern.compile(
+            "META-INF/services/.+|META-INF/.*\\.tld|META-INF/web-fragment\\.xml|META-INF/beans\\.xml");
+
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([\\w$/]+)[;<]");
+
+    private static final Pattern CLASS_NAME = Pattern.compile("[\\w$]+(?:[./][\\w$]+)+");
+
+    private static final String DISCOVERED = "A";
+
+    private static final String NOT_DISCOVERED = "-";
+
+    /**
+     * The version of the analysis, which invalidates the cached classes when it changes.
+     */
+    private static final int CACHE_FORMAT = 2;
+
+    private final Path cacheDirectory;
+
+    private final int threads;
+
+    private final AtomicInteger cacheHits = new AtomicInteger();
+
+    /**
+     * @param cacheDirectory the directory to cache the classes of the analyzed archives to, or {@code null}
+     * @param threads the maximum number of archives analyzed at once
+     */
+    public LibraryAnalyzer(Path cacheDirectory, int threads) {
+        this.cacheDirectory = cacheDirectory;
+        this.threads = threads;
+    }
+
+    /**
+     * Finds the libraries which are not reachable from the modules.
+     *
+     * @param modules the archives of the modules
+     * @param libraries the archives of the libraries
+     * @return the unreachable libraries, in the order they were given
+     * @throws IOException if an archive cannot be read
+     */
+    public Set<Path> findUnusedLibraries(Collection<Path> modules, Collection<Path> libraries) throws IOException {
+        final List<Path> archives = new ArrayList<>(modules);
+        archives.addAll(libraries);
+        final Map<Path, ArchiveClasses> classes = analyzeAll(archives);
+
+        final Map<String, Path> libraryByClass = new HashMap<>();
+        final Deque<Path> reachable = new ArrayDeque<>();
+        final Set<Path> unused = new LinkedHashSet<>();
+        for (Path library : libraries) {
+            final ArchiveClasses libraryClasses = classes.get(library);
+            if (libraryClasses.discovered || libraryClasses.defined.isEmpty()) {
+                reachable.add(library);
+            } else {
+                unused.add(library);
+                for (String definedClass : libraryClasses.defined) {
+                    libraryByClass.putIfAbsent(definedClass, library);
+                }
+            }
+        }
+
+        final Set<String> references = new HashSet<>();
+        for (Path module : modules) {
+            references.addAll(classes.get(module).referenced);
+        }
+        do {
+            while (!reachable.isEmpty()) {
+                references.addAll(classes.get(reachable.poll()).referenced);
+            }
+            for (String reference : references) {
+                final Path library = libraryByClass.get(reference);
+                if (library != null && unused.remove(library)) {
+                    reachable.add(library);
+                }
+            }
+            references.clear();
+        } while (!reachable.isEmpty());
+        return unused;
+    }
+
+    /**
+     * @return the number of archives whose classes were read from the cache
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    private Map<Path, ArchiveClasses> analyzeAll(List<Path> archives) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, archives.size())));
+        try {
+            final List<Future<ArchiveClasses>> futures = new ArrayList<>(archives.size());
+            for (Path archive : archives) {
+                futures.add(executor.submit(() -> analyze(archive)));
+            }
+            final Map<Path, ArchiveClasses> classes = new HashMap<>();
+            for (int i = 0; i < archives.size(); i++) {
+                classes.put(archives.get(i), futures.get(i).get());
+            }
+            return classes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing the libraries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ArchiveClasses analyze(Path archive) throws IOException {
+        final String digest = cacheDirectory != null
+                ? new InputFingerprint()
+                        .add("format", CACHE_FORMAT)
+                        .addFileContent("archive", archive.toFile())
+                        .getValue()
+                : null;
+        if (digest != null) {
+            final ArchiveClasses cached = readCache(cacheDirectory.resolve(digest));
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        final ArchiveClasses classes = new ArchiveClasses();
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+                final ZipEntry entry = entries.nextElement();
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    analyzeEntry(entry, in, classes, true);
+                }
+            }
+        }
+        classes.referenced.removeAll(classes.defined);
+        for (ArchiveClasses nestedClasses : classes.nested) {
+            classes.defined.addAll(nestedClasses.defined);
+            classes.referenced.addAll(nestedClasses.referenced);
+            classes.discovered |= nestedClasses.discovered;
+        }
+
+        if (digest != null) {
+            writeCache(cacheDirectory.resolve(digest), classes);
+        }
+        return classes;
+    }
+
+    private static void analyzeEntry(ZipEntry entry, InputStream in, ArchiveClasses classes, boolean nested)
+            throws IOException {
+        final String name = entry.getName();
+        if (entry.isDirectory()) {
+            return;
+        }
+        if (name.endsWith(CLASS_SUFFIX)) {
+            final String className = readClass(in, classes.referenced);
+            if (className != null) {
+                classes.defined.add(className);
+            }
+        } else if (DISCOVERED_ENTRY.matcher(name).matches()) {
+            classes.discovered = true;
+        } else if (nested && name.endsWith(".jar")) {
+            // the libraries of a WAR or a RAR, one level deep
+            final ZipInputStream nestedIn = new ZipInputStream(new FilterInputStream(in) {
+                @Override
+                public void close() {
+                    // closed by the caller
+                }
+            });
+            final ArchiveClasses nestedClasses = new ArchiveClasses();
+            for (ZipEntry nestedEntry = nestedIn.getNextEntry();
+                    nestedEntry != null;
+                    nestedEntry = nestedIn.getNextEntry()) {
+                analyzeEntry(nestedEntry, nestedIn, nestedClasses, false);
+            }
+            // the references between the classes of the nested library do not make other libraries reachable
+            nestedClasses.referenced.removeAll(nestedClasses.defined);
+            classes.nested.add(nestedClasses);
+        }
+    }
+
+    /**
+     * Reads the name of a class and the names of the classes it references from its constant pool.
+     *
+     * @param in the content of the class file, which is not closed
+     * @param referenced the set to add the internal names of the referenced classes to
+     * @return the internal name of the class, or {@code null} if the content is not a class file
+     * @throws IOException if the class file cannot be read
+     */
+    static String readClass(InputStream in, Set<String> referenced) throws IOException {
+        final DataInputStream data = new DataInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() {
+                // closed by the caller
+            }
+        });
+        if (data.readInt() != 0xCAFEBABE) {
+            return null;
+        }
+        data.readUnsignedShort(); // minor version
+        data.readUnsignedShort(); // major version
+
+        final int count = data.readUnsignedShort();
+        final String[] utf8 = new String[count];
+        final int[] classIndexes = new int[count];
+        final int[] stringIndexes = new int[count];
+        for (int i = 1; i < count; i++) {
+            final int tag = data.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = data.readUTF();
+                    break;
+                case 7: // Class
+                    classIndexes[i] = data.readUnsignedShort();
+                    break;
+                case 8: // String
+                    stringIndexes[i] = data.readUnsignedShort();
+                    break;
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    data.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    data.readUnsignedByte();
+                    data.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    data.readInt();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    data.readLong();
+                    // takes two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        data.readUnsignedShort(); // access flags
+        final int thisClass = data.readUnsignedShort();
+
+        for (int i = 1; i < count; i++) {
+            if (classIndexes[i] != 0) {
+                final String className = utf8[classIndexes[i]];
+                if (className.startsWith("[")) {
+                    addDescriptorClasses(className, referenced);
+                } else {
+                    referenced.add(className);
+                }
+            } else if (stringIndexes[i] != 0) {
+                // a class loaded by name
+                final String value = utf8[stringIndexes[i]];
+                if (CLASS_NAME.matcher(value).matches()) {
+                    referenced.add(value.replace('.', '/'));
+                }
+            } else if (utf8[i] != null && utf8[i].indexOf(';') > 0) {
+                // the descriptors and signatures of the fields, methods and annotations
+                addDescriptorClasses(utf8[i], referenced);
+            }
+        }
+        return utf8[classIndexes[thisClass]];
+    }
+
+    private static void addDescriptorClasses(String descriptor, Set<String> referenced) {
+        final Matcher matcher = DESCRIPTOR_CLASS.matcher(descriptor);
+        while (matcher.find()) {
+            referenced.add(matcher.group(1));
+        }
+    }
+
+    private static ArchiveClasses readCache(Path cacheFile) throws IOException {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        final ArchiveClasses classes = new ArchiveClasses();
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            classes.discovered = DISCOVERED.equals(reader.readLine());
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith("D")) {
+                    classes.defined.add(line.substring(1));
+                } else if (line.startsWith("R")) {
+                    classes.referenced.add(line.substring(1));
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static void writeCache(Path cacheFile, ArchiveClasses classes) throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        final Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + "." + UUID.randomUUID());
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(classes.discovered ? DISCOVERED : NOT_DISCOVERED);
+                writer.newLine();
+                for (String definedClass : classes.defined) {
+                    writer.write("D" + definedClass);
+                    writer.newLine();
+                }
+                for (String referencedClass : classes.referenced) {
+                    writer.write("R" + referencedClass);
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The classes defined and referenced by an archive.
+     */
+    private static final class ArchiveClasses {
+        private final Set<String> defined = new HashSet<>();
+
+        private final Set<String> referenced = new HashSet<>();
+
+        private final List<ArchiveClasses> nested = new ArrayList<>();
+
+        private boolean discovered;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Copies a module archive to the EAR work directory while removing and replacing some of its entries, typically the
+ * libraries of a skinny module and its manifest.
+ * <p>
+ * The archive is streamed to its destination in a single pass: the untouched entries are copied without being
+ * decompressed nor buffered, and only the central directory of the source archive is held in memory. ZIP64 extensions
+ * are written as needed, so archives of more than 4 GB or 65535 entries are supported.
+ */
+public class ModuleArchiveRewriter implements Closeable {
+    /**
+     * The default size of the buffer used to write the destination archive.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Path sourcePath;
+
+    private final ZipFile source;
+
+    private final Set<String> removedEntries = new HashSet<>();
+
+    private final Map<String, byte[]> replacedEntries = new LinkedHashMap<>();
+
+    private FileTime addedEntriesTime;
+
+    /**
+     * @param source the module archive
+     * @throws IOException if the archive cannot be read
+     */
+    public ModuleArchiveRewriter(Path source) throws IOException {
+        this.sourcePath = source;
+        this.source = ZipFile.builder().setPath(source).get();
+    }
+
+    /**
+     * @param name the name of an entry
+     * @return {@code true} if the source archive has an entry of that name
+     */
+    public boolean hasEntry(String name) {
+        return source.getEntry(name) != null;
+    }
+
+    /**
+     * @param name the name of an entry
+     * @return the uncompressed size of the entry, or {@code 0} if it does not exist or its size is unknown
+     */
+    public long getSize(String name) {
+        final ZipArchiveEntry entry = source.getEntry(name);
+        return entry != null ? Math.max(0, entry.getSize()) : 0;
+    }
+
+    /**
+     * @param name the name of an existing entry
+     * @return the content of the entry, to be closed by the caller
+     * @throws IOException if the entry does not exist or cannot be read
+     */
+    public InputStream getInputStream(String name) throws IOException {
+        final ZipArchiveEntry entry = source.getEntry(name);
+        if (entry == null) {
+            throw new IOException("No entry " + name + " in " + sourcePath);
+        }
+        return source.getInputStream(entry);
+    }
+
+    /**
+     * Leaves out an entry of the destination archive.
+     *
+     * @param name the name of the entry
+     */
+    public void removeEntry(String name) {
+        removedEntries.add(name);
+    }
+
+    /**
+     * Replaces the content of an entry, or adds it if the source archive does not have it. The replaced entry keeps
+     * its modification time.
+     *
+     * @param name the name of the entry
+     * @param content the new content of the entry
+     */
+    public void replaceEntry(String name, byte[] content) {
+        replacedEntries.put(name, content);
+    }
+
+    /**
+     * @param addedEntriesTime the modification time of the entries not found in the source archive, or {@code null}
+     *            to use the current time
+     */
+    public void setAddedEntriesTime(FileTime addedEntriesTime) {
+        this.addedEntriesTime = addedEntriesTime;
+    }
+
+    /**
+     * Adds the changes made to the source archive to a fingerprint, so that the destination archive can be identified
+     * by the content of the source archive and these changes.
+     *
+     * @param fingerprint the fingerprint to add the changes to
+     */
+    public void addChanges(InputFingerprint fingerprint) {
+        fingerprint.add("removedEntries", new TreeSet<>(removedEntries));
+        for (Map.Entry<String, byte[]> replaced : replacedEntries.entrySet()) {
+            fingerprint.add(replaced.getKey(), replaced.getValue());
+        }
+        fingerprint.add("addedEntriesTime", addedEntriesTime != null ? addedEntriesTime.toMillis() : null);
+    }
+
+    /**
+     * Writes the destination archive: the added entries and their parent directories first, then the entries of the
+     * source archive in their original order.
+     *
+     * @param destination the destination archive, replaced if it exists; an existing file is deleted rather than
+     *            overwritten, since it may be a link to another file
+     * @param bufferSize the size of the write buffer
+     * @return the number of bytes written
+     * @throws IOException if the destination archive cannot be written
+     */
+    public long writeTo(Path destination, int bufferSize) throws IOException {
+        boolean written = false;
+        Files.deleteIfExists(destination);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(destination), bufferSize);
+                ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
+            zip.setUseZip64(Zip64Mode.AsNeeded);
+
+            final FileTime time =
+                    addedEntriesTime != null ? addedEntriesTime : FileTime.fromMillis(System.currentTimeMillis());
+            final Set<String> addedDirectories = new HashSet<>();
+            for (Map.Entry<String, byte[]> replaced : replacedEntries.entrySet()) {
+                if (!hasEntry(replaced.getKey())) {
+                    addParentDirectories(zip, replaced.getKey(), time, addedDirectories);
+                    putEntry(zip, new ZipArchiveEntry(replaced.getKey()), replaced.getValue(), time);
+                }
+            }
+
+            final Enumeration<ZipArchiveEntry> entries = source.getEntries();
+            while (entries.hasMoreElements()) {
+                final ZipArchiveEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (removedEntries.contains(name)) {
+                    continue;
+                }
+                final byte[] content = replacedEntries.get(name);
+                if (content != null) {
+                    putEntry(zip, new ZipArchiveEntry(name), content, entry.getLastModifiedTime());
+                } else {
+                    try (InputStream raw = source.getRawInputStream(entry)) {
+                        zip.addRawArchiveEntry(entry, raw);
+                    }
+                }
+            }
+            zip.finish();
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(destination);
+            }
+        }
+        return Files.size(destination);
+    }
+
+    private void addParentDirectories(
+            ZipArchiveOutputStream zip, String name, FileTime time, Set<String> addedDirectories) throws IOException {
+        for (int i = name.indexOf('/'); i > 0; i = name.indexOf('/', i + 1)) {
+            final String directory = name.substring(0, i + 1);
+            if (!hasEntry(directory) && addedDirectories.add(directory)) {
+                putEntry(zip, new ZipArchiveEntry(directory), new byte[0], time);
+            }
+        }
+    }
+
+    private static void putEntry(ZipArchiveOutputStream zip, ZipArchiveEntry entry, byte[] content, FileTime time)
+            throws IOException {
+        entry.setMethod(entry.isDirectory() ? ZipEntry.STORED : ZipEntry.DEFLATED);
+        entry.setSize(content.length);
+        if (entry.isDirectory()) {
+            entry.setCrc(0);
+        }
+        if (time != null) {
+            entry.setLastModifiedTime(time);
+        }
+        zip.putArchiveEntry(entry);
+        zip.write(content);
+        zip.closeArchiveEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A content-addressed store of processed modules, such as skinny modules with a rewritten manifest, which can be
+ * shared by all the EAR projects of a machine.
+ * <p>
+ * Each module is stored under a key computed from the digest of its source and of the processing applied to it, as a
+ * {@code <key>/module} file whose directory modification time is its last use. Modules are hard linked to and from
+ * the store when the file system allows it, and copied otherwise. Since a hard link shares the content of the stored
+ * module, linking is only safe when the linked files are always replaced rather than modified in place: the modules
+ * of an exploded EAR, which an application server may modify, are copied instead.
+ * <p>
+ * The store may be used by concurrent builds: modules are moved into the store atomically once complete, and a module
+ * removed while being fetched is simply reported as missing. When the store exceeds its maximum size, the least
+ * recently used modules are removed while holding a lock on the store.
+ */
+public class ModuleStore {
+    private static final String MODULE_FILE = "module";
+
+    private static final String LOCK_FILE = ".lock";
+
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    /**
+     * The age after which a temporary file is considered left over by a build which was killed.
+     */
+    private static final long TEMP_FILE_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * File locks are held by the whole JVM, so concurrent builds of the same JVM are serialized with this lock first.
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    private final boolean linked;
+
+    /**
+     * @param directory the directory of the store, created if it does not exist
+     * @param maxSize the maximum size in bytes of the stored modules
+     * @param linked whether modules may be hard linked to and from the store, which requires that the fetched and put
+     *            modules are never modified in place
+     */
+    public ModuleStore(Path directory, long maxSize, boolean linked) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.linked = linked;
+    }
+
+    /**
+     * Fetches a module from the store.
+     *
+     * @param key the key of the module
+     * @param destination the file to link or copy the module to, replaced if it exists
+     * @return {@code true} if the module was found, {@code false} otherwise
+     * @throws IOException if the module cannot be linked nor copied
+     */
+    public boolean fetch(String key, Path destination) throws IOException {
+        final Path entry = directory.resolve(key);
+        final Path module = entry.resolve(MODULE_FILE);
+        if (!Files.isRegularFile(module)) {
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            // Never write through an existing link to a stored module
+            Files.deleteIfExists(destination);
+            if (!linked || !link(module, destination)) {
+                Files.copy(module, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            // removed by a concurrent build
+            return false;
+        }
+    }
+
+    /**
+     * Puts a module into the store, then removes the least recently used modules if the store exceeds its maximum
+     * size. The module is left untouched and, if modules are linked, must not be modified in place afterwards.
+     *
+     * @param key the key of the module
+     * @param module the module to store
+     * @throws IOException if the module cannot be stored
+     */
+    public void put(String key, Path module) throws IOException {
+        final Path entry = directory.resolve(key);
+        if (Files.isRegularFile(entry.resolve(MODULE_FILE))) {
+            return;
+        }
+        Files.createDirectories(directory);
+        final Path temp = directory.resolve(TEMP_PREFIX + UUID.randomUUID());
+        try {
+            if (!linked || !link(module, temp)) {
+                Files.copy(module, temp);
+            }
+            Files.createDirectories(entry);
+            // the module of a given key is always the same, so a concurrent put may win
+            Files.move(temp, entry.resolve(MODULE_FILE), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /**
+     * Removes the least recently used modules until the store does not exceed its maximum size.
+     *
+     * @throws IOException if the store cannot be locked or listed
+     */
+    void evict() throws IOException {
+        synchronized (JVM_LOCK) {
+            try (FileChannel channel = FileChannel.open(
+                            directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                final List<Path> entries = new ArrayList<>();
+                long size = 0;
+                final long now = System.currentTimeMillis();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path path : stream) {
+                        final String name = path.getFileName().toString();
+                        if (name.startsWith(TEMP_PREFIX)) {
+                            if (now - Files.getLastModifiedTime(path).toMillis() > TEMP_FILE_MAX_AGE) {
+                                Files.deleteIfExists(path);
+                            }
+                        } else if (Files.isRegularFile(path.resolve(MODULE_FILE))) {
+                            entries.add(path);
+                            size += Files.size(path.resolve(MODULE_FILE));
+                        }
+                    }
+                }
+                if (size <= maxSize) {
+                    return;
+                }
+
+                entries.sort(Comparator.comparingLong(ModuleStore::getLastUse));
+                for (Path entry : entries) {
+                    if (size <= maxSize) {
+                        break;
+                    }
+                    final Path module = entry.resolve(MODULE_FILE);
+                    final long moduleSize = Files.size(module);
+                    try {
+                        Files.delete(module);
+                        Files.delete(entry);
+                        size -= moduleSize;
+                    } catch (IOException e) {
+                        // in use on a file system which does not allow it, try the next one
+                    }
+                }
+            }
+        }
+    }
+
+    private static long getLastUse(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Hard links a file, if the file system supports it.
+     *
+     * @return {@code true} if the link was created, {@code false} if the file must be copied instead
+     */
+    private static boolean link(Path existing, Path link) throws NoSuchFileException {
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | IOException | SecurityException e) {
+            // different file stores, or no hard link support
+            return false;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.AbstractScanner;
+
+/**
+ * Lists the files of directory trees and selects them with include and exclude patterns, as the plexus
+ * {@code DirectoryScanner} does, but walking each tree only once per instance.
+ * <p>
+ * A tree is walked with {@link Files#walkFileTree} on first use, following symbolic links, and its files are kept
+ * with the attributes read by the walk, so that the selections made afterwards and the checks of the modification
+ * times do not touch the file system. The patterns are compiled once to {@link PathMatcher}s and support the Ant
+ * syntax ({@code **}, {@code *} and {@code ?}) as well as the {@code %regex[...]} and {@code %ant[...]} syntaxes.
+ * <p>
+ * The relative paths use the separator of the platform, as the ones of the {@code DirectoryScanner}. A tree modified
+ * after its first use must be {@link #forget(Path) forgotten} to be walked again.
+ */
+public class PathScanner {
+    private static final String REGEX_PREFIX = "%regex[";
+
+    private static final String ANT_PREFIX = "%ant[";
+
+    private final Map<Path, Map<String, BasicFileAttributes>> trees = new ConcurrentHashMap<>();
+
+    private final Map<String, PathMatcher> matchers = new ConcurrentHashMap<>();
+
+    /**
+     * Lists the files of a directory tree.
+     *
+     * @param directory the root of the tree
+     * @return the attributes of the files of the tree by relative path, sorted by path; empty if the directory does not
+     *         exist
+     * @throws IOException if the tree cannot be walked
+     */
+    public Map<String, BasicFileAttributes> list(Path directory) throws IOException {
+        final Path key = directory.toAbsolutePath().normalize();
+        Map<String, BasicFileAttributes> files = trees.get(key);
+        if (files == null) {
+            files = Collections.unmodifiableMap(walk(key));
+            trees.put(key, files);
+        }
+        return files;
+    }
+
+    /**
+     * Selects the files of a directory tree.
+     *
+     * @param directory the root of the tree
+     * @param includes the patterns of the files to include, or {@code null} to include all the files
+     * @param excludes the patterns of the files to exclude, or {@code null}
+     * @param defaultExcludes whether to exclude the files of the version control systems, as
+     *            {@link AbstractScanner#DEFAULTEXCLUDES}
+     * @return the attributes of the selected files by relative path, sorted by path
+     * @throws IOException if the tree cannot be walked
+     */
+    public Map<String, BasicFileAttributes> scan(
+            Path directory, String[] includes, String[] excludes, boolean defaultExcludes) throws IOException {
+        final List<PathMatcher> includeMatchers = includes == null ? null : compileAll(includes);
+        final List<PathMatcher> excludeMatchers = compileAll(excludes != null ? excludes : new String[0]);
+        if (defaultExcludes) {
+            excludeMatchers.addAll(compileAll(AbstractScanner.DEFAULTEXCLUDES));
+        }
+
+        final Map<String, BasicFileAttributes> selected = new LinkedHashMap<>();
+        for (Map.Entry<String, BasicFileAttributes> file : list(directory).entrySet()) {
+            final Path relativePath = directory.getFileSystem().getPath(file.getKey());
+            if ((includeMatchers == null || matchesAny(includeMatchers, relativePath))
+                    && !matchesAny(excludeMatchers, relativePath)) {
+                selected.put(file.getKey(), file.getValue());
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Forgets the files of a directory tree, so that it is walked again on next use.
+     *
+     * @param directory the root of the tree
+     */
+    public void forget(Path directory) {
+        trees.remove(directory.toAbsolutePath().normalize());
+    }
+
+    private List<PathMatcher> compileAll(String[] patterns) {
+        final List<PathMatcher> compiled = new ArrayList<>(patterns.length);
+        for (String pattern : patterns) {
+            compiled.add(matchers.computeIfAbsent(pattern, PathScanner::compile));
+        }
+        return compiled;
+    }
+
+    private static boolean matchesAny(List<PathMatcher> pathMatchers, Path relativePath) {
+        for (PathMatcher matcher : pathMatchers) {
+            if (matcher.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, BasicFileAttributes> walk(final Path directory) throws IOException {
+        final Map<String, BasicFileAttributes> files = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        Files.walkFileTree(
+                directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (!attrs.isDirectory()) {
+                            files.put(directory.relativize(file).toString(), attrs);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                        if (exc instanceof FileSystemLoopException) {
+                            // a link to one of its parent directories
+                            return FileVisitResult.CONTINUE;
+                        }
+                        throw exc;
+                    }
+                });
+        return files;
+    }
+
+    /**
+     * Compiles an include or exclude pattern. An Ant pattern is matched against the relative path with {@code /}
+     * separators, and a pattern ending with a separator matches everything below it; a {@code %regex[...]} pattern
+     * is matched against the relative path with the separator of the platform, as by the {@code DirectoryScanner}.
+     *
+     * @param pattern the pattern
+     * @return the matcher of the relative paths
+     */
+    public static PathMatcher compile(String pattern) {
+        final String trimmed = pattern.trim();
+        if (trimmed.length() > REGEX_PREFIX.length() + 1
+                && trimmed.startsWith(REGEX_PREFIX)
+                && trimmed.endsWith("]")) {
+            final Pattern regex = Pattern.compile(trimmed.substring(REGEX_PREFIX.length(), trimmed.length() - 1));
+            return path -> regex.matcher(path.toString()).matches();
+        }
+
+        String antPattern = trimmed;
+        if (antPattern.length() > ANT_PREFIX.length() + 1
+                && antPattern.startsWith(ANT_PREFIX)
+                && antPattern.endsWith("]")) {
+            antPattern = antPattern.substring(ANT_PREFIX.length(), antPattern.length() - 1);
+        }
+        antPattern = antPattern.replace('\\', '/');
+        if (antPattern.endsWith("/")) {
+            antPattern += "**";
+        }
+        final Pattern regex = Pattern.compile(toRegex(antPattern));
+        return path -> regex.matcher(path.toString().replace(File.separatorChar, '/')).matches();
+    }
+
+    /**
+     * Translates an Ant pattern with {@code /} separators to a regular expression.
+     */
+    static String toRegex(String antPattern) {
+        final String[] segments = antPattern.split("/", -1);
+        final StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            final boolean last = i == segments.length - 1;
+            final String segment = segments[i];
+            if ("**".equals(segment)) {
+                if (!last) {
+                    // zero or more directories, including the separator following them
+                    regex.append("(?:[^/]*/)*");
+                } else if (regex.length() > 0 && regex.charAt(regex.length() - 1) == '/') {
+                    // the directory itself or anything below it
+                    regex.setLength(regex.length() - 1);
+                    regex.append("(?:/.*)?");
+                } else {
+                    regex.append(".*");
+                }
+                continue;
+            }
+            final StringBuilder literal = new StringBuilder();
+            for (char c : segment.toCharArray()) {
+                if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? "[^/]*" : "[^/]");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            if (!last) {
+                regex.append('/');
+            }
+        }
+        return regex.toString();
+    }
+}
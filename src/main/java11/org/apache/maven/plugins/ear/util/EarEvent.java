@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event covering one of the hot paths of the plugin, for a given module.
+ * <p>
+ * This is the Java 11 implementation of the class, recording {@link jdk.jfr.Event}s. Whether an event is enabled is
+ * asked to its cached {@link EventType}, and a disabled event is not even created, so that nothing is allocated nor
+ * measured when no recording is running.
+ */
+public class EarEvent {
+    private static final EarEvent DISABLED = new EarEvent(null);
+
+    private static final EventType MODULE_STAGING = EventType.getEventType(ModuleStaging.class);
+
+    private static final EventType UNPACK = EventType.getEventType(Unpack.class);
+
+    private static final EventType MANIFEST_REWRITE = EventType.getEventType(ManifestRewrite.class);
+
+    private static final EventType SKINNY_WAR_STRIP = EventType.getEventType(SkinnyWarStrip.class);
+
+    private static final EventType DESCRIPTOR_WRITE = EventType.getEventType(DescriptorWrite.class);
+
+    private static final EventType ARCHIVE_WRITE = EventType.getEventType(ArchiveWrite.class);
+
+    private final ModuleEvent event;
+
+    private EarEvent(ModuleEvent event) {
+        this.event = event;
+    }
+
+    /**
+     * @return an event covering the staging of a module to the work directory
+     */
+    public static EarEvent beginModuleStaging() {
+        return begin(MODULE_STAGING, ModuleStaging::new);
+    }
+
+    /**
+     * @return an event covering the extraction of a module to the work directory
+     */
+    public static EarEvent beginUnpack() {
+        return begin(UNPACK, Unpack::new);
+    }
+
+    /**
+     * @return an event covering the rewrite of the manifest Class-Path of a module
+     */
+    public static EarEvent beginManifestRewrite() {
+        return begin(MANIFEST_REWRITE, ManifestRewrite::new);
+    }
+
+    /**
+     * @return an event covering the removal of the libraries bundled in a skinny module, the bytes read being the
+     *         size of the removed libraries
+     */
+    public static EarEvent beginSkinnyWarStrip() {
+        return begin(SKINNY_WAR_STRIP, SkinnyWarStrip::new);
+    }
+
+    /**
+     * @return an event covering the writing of a deployment descriptor
+     */
+    public static EarEvent beginDescriptorWrite() {
+        return begin(DESCRIPTOR_WRITE, DescriptorWrite::new);
+    }
+
+    /**
+     * @return an event covering the writing of the EAR archive
+     */
+    public static EarEvent beginArchiveWrite() {
+        return begin(ARCHIVE_WRITE, ArchiveWrite::new);
+    }
+
+    private static EarEvent begin(EventType type, Supplier<ModuleEvent> factory) {
+        if (!type.isEnabled()) {
+            return DISABLED;
+        }
+        final ModuleEvent event = factory.get();
+        event.begin();
+        return new EarEvent(event);
+    }
+
+    /**
+     * @return {@code true} if the event is being recorded, so that the byte counts are worth computing
+     */
+    public boolean isEnabled() {
+        return event != null;
+    }
+
+    /**
+     * Ends the event and commits it to the recording.
+     *
+     * @param module the coordinates of the module, or the name of the written file
+     * @param bytesRead the number of bytes read
+     * @param bytesWritten the number of bytes written
+     */
+    public void commit(String module, long bytesRead, long bytesWritten) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.module = module;
+            event.bytesRead = bytesRead;
+            event.bytesWritten = bytesWritten;
+            event.commit();
+        }
+    }
+
+    @Category({"Maven", "EAR Plugin"})
+    @StackTrace(false)
+    abstract static class ModuleEvent extends Event {
+        @Label("Module")
+        String module;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("org.apache.maven.plugins.ear.ModuleStaging")
+    @Label("Module Staging")
+    @Description("Copy or extraction of a module to the work directory")
+    static class ModuleStaging extends ModuleEvent {}
+
+    @Name("org.apache.maven.plugins.ear.Unpack")
+    @Label("Module Unpack")
+    @Description("Extraction of a module to the work directory")
+    static class Unpack extends ModuleEvent {}
+
+    @Name("org.apache.maven.plugins.ear.ManifestRewrite")
+    @Label("Manifest Rewrite")
+    @Description("Rewrite of the manifest Class-Path of a module")
+    static class ManifestRewrite extends ModuleEvent {}
+
+    @Name("org.apache.maven.plugins.ear.SkinnyWarStrip")
+    @Label("Skinny WAR Strip")
+    @Description("Removal of the libraries bundled in a skinny module, the bytes read being their size")
+    static class SkinnyWarStrip extends ModuleEvent {}
+
+    @Name("org.apache.maven.plugins.ear.DescriptorWrite")
+    @Label("Descriptor Write")
+    @Description("Writing of a deployment descriptor")
+    static class DescriptorWrite extends ModuleEvent {}
+
+    @Name("org.apache.maven.plugins.ear.ArchiveWrite")
+    @Label("Archive Write")
+    @Description("Writing of the EAR archive")
+    static class ArchiveWrite extends ModuleEvent {}
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.plugins.ear.util.ArchiveEntryComparator;
+import org.apache.maven.plugins.ear.util.EarBuildReport;
+import org.codehaus.plexus.archiver.jar.JarArchiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchivePipelineTest extends AbstractEarTestBase {
+
+    private static final String[] INCLUDES = {"**"};
+
+    private static final String[] EXCLUDES = {"lib/excluded.jar"};
+
+    @TempDir
+    Path tempDir;
+
+    private final List<EarModule> modules = new ArrayList<>();
+
+    @BeforeEach
+    void createModules() throws IOException {
+        addModule("web", "web-1.0.war");
+        addModule("ejb", "ejbs/ejb-1.0.jar");
+        addModule("lib-b", "lib/b.jar");
+        addModule("lib-a", "lib/a.jar");
+        addModule("excluded", "lib/excluded.jar");
+    }
+
+    @Test
+    void testSameArchiveAsStaged() throws Exception {
+        final Path staged = createWorkDirectory("staged");
+        for (EarModule module : modules) {
+            copy(module, staged.toFile());
+        }
+        final File expected = tempDir.resolve("staged.ear").toFile();
+        final JarArchiver archiver = createArchiver(expected);
+        EarArchivers.addDirectory(archiver, staged.toFile(), INCLUDES, EXCLUDES);
+        archiver.createArchive();
+
+        final Path workDirectory = createWorkDirectory("pipelined");
+        // an outdated module, staged again
+        Files.createDirectories(workDirectory.resolve("lib"));
+        Files.write(workDirectory.resolve("lib/a.jar"), bytes("outdated"));
+        final File actual = tempDir.resolve("pipelined.ear").toFile();
+        final JarArchiver pipelinedArchiver = createArchiver(actual);
+        final EarBuildReport report = new EarBuildReport("ear:ear");
+        // a single byte in flight, so that the modules are staged one after the other
+        final ArchivePipeline pipeline = new ArchivePipeline(modules, workDirectory.toFile(), 1, report);
+        pipeline.addTo(pipelinedArchiver, createComparator(), INCLUDES, EXCLUDES);
+        assertTimeoutPreemptively(
+                Duration.ofSeconds(30),
+                () -> pipeline.run(
+                        module -> {
+                            Thread.sleep(10);
+                            copy(module, workDirectory.toFile());
+                        },
+                        pipelinedArchiver::createArchive));
+
+        assertEquals(read(expected), read(actual));
+        assertEquals(
+                "excluded",
+                new String(Files.readAllBytes(workDirectory.resolve("lib/excluded.jar")), StandardCharsets.UTF_8));
+        assertTrue(report.getPhases().containsKey(EarBuildReport.STAGING));
+        assertTrue(report.getPhases().containsKey(EarBuildReport.ARCHIVE));
+    }
+
+    @Test
+    void testStagingFailure() throws Exception {
+        final Path workDirectory = createWorkDirectory("failed");
+        final JarArchiver archiver = createArchiver(tempDir.resolve("failed.ear").toFile());
+        final ArchivePipeline pipeline =
+                new ArchivePipeline(modules, workDirectory.toFile(), 1, new EarBuildReport("ear:ear"));
+        pipeline.addTo(archiver, createComparator(), INCLUDES, EXCLUDES);
+
+        final ExecutionException e = assertTimeoutPreemptively(
+                Duration.ofSeconds(30),
+                () -> assertThrows(
+                        ExecutionException.class,
+                        () -> pipeline.run(
+                                module -> {
+                                    if (module.getUri().equals("lib/a.jar")) {
+                                        throw new IOException("Cannot stage " + module.getUri());
+                                    }
+                                    copy(module, workDirectory.toFile());
+                                },
+                                archiver::createArchive)));
+        assertEquals("Cannot stage lib/a.jar", e.getCause().getMessage());
+    }
+
+    @Test
+    void testIsStagedByModule() {
+        final ArchivePipeline pipeline =
+                new ArchivePipeline(modules, tempDir.toFile(), 1, new EarBuildReport("ear:ear"));
+
+        assertTrue(pipeline.isStagedByModule("lib/a.jar"));
+        assertTrue(pipeline.isStagedByModule("web-1.0.war/index.html"));
+        assertFalse(pipeline.isStagedByModule("lib"));
+        assertFalse(pipeline.isStagedByModule("META-INF/application.xml"));
+    }
+
+    private void addModule(String artifactId, String uri) throws IOException {
+        final EarModule module = new JarModule(createArtifact(artifactId, "jar"), null, false);
+        setUri(module, uri);
+        final Path file = tempDir.resolve("repository").resolve(artifactId + ".jar");
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes(artifactId));
+        module.getArtifact().setFile(file.toFile());
+        modules.add(module);
+    }
+
+    private Path createWorkDirectory(String name) throws IOException {
+        final Path workDirectory = tempDir.resolve(name);
+        Files.createDirectories(workDirectory.resolve("META-INF"));
+        Files.write(workDirectory.resolve("META-INF/application.xml"), bytes("<application/>"));
+        Files.createDirectories(workDirectory.resolve("docs"));
+        Files.write(workDirectory.resolve("docs/readme.txt"), bytes("readme"));
+        return workDirectory;
+    }
+
+    private ArchiveEntryComparator createComparator() {
+        return new ArchiveEntryComparator(modules, "lib");
+    }
+
+    private JarArchiver createArchiver(File destination) {
+        final JarArchiver archiver = new JarArchiver();
+        archiver.setDestFile(destination);
+        archiver.setFilenameComparator(createComparator());
+        return archiver;
+    }
+
+    private static void copy(EarModule module, File workDirectory) throws IOException {
+        final Path destination = new File(workDirectory, module.getUri()).toPath();
+        Files.createDirectories(destination.getParent());
+        Files.copy(module.getArtifact().getFile().toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the names and CRC-32 of the entries of an archive, in their order.
+     */
+    private static List<String> read(File archive) throws IOException {
+        final List<String> entries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                entries.add(entry.getName() + "=" + entry.getCrc());
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
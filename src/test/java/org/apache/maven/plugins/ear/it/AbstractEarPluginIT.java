@@ -75,9 +75,11 @@ public abstract class AbstractEarPluginIT {
      * @param projectName the name of the project
      * @param expectNoError true/false
      * @param cleanBeforeExecute call clean plugin before execution
+     * @param cliArguments additional command line arguments, such as {@code -T 4}
      * @return the base directory of the project
      */
-    protected File executeMojo(final String projectName, boolean expectNoError, boolean cleanBeforeExecute)
+    protected File executeMojo(
+            final String projectName, boolean expectNoError, boolean cleanBeforeExecute, String... cliArguments)
             throws VerificationException, IOException {
         System.out.println("  Building: " + projectName);
 
@@ -90,6 +92,7 @@ public abstract class AbstractEarPluginIT {
 
         verifier.addCliArguments("-s", settingsFile.getAbsolutePath()); //
         verifier.addCliArgument("-X");
+        verifier.addCliArguments(cliArguments);
         verifier.addCliArgument("package");
 
         // On linux and MacOS X, an exception is thrown if a build failure occurs underneath
@@ -20,7 +20,9 @@ package org.apache.maven.plugins.ear.it;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
@@ -29,6 +31,8 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -1447,4 +1451,178 @@ class EarMojoIT extends AbstractEarPluginIT {
         assertFalse(badFile.exists(), "EAR filename should not contain spaces from whitespace classifier");
         assertTrue(expectedFile.exists(), "EAR archive not found at expected path without spaces");
     }
+
+    /**
+     * Builds an EAR with the build report enabled and checks that both goals are reported.
+     */
+    @Test
+    void testProject104() throws Exception {
+        final File baseDir = doTestProject("project-104", new String[] {"eartest-ejb-sample-one-1.0.jar"});
+        final File reportFile = new File(baseDir, "target/ear-build-report.json");
+        assertTrue(reportFile.exists(), "Build report not found");
+        final String report = new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(report.contains(
+                "\"execution\": \"ear:generate-application-xml (default-generate-application-xml)\""));
+        assertTrue(report.contains("\"execution\": \"ear:ear (default-ear)\""));
+        assertTrue(report.contains("\"uri\": \"eartest-ejb-sample-one-1.0.jar\""));
+        assertTrue(report.contains("\"archive\": "));
+    }
+
+    /**
+     * Builds an exploded EAR with the exploded goal instead of the EAR archive.
+     */
+    @Test
+    void testProject105() throws Exception {
+        final String projectName = "project-105";
+        final File baseDir = executeMojo(projectName);
+        assertFalse(getEarArchive(baseDir, projectName).exists(), "EAR archive should not exist");
+        assertEarDirectory(baseDir, projectName);
+        final File earDirectory = getEarDirectory(baseDir, projectName);
+        assertTrue(new File(earDirectory, "eartest-ejb-sample-one-1.0.jar").isFile());
+        assertDeploymentDescriptors(baseDir, projectName);
+
+        try (FileInputStream in = new FileInputStream(new File(earDirectory, JarFile.MANIFEST_NAME))) {
+            final Manifest manifest = new Manifest(in);
+            assertEquals(
+                    "eartest-ejb-sample-one-1.0.jar",
+                    manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH));
+        }
+    }
+
+    /**
+     * Builds an exploded EAR and synchronizes it to a deployment directory with a deployment marker.
+     */
+    @Test
+    void testProject106() throws Exception {
+        final String projectName = "project-106";
+        final File baseDir = executeMojo(projectName);
+        assertEarDirectory(baseDir, projectName);
+        final File deployments = new File(baseDir, "target/deployments");
+        final File deployment = new File(deployments, buildFinalName(projectName) + ".ear");
+        assertTrue(new File(deployment, "eartest-ejb-sample-one-1.0.jar").isFile());
+        assertTrue(new File(deployment, "META-INF/application.xml").isFile());
+        assertTrue(new File(deployment, JarFile.MANIFEST_NAME).isFile());
+        assertTrue(new File(deployments, buildFinalName(projectName) + ".ear.dodeploy").isFile());
+    }
+
+    /**
+     * Builds an EAR twice and makes sure that the second build reuses the EAR since none of its inputs changed, then
+     * changes a file another plugin stages to the work directory and makes sure that the third build rebuilds it.
+     */
+    @Test
+    void testProject107() throws Exception {
+        final String projectName = "project-107";
+        File baseDir = executeMojo(projectName);
+        final File earFile = getEarArchive(baseDir, projectName);
+        assertTrue(new File(earFile.getPath() + ".fingerprint").isFile(), "Fingerprint should have been stored");
+        final long lastModified = earFile.lastModified();
+
+        baseDir = executeMojo(projectName, true, false);
+        String log = new String(Files.readAllBytes(new File(baseDir, "log.txt").toPath()), StandardCharsets.UTF_8);
+        assertTrue(log.contains("EAR inputs unchanged"), "EAR should have been reused");
+        assertEquals(lastModified, earFile.lastModified(), "EAR should not have been rewritten");
+        assertEarArchive(baseDir, projectName);
+        assertDeploymentDescriptors(baseDir, projectName);
+
+        final byte[] changed = "staged=2\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(new File(baseDir, "src/main/staged/staged.properties").toPath(), changed);
+        baseDir = executeMojo(projectName, true, false);
+        log = new String(Files.readAllBytes(new File(baseDir, "log.txt").toPath()), StandardCharsets.UTF_8);
+        assertFalse(log.contains("EAR inputs unchanged"), "EAR should have been rebuilt");
+        try (JarFile ear = new JarFile(earFile)) {
+            assertEquals(changed.length, ear.getJarEntry("staged.properties").getSize());
+        }
+    }
+
+    /**
+     * Builds an EAR twice with a module store and makes sure that the second build fetches the rewritten module from
+     * the store.
+     */
+    @Test
+    void testProject108() throws Exception {
+        final String projectName = "project-108";
+        executeMojo(projectName);
+        final File baseDir = doTestProject(projectName, new String[] {"eartest-ejb-sample-one-1.0.jar"});
+        final String log =
+                new String(Files.readAllBytes(new File(baseDir, "log.txt").toPath()), StandardCharsets.UTF_8);
+        assertTrue(log.contains("from module store"), "Module should have been fetched from the store");
+        final File moduleStore = new File(baseDir, "module-store");
+        assertTrue(moduleStore.isDirectory(), "Module store does not exist: " + moduleStore);
+        assertEquals(1, moduleStore.listFiles(File::isDirectory).length);
+    }
+
+    /**
+     * Builds an EAR and two variants of it from the same work directory, one with an overlaid deployment descriptor
+     * and one without the modules.
+     */
+    @Test
+    void testProject109() throws Exception {
+        final String projectName = "project-109";
+        final File baseDir = doTestProject(projectName, new String[] {"eartest-ejb-sample-one-1.0.jar"});
+        final File targetDirectory = getTargetDirectory(baseDir);
+
+        try (JarFile prod = new JarFile(new File(targetDirectory, buildFinalName(projectName) + "-prod.ear"))) {
+            assertNotNull(prod.getJarEntry("eartest-ejb-sample-one-1.0.jar"));
+            assertNotNull(prod.getJarEntry("META-INF/application.xml"));
+            assertNotNull(prod.getJarEntry("META-INF/jboss-app.xml"));
+        }
+        try (JarFile empty = new JarFile(new File(targetDirectory, buildFinalName(projectName) + "-empty.ear"))) {
+            assertNull(empty.getJarEntry("eartest-ejb-sample-one-1.0.jar"));
+            assertNotNull(empty.getJarEntry("META-INF/application.xml"));
+            assertNull(empty.getJarEntry("META-INF/jboss-app.xml"));
+        }
+    }
+
+    /**
+     * Builds four EARs sharing the same modules and module store in a parallel reactor, and makes sure that each of
+     * them gets its own modules and configuration.
+     */
+    @Test
+    void testProject110() throws Exception {
+        final String projectName = "project-110";
+        final File baseDir = executeMojo(projectName, true, true, "-T", "4");
+        final String[] earModules = {"a", "b", "c", "d"};
+        for (String earModule : earModules) {
+            final File earModuleDir = getEarModuleDirectory(baseDir, "ear-" + earModule);
+            final File earFile = getEarArchive(earModuleDir, projectName + "-" + earModule);
+            assertTrue(earFile.isFile(), "EAR archive does not exist: " + earFile);
+            try (JarFile ear = new JarFile(earFile)) {
+                assertNotNull(ear.getJarEntry("META-INF/application.xml"));
+                assertNotNull(ear.getJarEntry("lib/eartest-jar-sample-one-1.0.jar"));
+                if ("b".equals(earModule)) {
+                    assertNotNull(ear.getJarEntry("eartest-ejb-sample-one-1.0.jar/META-INF/MANIFEST.MF"));
+                } else {
+                    assertNotNull(ear.getJarEntry("eartest-ejb-sample-one-1.0.jar"));
+                }
+            }
+        }
+        final File nolib = new File(
+                getTargetDirectory(getEarModuleDirectory(baseDir, "ear-d")),
+                buildFinalName(projectName + "-d") + "-nolib.ear");
+        try (JarFile ear = new JarFile(nolib)) {
+            assertNotNull(ear.getJarEntry("eartest-ejb-sample-one-1.0.jar"));
+            assertNull(ear.getJarEntry("lib/eartest-jar-sample-one-1.0.jar"));
+        }
+    }
+
+    /**
+     * Validates that the Class-Path of a module only lists the libraries of its own dependencies when the
+     * classPathFromDependencies option is turned on.
+     */
+    @Test
+    void testProject111() throws Exception {
+        final String ejbModule = "eartest-ejb-sample-five-1.0.jar";
+        final String jarSampleOneLibrary = "lib/eartest-jar-sample-one-1.0.jar";
+        final String jarSampleTwoLibrary = "lib/eartest-jar-sample-two-1.0.jar";
+        final String jarSampleThreeLibrary = "lib/eartest-jar-sample-three-with-deps-1.0.jar";
+        doTestProject(
+                "project-111",
+                "ear",
+                new String[] {ejbModule, jarSampleOneLibrary, jarSampleTwoLibrary, jarSampleThreeLibrary},
+                new boolean[] {false, false, false, false},
+                new String[] {ejbModule},
+                new boolean[] {false},
+                new String[][] {{jarSampleThreeLibrary, jarSampleTwoLibrary}},
+                true);
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugins.ear.AbstractEarTestBase;
+import org.apache.maven.plugins.ear.EarModule;
+import org.apache.maven.plugins.ear.EjbModule;
+import org.apache.maven.plugins.ear.WebModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArchiveEntryComparatorTest extends AbstractEarTestBase {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<EarModule> modules = new ArrayList<>();
+
+    @Test
+    void testRootDirectoryOrder() {
+        addModule(new WebModule(createArtifact("zeta", "war")), "zeta-1.0.war");
+        addModule(new EjbModule(createArtifact("alpha", "ejb")), "ejbs/alpha-1.0.jar");
+        addModule(new EjbModule(createArtifact("beta", "ejb")), "beta-1.0.jar");
+        addModule(new EjbModule(createArtifact("lib-b", "jar")), "lib/lib-b-1.0.jar");
+        addModule(new EjbModule(createArtifact("lib-a", "jar")), "lib/lib-a-1.0.jar");
+
+        final ArchiveEntryComparator comparator = new ArchiveEntryComparator(modules, "lib/");
+
+        assertEquals(
+                Arrays.asList("META-INF", "zeta-1.0.war", "ejbs", "beta-1.0.jar", "lib", "a.txt", "b.txt"),
+                sort(comparator, "b.txt", "lib", "beta-1.0.jar", "a.txt", "ejbs", "META-INF", "zeta-1.0.war"));
+        assertEquals(
+                Arrays.asList("lib-a-1.0.jar", "lib-b-1.0.jar"), sort(comparator, "lib-b-1.0.jar", "lib-a-1.0.jar"));
+    }
+
+    @Test
+    void testUnpackedModuleOrder() {
+        addModule(new WebModule(createArtifact("web", "war")), "web-1.0.war");
+
+        final ArchiveEntryComparator comparator = new ArchiveEntryComparator(modules, null);
+
+        assertEquals(
+                Arrays.asList("META-INF", "WEB-INF", "index.html"),
+                sort(comparator, "index.html", "WEB-INF", "META-INF"));
+    }
+
+    @Test
+    void testDeploymentLayout() throws IOException {
+        addModule(new EjbModule(createArtifact("ejb", "ejb")), "ejb-1.0.jar");
+        addModule(new WebModule(createArtifact("web", "war")), "web-1.0.war");
+        addModule(new EjbModule(createArtifact("other", "ejb")), "other-1.0.jar");
+        final Path applicationXml = tempDir.resolve("application.xml");
+        Files.write(
+                applicationXml,
+                String.join(
+                                "\n",
+                                "<application>",
+                                "  <initialize-in-order>true</initialize-in-order>",
+                                "  <module><web><web-uri>web-1.0.war</web-uri></web></module>",
+                                "  <module><ejb>ejb-1.0.jar</ejb><alt-dd>META-INF/ejb.xml</alt-dd></module>",
+                                "</application>")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        final List<String> order = ArchiveEntryComparator.getDeploymentOrder(modules, applicationXml.toFile());
+        assertEquals(Arrays.asList("web-1.0.war", "ejb-1.0.jar", "other-1.0.jar"), order);
+
+        final ArchiveEntryComparator comparator = new ArchiveEntryComparator(order, null, true);
+        assertEquals(
+                Arrays.asList("META-INF", "web-1.0.war", "ejb-1.0.jar", "other-1.0.jar"),
+                sort(comparator, "other-1.0.jar", "ejb-1.0.jar", "META-INF", "web-1.0.war"));
+        assertEquals(
+                Arrays.asList("MANIFEST.MF", "application.xml", "jboss-app.xml", "INDEX.LIST", "maven"),
+                sort(comparator, "maven", "INDEX.LIST", "jboss-app.xml", "application.xml", "MANIFEST.MF"));
+    }
+
+    private void addModule(EarModule module, String uri) {
+        setUri(module, uri);
+        modules.add(module);
+    }
+
+    private static List<String> sort(ArchiveEntryComparator comparator, String... names) {
+        final List<String> sorted = new ArrayList<>(Arrays.asList(names));
+        sorted.sort(comparator);
+        return sorted;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteBudgetTest {
+
+    @Test
+    void testBoundsBytesInFlight() throws Exception {
+        final ByteBudget budget = new ByteBudget(100);
+        final AtomicLong maxInFlight = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> {
+                    final long bytes = budget.acquire(30);
+                    try {
+                        maxInFlight.accumulateAndGet(budget.getBytesInFlight(), Math::max);
+                        Thread.sleep(2);
+                    } finally {
+                        budget.release(bytes);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(maxInFlight.get() <= 90, "max in flight: " + maxInFlight.get());
+        assertEquals(0, budget.getBytesInFlight());
+    }
+
+    @Test
+    void testLetsBigTaskThroughAlone() throws InterruptedException {
+        final ByteBudget budget = new ByteBudget(100);
+        final long taken = budget.acquire(1000);
+        assertEquals(1000, budget.getBytesInFlight());
+        budget.release(taken);
+        assertEquals(0, budget.acquire(-1));
+    }
+
+    @Test
+    void testInvalidBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBudget(0));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompositionReportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testModules() throws IOException {
+        final CompositionReport report = new CompositionReport();
+        report.module("lib/small.jar", "jar", archive("small.jar", "a.txt", 10), false, Collections.emptyList(), 0);
+        report.module(
+                "web.war",
+                "war",
+                archive("web.war", "index.html", 1000, "WEB-INF/lib/small.jar", 500, "WEB-INF/lib/other.jar", 500),
+                true,
+                Collections.singletonList("WEB-INF/lib/other.jar"),
+                2_000_000L);
+
+        final List<CompositionReport.ModuleComposition> modules = report.getModules();
+        assertEquals("web.war", modules.get(0).getUri());
+        assertEquals(2, modules.get(0).getEntries());
+        assertEquals(1500, modules.get(0).getUncompressedSize());
+        assertEquals(2, modules.get(0).getStagingMillis());
+        assertEquals("lib/small.jar", modules.get(1).getUri());
+        assertEquals(10, modules.get(1).getUncompressedSize());
+        assertTrue(modules.get(0).getCompressedSize() > modules.get(1).getCompressedSize());
+    }
+
+    @Test
+    void testDuplicates() throws IOException {
+        final CompositionReport report = new CompositionReport();
+        report.module("lib/shared.jar", "jar", archive("shared.jar", "a.txt", 1), false, Collections.emptyList(), 0);
+        report.module(
+                "a.war", "war", archive("a.war", "WEB-INF/lib/shared.jar", 1), false, Collections.emptyList(), 0);
+        report.module(
+                "b.war", "war", archive("b.war", "WEB-INF/lib/shared.jar", 1), false, Collections.emptyList(), 0);
+        report.module(
+                "c.war",
+                "war",
+                archive("c.war", "WEB-INF/lib/unique.jar", 1, "WEB-INF/lib/stripped.jar", 1),
+                false,
+                Collections.singletonList("WEB-INF/lib/stripped.jar"),
+                0);
+        report.module(
+                "lib/stripped.jar", "jar", archive("stripped.jar", "a.txt", 1), false, Collections.emptyList(), 0);
+
+        final Map<String, List<String>> duplicates = report.getDuplicates();
+        assertEquals(Collections.singleton("shared.jar"), duplicates.keySet());
+        assertEquals(
+                Arrays.asList("a.war!/WEB-INF/lib/shared.jar", "b.war!/WEB-INF/lib/shared.jar", "lib/shared.jar"),
+                duplicates.get("shared.jar"));
+    }
+
+    @Test
+    void testTable() throws IOException {
+        final CompositionReport report = new CompositionReport();
+        report.module("lib/a.jar", "jar", archive("a.jar", "a.txt", 2048), false, Collections.emptyList(), 0);
+        report.module(
+                "ejb.jar", "ejb", archive("ejb.jar", "lib/a.jar", 10), true, Collections.emptyList(), 3_000_000L);
+
+        final List<String> table = report.table();
+        assertEquals(5, table.size());
+        assertTrue(table.get(0).startsWith("Module     Type"), table.get(0));
+        assertTrue(table.get(1).matches("lib/a\\.jar  jar .* 2\\.0 KiB .* 1  packed .* 0 ms"), table.get(1));
+        assertTrue(table.get(2).matches("ejb\\.jar    ejb .* 1  unpacked .* 3 ms"), table.get(2));
+        assertTrue(table.get(3).startsWith("Total "), table.get(3));
+        assertEquals("Duplicate a.jar: ejb.jar!/lib/a.jar, lib/a.jar", table.get(4));
+    }
+
+    @Test
+    void testWriteJson() throws IOException {
+        final CompositionReport report = new CompositionReport();
+        report.module("a.war", "war", archive("a.war", "WEB-INF/lib/b.jar", 3), true, Collections.emptyList(), 0);
+
+        final StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            report.write(writer);
+        }
+
+        final String json = out.toString().replaceAll("\"compressedSize\": \\d+", "\"compressedSize\": 0");
+        assertEquals(
+                String.join(
+                        "\n",
+                        "{",
+                        "  \"modules\": [",
+                        "    {",
+                        "      \"uri\": \"a.war\",",
+                        "      \"type\": \"war\",",
+                        "      \"compressedSize\": 0,",
+                        "      \"uncompressedSize\": 3,",
+                        "      \"entries\": 1,",
+                        "      \"unpacked\": true,",
+                        "      \"stripped\": false,",
+                        "      \"stagingMillis\": 0,",
+                        "      \"libraries\": [",
+                        "        \"WEB-INF/lib/b.jar\"",
+                        "      ]",
+                        "    }",
+                        "  ],",
+                        "  \"duplicates\": {}",
+                        "}",
+                        ""),
+                json);
+    }
+
+    /**
+     * Creates an archive from pairs of entry names and sizes.
+     */
+    private Path archive(String name, Object... entries) throws IOException {
+        final Path archive = tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new ZipEntry((String) entries[i]));
+                out.write(new byte[(Integer) entries[i + 1]]);
+            }
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectorySyncTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testInitialSync() throws IOException {
+        final Path source = tempDir.resolve("source");
+        write(source.resolve("META-INF/application.xml"), "<application/>");
+        write(source.resolve("web.war/index.html"), "<html/>");
+        Files.createDirectories(source.resolve("empty"));
+        final Path target = tempDir.resolve("target");
+
+        final DirectorySync sync = sync(source, target);
+
+        assertTrue(sync.isChanged());
+        assertEquals(2, sync.getCopiedFiles());
+        assertEquals(0, sync.getDeletedFiles());
+        assertEquals("<html/>", read(target.resolve("web.war/index.html")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+    }
+
+    @Test
+    void testUnchangedSync() throws IOException {
+        final Path source = tempDir.resolve("source");
+        write(source.resolve("lib/a.jar"), "a");
+        final Path target = tempDir.resolve("target");
+        sync(source, target);
+
+        final DirectorySync sync = sync(source, target);
+
+        assertFalse(sync.isChanged());
+        assertEquals(0, sync.getCopiedFiles());
+    }
+
+    @Test
+    void testIncrementalSync() throws IOException {
+        final Path source = tempDir.resolve("source");
+        write(source.resolve("lib/a.jar"), "a");
+        write(source.resolve("lib/b.jar"), "b");
+        write(source.resolve("web.war/WEB-INF/classes/Foo.class"), "foo");
+        final Path target = tempDir.resolve("target");
+        sync(source, target);
+
+        write(source.resolve("lib/a.jar"), "a2");
+        Files.setLastModifiedTime(source.resolve("lib/b.jar"), FileTime.fromMillis(0));
+        Files.delete(source.resolve("web.war/WEB-INF/classes/Foo.class"));
+        Files.delete(source.resolve("web.war/WEB-INF/classes"));
+        final DirectorySync sync = sync(source, target);
+
+        assertTrue(sync.isChanged());
+        assertEquals(2, sync.getCopiedFiles());
+        assertEquals(3L, sync.getCopiedBytes());
+        assertEquals(2, sync.getDeletedFiles());
+        assertEquals("a2", read(target.resolve("lib/a.jar")));
+        assertEquals(0, Files.getLastModifiedTime(target.resolve("lib/b.jar")).toMillis());
+        assertFalse(Files.exists(target.resolve("web.war/WEB-INF/classes")));
+        assertTrue(Files.isDirectory(target.resolve("web.war/WEB-INF")));
+    }
+
+    @Test
+    void testSameSizeChangeWithFixedModificationTime() throws IOException {
+        final Path source = tempDir.resolve("source");
+        final FileTime outputTimestamp = FileTime.fromMillis(1_600_000_000_000L);
+        write(source.resolve("META-INF/jboss-app.xml"), "1.0");
+        Files.setLastModifiedTime(source.resolve("META-INF/jboss-app.xml"), outputTimestamp);
+        final Path target = tempDir.resolve("target");
+        sync(source, target);
+
+        write(source.resolve("META-INF/jboss-app.xml"), "1.1");
+        Files.setLastModifiedTime(source.resolve("META-INF/jboss-app.xml"), outputTimestamp);
+        final DirectorySync sync = sync(source, target);
+
+        assertEquals(1, sync.getCopiedFiles());
+        assertEquals("1.1", read(target.resolve("META-INF/jboss-app.xml")));
+    }
+
+    @Test
+    void testModifiedCopyWithFixedModificationTime() throws IOException {
+        final Path source = tempDir.resolve("source");
+        final FileTime outputTimestamp = FileTime.fromMillis(1_600_000_000_000L);
+        write(source.resolve("lib/a.jar"), "a");
+        Files.setLastModifiedTime(source.resolve("lib/a.jar"), outputTimestamp);
+        final Path target = tempDir.resolve("target");
+        sync(source, target);
+
+        write(target.resolve("lib/a.jar"), "b");
+        Files.setLastModifiedTime(target.resolve("lib/a.jar"), outputTimestamp);
+        final DirectorySync sync = sync(source, target);
+
+        assertEquals(1, sync.getCopiedFiles());
+        assertEquals("a", read(target.resolve("lib/a.jar")));
+    }
+
+    @Test
+    void testSourceDigestsAreReused() throws IOException {
+        final Path source = tempDir.resolve("source");
+        write(source.resolve("lib/a.jar"), "a");
+        final Path target = tempDir.resolve("target");
+        final Map<String, String> digests =
+                Collections.singletonMap("lib/a.jar", IncrementalCopy.digest(source.resolve("lib/a.jar")));
+        DirectorySync.synchronize(source, target, digests, tempDir.resolve("sync"));
+
+        // the content of an unchanged copy is not compared again
+        final DirectorySync sync = DirectorySync.synchronize(source, target, digests, tempDir.resolve("sync"));
+        assertFalse(sync.isChanged());
+
+        final Map<String, String> changed = Collections.singletonMap("lib/a.jar", "changed");
+        assertEquals(1, DirectorySync.synchronize(source, target, changed, tempDir.resolve("sync")).getCopiedFiles());
+    }
+
+    private DirectorySync sync(Path source, Path target) throws IOException {
+        return DirectorySync.synchronize(source, target, Collections.emptyMap(), tempDir.resolve("sync"));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EarBuildReportTest {
+
+    @Test
+    void testPhasesInWallTime() {
+        final EarBuildReport report = new EarBuildReport("ear:ear (default-ear)");
+        report.phase(EarBuildReport.UNPACK, System.nanoTime() - 200_000_000L);
+        report.phase(EarBuildReport.ARCHIVE, System.nanoTime() - 1_000_000L);
+        // overlaps the first unpack, as another module unpacked on another thread
+        report.phase(EarBuildReport.UNPACK, System.nanoTime() - 300_000_000L);
+
+        assertEquals(
+                Arrays.asList(EarBuildReport.UNPACK, EarBuildReport.ARCHIVE),
+                Arrays.asList(report.getPhases().keySet().toArray()));
+        final long unpackMillis = report.getPhases().get(EarBuildReport.UNPACK);
+        assertTrue(unpackMillis >= 300 && unpackMillis < 500, "Unpack took " + unpackMillis + " ms");
+    }
+
+    @Test
+    void testSummary() {
+        final EarBuildReport report = new EarBuildReport("ear:ear (default-ear)");
+        final long start = System.nanoTime();
+        report.module("lib/a.jar", "copied", 2048, 2048, start);
+        report.module("b.war", EarBuildReport.UP_TO_DATE, 0, 0, start);
+        report.count(EarBuildReport.UP_TO_DATE);
+        report.end();
+
+        final String summary = report.summary();
+        assertTrue(summary.startsWith("ear:ear (default-ear) took "), summary);
+        assertTrue(summary.endsWith(", 2 modules, 2.0 KiB read, 2.0 KiB written, 1 up to date"), summary);
+    }
+
+    @Test
+    void testWriteJson() throws IOException {
+        final EarBuildReport report = new EarBuildReport("ear:\"ear\"");
+        report.module("a.jar", "copied", 10, 12, System.nanoTime());
+        report.count(EarBuildReport.UP_TO_DATE);
+
+        final StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            report.write(writer);
+        }
+
+        final String json = out.toString().replaceAll("\"(totalMillis|millis)\": \\d+", "\"$1\": 0");
+        assertEquals(
+                String.join(
+                        "\n",
+                        "{",
+                        "  \"execution\": \"ear:\\\"ear\\\"\",",
+                        "  \"totalMillis\": 0,",
+                        "  \"phases\": {},",
+                        "  \"counters\": {",
+                        "    \"up-to-date\": 1",
+                        "  },",
+                        "  \"modules\": [",
+                        "    {",
+                        "      \"uri\": \"a.jar\",",
+                        "      \"action\": \"copied\",",
+                        "      \"bytesRead\": 10,",
+                        "      \"bytesWritten\": 12,",
+                        "      \"millis\": 0",
+                        "    }",
+                        "  ]",
+                        "}",
+                        ""),
+                json);
+    }
+
+    @Test
+    void testFormatBytes() {
+        assertEquals("512 B", EarBuildReport.formatBytes(512));
+        assertEquals("1.5 KiB", EarBuildReport.formatBytes(1536));
+        assertEquals("3.0 MiB", EarBuildReport.formatBytes(3 * 1024 * 1024));
+    }
+}
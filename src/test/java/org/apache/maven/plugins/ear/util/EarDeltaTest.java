@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EarDeltaTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        final byte[] library = random(512 * 1024, 1);
+        final byte[] module = random(256 * 1024, 2);
+        final Path base = ear(
+                "base.ear", 1_000_000_000L, "lib/a.jar", library, "web.war", module, "old.txt", bytes("old"));
+        final Path target = ear(
+                "target.ear",
+                2_000_000_000L,
+                "lib/a.jar",
+                library,
+                "web.war",
+                random(64 * 1024, 3),
+                "new.txt",
+                bytes("new"));
+
+        final Path delta = tempDir.resolve("delta.zip");
+        final EarDelta earDelta = EarDelta.create(base, target, delta);
+        assertEquals(Collections.singletonList("new.txt"), earDelta.getAddedEntries());
+        assertEquals(Collections.singletonList("web.war"), earDelta.getModifiedEntries());
+        assertEquals(Collections.singletonList("old.txt"), earDelta.getDeletedEntries());
+        assertEquals(Files.size(target), earDelta.getCopiedBytes() + earDelta.getStoredBytes());
+        // the unchanged library is not in the delta, although its entry was written at another time
+        assertTrue(Files.size(delta) < Files.size(target) / 4, "delta size: " + Files.size(delta));
+
+        final Path reconstructed = tempDir.resolve("reconstructed.ear");
+        EarDelta.apply(base, delta, reconstructed);
+        assertArrayEquals(Files.readAllBytes(target), Files.readAllBytes(reconstructed));
+    }
+
+    @Test
+    void testRenamedEntryIsCopied() throws IOException {
+        final byte[] library = random(128 * 1024, 4);
+        final Path base = ear("base.ear", 0, "lib/a-1.0.jar", library);
+        final Path target = ear("target.ear", 0, "lib/a-1.0-renamed.jar", library);
+
+        final Path delta = tempDir.resolve("delta.zip");
+        final EarDelta earDelta = EarDelta.create(base, target, delta);
+        // the compressed data of the library
+        assertTrue(earDelta.getCopiedBytes() >= library.length, "copied bytes: " + earDelta.getCopiedBytes());
+        assertEquals(Collections.singletonList("lib/a-1.0-renamed.jar"), earDelta.getAddedEntries());
+
+        final Path reconstructed = tempDir.resolve("reconstructed.ear");
+        EarDelta.apply(base, delta, reconstructed);
+        assertArrayEquals(Files.readAllBytes(target), Files.readAllBytes(reconstructed));
+    }
+
+    @Test
+    void testApplyToAnotherBase() throws IOException {
+        final Path base = ear("base.ear", 0, "a.txt", bytes("a"));
+        final Path other = ear("other.ear", 0, "a.txt", bytes("b"));
+        final Path target = ear("target.ear", 0, "a.txt", bytes("c"));
+        final Path delta = tempDir.resolve("delta.zip");
+        EarDelta.create(base, target, delta);
+
+        final Path reconstructed = tempDir.resolve("reconstructed.ear");
+        assertThrows(IOException.class, () -> EarDelta.apply(other, delta, reconstructed));
+        assertFalse(Files.exists(reconstructed));
+    }
+
+    /**
+     * Creates an EAR from pairs of entry names and contents, with entries written at the given time.
+     */
+    private Path ear(String name, long time, Object... entries) throws IOException {
+        final Path ear = tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(ear))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                final ZipEntry entry = new ZipEntry((String) entries[i]);
+                entry.setTime(time);
+                out.putNextEntry(entry);
+                out.write((byte[]) entries[i + 1]);
+            }
+        }
+        return ear;
+    }
+
+    private static byte[] random(int size, long seed) {
+        final byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EarIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIndex() throws Exception {
+        final Path workDirectory = stage();
+
+        final EarIndex earIndex = new EarIndex(tempDir.resolve("cache"), 2);
+        final List<EarIndex.Entry> entries = earIndex.index(
+                workDirectory, new PathScanner().list(workDirectory), "web.war"::equals);
+
+        assertEquals(2, entries.size());
+        final EarIndex.Entry descriptor = entries.get(0);
+        assertEquals("META-INF/application.xml", descriptor.getName());
+        assertEquals(7, descriptor.getSize());
+        assertEquals(crc(bytes("<app/>\n")), descriptor.getCrc());
+        assertEquals(sha256(bytes("<app/>\n")), descriptor.getSha256());
+        assertNull(descriptor.getEntries());
+
+        final EarIndex.Entry module = entries.get(1);
+        assertEquals("web.war", module.getName());
+        final byte[] moduleContent = Files.readAllBytes(workDirectory.resolve("web.war"));
+        assertEquals(moduleContent.length, module.getSize());
+        assertEquals(sha256(moduleContent), module.getSha256());
+        assertEquals(2, module.getEntries().size());
+        assertEquals("WEB-INF/web.xml", module.getEntries().get(0).getName());
+        assertEquals("index.html", module.getEntries().get(1).getName());
+        assertEquals(crc(bytes("<html/>")), module.getEntries().get(1).getCrc());
+        assertEquals(sha256(bytes("<html/>")), module.getEntries().get(1).getSha256());
+        assertEquals(0, earIndex.getCacheHits());
+    }
+
+    @Test
+    void testCache() throws Exception {
+        final Path workDirectory = stage();
+        final Path cacheFile = tempDir.resolve("cache");
+        final EarIndex first = new EarIndex(cacheFile, 2);
+        final List<EarIndex.Entry> expected =
+                first.index(workDirectory, new PathScanner().list(workDirectory), "web.war"::equals);
+        first.storeCache();
+
+        final EarIndex second = new EarIndex(cacheFile, 2);
+        final List<EarIndex.Entry> entries =
+                second.index(workDirectory, new PathScanner().list(workDirectory), "web.war"::equals);
+        assertEquals(2, second.getCacheHits());
+        assertEquals(json(expected), json(entries));
+
+        // a modified file is read again
+        Files.write(workDirectory.resolve("META-INF/application.xml"), bytes("<application/>\n"));
+        final EarIndex third = new EarIndex(cacheFile, 2);
+        final List<EarIndex.Entry> modified =
+                third.index(workDirectory, new PathScanner().list(workDirectory), "web.war"::equals);
+        assertEquals(1, third.getCacheHits());
+        assertEquals(sha256(bytes("<application/>\n")), modified.get(0).getSha256());
+    }
+
+    @Test
+    void testCacheWithFixedModificationTime() throws Exception {
+        final Path workDirectory = stage();
+        final Path descriptor = workDirectory.resolve("META-INF/application.xml");
+        final FileTime outputTimestamp = FileTime.fromMillis(1_600_000_000_000L);
+        Files.setLastModifiedTime(descriptor, outputTimestamp);
+        final Path cacheFile = tempDir.resolve("cache");
+        final EarIndex first = new EarIndex(cacheFile, 2);
+        first.index(workDirectory, new PathScanner().list(workDirectory), "web.war"::equals);
+        first.storeCache();
+
+        // restaged with the same size and modification time
+        Files.write(descriptor, bytes("<appl/>\n"));
+        Files.setLastModifiedTime(descriptor, outputTimestamp);
+        final EarIndex second = new EarIndex(cacheFile, 2);
+        final List<EarIndex.Entry> entries =
+                second.index(workDirectory, new PathScanner().list(workDirectory), "web.war"::equals);
+        assertEquals(sha256(bytes("<appl/>\n")), entries.get(0).getSha256());
+    }
+
+    @Test
+    void testWrite() throws Exception {
+        final Path workDirectory = tempDir.resolve("ear");
+        Files.createDirectories(workDirectory);
+        Files.write(workDirectory.resolve("a.txt"), new byte[0]);
+        final List<EarIndex.Entry> entries = new EarIndex(tempDir.resolve("cache"), 1)
+                .index(workDirectory, new PathScanner().list(workDirectory), name -> false);
+
+        assertEquals(
+                String.join(
+                        "\n",
+                        "{",
+                        "  \"entries\": [",
+                        "    {",
+                        "      \"name\": \"a.txt\",",
+                        "      \"size\": 0,",
+                        "      \"crc\": \"00000000\",",
+                        "      \"sha256\": \"" + sha256(new byte[0]) + "\"",
+                        "    }",
+                        "  ]",
+                        "}",
+                        ""),
+                json(entries));
+    }
+
+    private Path stage() throws IOException {
+        final Path workDirectory = tempDir.resolve("ear");
+        Files.createDirectories(workDirectory.resolve("META-INF"));
+        Files.write(workDirectory.resolve("META-INF/application.xml"), bytes("<app/>\n"));
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(workDirectory.resolve("web.war")))) {
+            out.putNextEntry(new ZipEntry("WEB-INF/"));
+            out.putNextEntry(new ZipEntry("index.html"));
+            out.write(bytes("<html/>"));
+            out.putNextEntry(new ZipEntry("WEB-INF/web.xml"));
+            out.write(bytes("<web-app/>"));
+        }
+        return workDirectory;
+    }
+
+    private static String json(List<EarIndex.Entry> entries) throws IOException {
+        final StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            EarIndex.write(entries, writer);
+        }
+        return out.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long crc(byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        final StringBuilder value = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+            value.append(String.format("%02x", b));
+        }
+        return value.toString();
+    }
+}
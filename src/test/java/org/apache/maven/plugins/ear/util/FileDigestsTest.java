@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileDigestsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCompute() throws Exception {
+        // bigger than the buffer
+        final byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        final Path file = Files.write(tempDir.resolve("app.ear"), content);
+
+        final Map<String, String> digests = new FileDigests(Arrays.asList("SHA-256", "SHA-512")).compute(file);
+        assertEquals(Arrays.asList("SHA-256", "SHA-512"), Arrays.asList(digests.keySet().toArray()));
+        assertEquals(hex("SHA-256", content), digests.get("SHA-256"));
+        assertEquals(hex("SHA-512", content), digests.get("SHA-512"));
+    }
+
+    @Test
+    void testWriteSidecars() throws Exception {
+        final Path file = Files.write(tempDir.resolve("app.ear"), "ear".getBytes(StandardCharsets.UTF_8));
+        final FileDigests fileDigests = new FileDigests(Collections.singletonList("SHA-256"));
+
+        final Path sidecar = fileDigests.writeSidecars(file).get("SHA-256");
+        assertEquals(tempDir.resolve("app.ear.sha256"), sidecar);
+        assertEquals(hex("SHA-256", "ear".getBytes(StandardCharsets.UTF_8)), read(sidecar));
+
+        // newer than the archive but stale: computed again
+        Files.write(sidecar, "stale".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(sidecar, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+        fileDigests.writeSidecars(file);
+        assertEquals(hex("SHA-256", "ear".getBytes(StandardCharsets.UTF_8)), read(sidecar));
+    }
+
+    @Test
+    void testWriteOutdatedSidecars() throws Exception {
+        final Path file = Files.write(tempDir.resolve("app.ear"), "ear".getBytes(StandardCharsets.UTF_8));
+        final FileDigests fileDigests = new FileDigests(Arrays.asList("SHA-256", "SHA-512"));
+        final Map<String, Path> sidecars = fileDigests.writeSidecars(file);
+        final long lastModified = Files.getLastModifiedTime(file).toMillis();
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+
+        // not older than the unchanged archive: kept without reading the archive
+        final Path sidecar = sidecars.get("SHA-256");
+        Files.write(sidecar, "kept".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(sidecar, FileTime.fromMillis(lastModified));
+        assertEquals(sidecars, fileDigests.writeOutdatedSidecars(file));
+        assertEquals("kept", read(sidecar));
+
+        // one is older than the archive: written again
+        Files.setLastModifiedTime(sidecars.get("SHA-512"), FileTime.fromMillis(lastModified - 10_000));
+        fileDigests.writeOutdatedSidecars(file);
+        assertEquals(hex("SHA-256", "ear".getBytes(StandardCharsets.UTF_8)), read(sidecar));
+
+        // a missing one is written
+        Files.delete(sidecar);
+        fileDigests.writeOutdatedSidecars(file);
+        assertEquals(hex("SHA-256", "ear".getBytes(StandardCharsets.UTF_8)), read(sidecar));
+    }
+
+    @Test
+    void testUnsupportedAlgorithm() {
+        assertThrows(
+                NoSuchAlgorithmException.class, () -> new FileDigests(Collections.singletonList("NO-SUCH-DIGEST")));
+    }
+
+    @Test
+    void testGetExtension() {
+        assertEquals("sha256", FileDigests.getExtension("SHA-256"));
+        assertEquals("sha1", FileDigests.getExtension("SHA-1"));
+        assertEquals("md5", FileDigests.getExtension("MD5"));
+    }
+
+    private static String hex(String algorithm, byte[] content) throws NoSuchAlgorithmException {
+        final StringBuilder value = new StringBuilder();
+        for (byte b : MessageDigest.getInstance(algorithm).digest(content)) {
+            value.append(String.format("%02x", b));
+        }
+        return value.toString();
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileWatcherTest {
+
+    private static final long TIMEOUT = 30000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWatchedFile() throws Exception {
+        final Path module = Files.write(tempDir.resolve("ejb.jar"), new byte[] {1});
+        final Path other = tempDir.resolve("other.jar");
+        try (FileWatcher watcher =
+                new FileWatcher(Collections.singletonList(module), Collections.<Path>emptyList())) {
+            Files.write(other, new byte[] {2});
+            Files.delete(module);
+            Files.write(module, new byte[] {3});
+
+            final Set<Path> changes = watcher.awaitChanges(100, TIMEOUT);
+            assertEquals(Collections.singleton(module.toAbsolutePath().normalize()), changes);
+        }
+    }
+
+    @Test
+    void testWatchedTree() throws Exception {
+        final Path sources = Files.createDirectories(tempDir.resolve("src/main/application/META-INF"))
+                .getParent();
+        try (FileWatcher watcher =
+                new FileWatcher(Collections.<Path>emptyList(), Collections.singletonList(sources))) {
+            assertEquals(2, watcher.getWatchedDirectories());
+
+            final Path descriptor = sources.resolve("META-INF/jboss-app.xml");
+            Files.write(descriptor, "<jboss-app/>".getBytes(StandardCharsets.UTF_8));
+            final Set<Path> changes = watcher.awaitChanges(100, TIMEOUT);
+            assertTrue(changes.contains(descriptor.toAbsolutePath().normalize()), changes.toString());
+
+            // the files of a new directory are reported and the directory is watched
+            final Path lib = Files.createDirectories(sources.resolve("lib"));
+            Files.write(lib.resolve("a.jar"), new byte[] {1});
+            assertTrue(watcher.awaitChanges(300, TIMEOUT).contains(lib.resolve("a.jar").toAbsolutePath().normalize()));
+            assertEquals(3, watcher.getWatchedDirectories());
+
+            Files.write(lib.resolve("b.jar"), new byte[] {2});
+            assertEquals(
+                    Collections.singleton(lib.resolve("b.jar").toAbsolutePath().normalize()),
+                    watcher.awaitChanges(100, TIMEOUT));
+        }
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        try (FileWatcher watcher = new FileWatcher(
+                Collections.singletonList(tempDir.resolve("ejb.jar")), Arrays.asList(tempDir.resolve("missing")))) {
+            assertTrue(watcher.awaitChanges(10, 50).isEmpty());
+        }
+    }
+}
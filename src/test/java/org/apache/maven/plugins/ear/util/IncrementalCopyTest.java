@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalCopyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testUnchangedFileIsUpToDate() throws IOException {
+        final Path stateFile = tempDir.resolve("state");
+        final Path source = write(tempDir.resolve("src/jboss-app.xml"), "${version}");
+        final Path target = write(tempDir.resolve("work/jboss-app.xml"), "1.0");
+
+        final IncrementalCopy first = new IncrementalCopy(stateFile, "filters");
+        assertFalse(first.isUpToDate("jboss-app.xml", IncrementalCopy.digest(source), true, target));
+        first.record("jboss-app.xml", IncrementalCopy.digest(source), true, target);
+        first.store();
+
+        final IncrementalCopy second = new IncrementalCopy(stateFile, "filters");
+        assertTrue(second.isUpToDate("jboss-app.xml", IncrementalCopy.digest(source), true, target));
+        second.store();
+
+        // still recorded since it was checked
+        assertTrue(new IncrementalCopy(stateFile, "filters")
+                .isUpToDate("jboss-app.xml", IncrementalCopy.digest(source), true, target));
+    }
+
+    @Test
+    void testChangesAreDetected() throws IOException {
+        final Path stateFile = tempDir.resolve("state");
+        final Path source = write(tempDir.resolve("src/jboss-app.xml"), "${version}");
+        final Path target = write(tempDir.resolve("work/jboss-app.xml"), "1.0");
+        final String digest = IncrementalCopy.digest(source);
+
+        final IncrementalCopy first = new IncrementalCopy(stateFile, "filters");
+        first.record("jboss-app.xml", digest, true, target);
+        first.store();
+
+        final IncrementalCopy second = new IncrementalCopy(stateFile, "other filters");
+        assertFalse(second.isUpToDate("jboss-app.xml", digest, true, target), "filter values changed");
+        assertFalse(second.isUpToDate("jboss-app.xml", digest, false, target), "no longer filtered");
+
+        final IncrementalCopy third = new IncrementalCopy(stateFile, "filters");
+        write(source, "${project.version}");
+        assertFalse(third.isUpToDate("jboss-app.xml", IncrementalCopy.digest(source), true, target));
+        write(target, "modified");
+        assertFalse(third.isUpToDate("jboss-app.xml", digest, true, target), "copy modified");
+        Files.delete(target);
+        assertFalse(third.isUpToDate("jboss-app.xml", digest, true, target), "copy deleted");
+    }
+
+    @Test
+    void testSameSizeChangeWithFixedModificationTime() throws IOException {
+        final Path stateFile = tempDir.resolve("state");
+        final Path source = write(tempDir.resolve("src/jboss-app.xml"), "${version}");
+        final Path target = write(tempDir.resolve("work/jboss-app.xml"), "1.0");
+        final FileTime outputTimestamp = FileTime.fromMillis(1_600_000_000_000L);
+        Files.setLastModifiedTime(target, outputTimestamp);
+        final String digest = IncrementalCopy.digest(source);
+
+        final IncrementalCopy first = new IncrementalCopy(stateFile, "filters");
+        first.record("jboss-app.xml", digest, true, target);
+        first.store();
+
+        Files.write(target, "1.1".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(target, outputTimestamp);
+        assertFalse(new IncrementalCopy(stateFile, "filters").isUpToDate("jboss-app.xml", digest, true, target));
+    }
+
+    @Test
+    void testDigest() throws IOException {
+        final String digest = IncrementalCopy.digest(write(tempDir.resolve("a.txt"), "content"));
+        assertEquals(64, digest.length());
+        assertEquals(digest, IncrementalCopy.digest(write(tempDir.resolve("b.txt"), "content")));
+        assertNotEquals(digest, IncrementalCopy.digest(write(tempDir.resolve("c.txt"), "other")));
+    }
+
+    @Test
+    void testTransfer() throws IOException {
+        final Path source = write(tempDir.resolve("lib.jar"), "library");
+        final Path target = write(tempDir.resolve("work/lib.jar"), "stale content");
+        final Path link = tempDir.resolve("link.jar");
+        Files.createLink(link, target);
+
+        IncrementalCopy.transfer(source, target);
+
+        assertEquals("library", read(target));
+        // the other link to the replaced copy is left untouched
+        assertEquals("stale content", read(link));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputFingerprintTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFingerprintChanges() throws IOException {
+        final Path sources = tempDir.resolve("sources");
+        write(sources.resolve("META-INF/foo.xml"), "foo");
+        final Path descriptor = tempDir.resolve("application.xml");
+        write(descriptor, "<application/>");
+
+        final String fingerprint = fingerprint(sources, descriptor, "1.0");
+        assertEquals(fingerprint, fingerprint(sources, descriptor, "1.0"));
+        assertNotEquals(fingerprint, fingerprint(sources, descriptor, "2.0"));
+
+        write(descriptor, "<application></application>");
+        final String changedDescriptor = fingerprint(sources, descriptor, "1.0");
+        assertNotEquals(fingerprint, changedDescriptor);
+
+        write(sources.resolve("bar.txt"), "bar");
+        assertNotEquals(changedDescriptor, fingerprint(sources, descriptor, "1.0"));
+    }
+
+    @Test
+    void testUpToDate() throws IOException {
+        final Path ear = tempDir.resolve("test.ear");
+        write(ear, "ear");
+        final Path variant = tempDir.resolve("test-prod.ear");
+        write(variant, "variant");
+        final List<File> outputs = Arrays.asList(ear.toFile(), variant.toFile());
+        final File fingerprintFile = tempDir.resolve("test.ear.fingerprint").toFile();
+
+        assertFalse(InputFingerprint.isUpToDate(fingerprintFile, "abc", outputs));
+        InputFingerprint.store(fingerprintFile, "abc", outputs);
+        assertTrue(InputFingerprint.isUpToDate(fingerprintFile, "abc", outputs));
+        assertFalse(InputFingerprint.isUpToDate(fingerprintFile, "def", outputs));
+        assertFalse(InputFingerprint.isUpToDate(fingerprintFile, "abc", Collections.singletonList(ear.toFile())));
+
+        write(variant, "modified variant");
+        assertFalse(InputFingerprint.isUpToDate(fingerprintFile, "abc", outputs));
+    }
+
+    private static String fingerprint(Path sources, Path descriptor, String version) throws IOException {
+        return new InputFingerprint()
+                .add("version", version)
+                .addAll("properties", Collections.singletonMap("key", "value"))
+                .addDirectory("sources", sources.toFile())
+                .addFileContent("descriptor", descriptor.toFile())
+                .addFileStatus("missing", new File("missing"))
+                .getValue();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
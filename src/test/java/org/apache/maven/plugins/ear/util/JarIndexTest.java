@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JarIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMissingLibDirectory() throws IOException {
+        assertTrue(JarIndex.scan(tempDir, "lib", 2).isEmpty());
+    }
+
+    @Test
+    void testIndexLibraries() throws IOException {
+        createJar(
+                tempDir.resolve("lib/b.jar"),
+                "META-INF/MANIFEST.MF",
+                "org/foo/",
+                "org/foo/Foo.class",
+                "org/foo/bar/Bar.class",
+                "log4j.properties");
+        createJar(tempDir.resolve("lib/a.jar"), "META-INF/services/org.foo.Spi", "com/acme/Acme.class");
+        Files.write(tempDir.resolve("lib/README.txt"), "not a jar".getBytes(StandardCharsets.UTF_8));
+
+        final JarIndex index = JarIndex.scan(tempDir, "lib/", 4);
+
+        assertEquals(Arrays.asList("lib/a.jar", "lib/b.jar"), new ArrayList<>(index.getPackagesByJar().keySet()));
+        assertEquals(Collections.singleton("com/acme"), index.getPackagesByJar().get("lib/a.jar"));
+        assertEquals(
+                new HashSet<>(Arrays.asList("log4j.properties", "org/foo", "org/foo/bar")),
+                index.getPackagesByJar().get("lib/b.jar"));
+    }
+
+    @Test
+    void testWriteIndex() throws IOException {
+        createJar(tempDir.resolve("a.jar"), "com/acme/Acme.class");
+
+        final Path indexFile = tempDir.resolve(JarIndex.INDEX_NAME);
+        JarIndex.scan(tempDir, "./", 1).write(indexFile);
+
+        assertEquals(
+                Arrays.asList("JarIndex-Version: 1.0", "", "a.jar", "com/acme", ""),
+                Files.readAllLines(indexFile, StandardCharsets.UTF_8));
+    }
+
+    private static void createJar(Path jar, String... entries) throws IOException {
+        Files.createDirectories(jar.getParent());
+        try (OutputStream out = Files.newOutputStream(jar);
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.closeEntry();
+            }
+        }
+    }
+}
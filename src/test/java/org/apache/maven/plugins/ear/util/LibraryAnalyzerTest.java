@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LibraryAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadClass() throws IOException {
+        final Set<String> referenced = new HashSet<>();
+        try (InputStream in = new ByteArrayInputStream(classBytes("LibraryAnalyzer"))) {
+            assertEquals(
+                    "org/apache/maven/plugins/ear/util/LibraryAnalyzer", LibraryAnalyzer.readClass(in, referenced));
+        }
+        assertTrue(referenced.contains("org/apache/maven/plugins/ear/util/InputFingerprint"));
+        assertTrue(referenced.contains("java/util/zip/ZipFile"));
+        // from a method descriptor only
+        assertTrue(referenced.contains("java/util/Collection"));
+    }
+
+    @Test
+    void testFindUnusedLibraries() throws IOException {
+        final Path module = archive("ejb.jar", LibraryAnalyzerTest.class);
+        final Path analyzer = archive("analyzer.jar", LibraryAnalyzer.class);
+        // only referenced by the analyzer library
+        final Path fingerprint = archive("fingerprint.jar", InputFingerprint.class);
+        final Path unused = archive("unused.jar", "DirectorySync");
+        final Path service = archive("service.jar", ModuleStore.class);
+        addEntry(service, "META-INF/services/java.sql.Driver", "org.example.Driver");
+        final Path resources = tempDir.resolve("resources.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(resources))) {
+            out.putNextEntry(new ZipEntry("config.properties"));
+        }
+
+        final LibraryAnalyzer libraryAnalyzer = new LibraryAnalyzer(tempDir.resolve("cache"), 4);
+        assertEquals(
+                Collections.singleton(unused),
+                libraryAnalyzer.findUnusedLibraries(
+                        Collections.singletonList(module),
+                        Arrays.asList(analyzer, fingerprint, unused, service, resources)));
+        assertEquals(0, libraryAnalyzer.getCacheHits());
+
+        final LibraryAnalyzer cachedAnalyzer = new LibraryAnalyzer(tempDir.resolve("cache"), 4);
+        assertEquals(
+                Collections.singleton(unused),
+                cachedAnalyzer.findUnusedLibraries(
+                        Collections.singletonList(module),
+                        Arrays.asList(analyzer, fingerprint, unused, service, resources)));
+        assertEquals(6, cachedAnalyzer.getCacheHits());
+    }
+
+    @Test
+    void testNestedLibrariesOfModules() throws IOException {
+        final Path war = tempDir.resolve("web.war");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(war))) {
+            out.putNextEntry(new ZipEntry("WEB-INF/lib/nested.jar"));
+            out.write(Files.readAllBytes(archive("nested.jar", LibraryAnalyzerTest.class)));
+        }
+        final Path analyzer = archive("analyzer.jar", LibraryAnalyzer.class);
+        final Path unused = archive("unused.jar", "DirectorySync");
+
+        assertEquals(
+                Collections.singleton(unused),
+                new LibraryAnalyzer(null, 1)
+                        .findUnusedLibraries(Collections.singletonList(war), Arrays.asList(analyzer, unused)));
+    }
+
+    @Test
+    void testLibraryBundledInModule() throws IOException {
+        final Path war = tempDir.resolve("web.war");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(war))) {
+            out.putNextEntry(new ZipEntry("WEB-INF/classes/org/apache/maven/plugins/ear/util/LibraryAnalyzer.class"));
+            out.write(classBytes("LibraryAnalyzer"));
+            // also provided by a library of the EAR, as in a skinny module
+            out.putNextEntry(new ZipEntry("WEB-INF/lib/fingerprint.jar"));
+            out.write(Files.readAllBytes(archive("bundled.jar", InputFingerprint.class)));
+        }
+        final Path fingerprint = archive("fingerprint.jar", InputFingerprint.class);
+        final Path unused = archive("unused.jar", "DirectorySync");
+
+        assertEquals(
+                Collections.singleton(unused),
+                new LibraryAnalyzer(null, 1)
+                        .findUnusedLibraries(Collections.singletonList(war), Arrays.asList(fingerprint, unused)));
+    }
+
+    private Path archive(String name, Class<?> type) throws IOException {
+        return archive(name, type.getSimpleName());
+    }
+
+    /**
+     * Archives a class of this package, given by its simple name when the test must not reference it.
+     */
+    private Path archive(String name, String simpleName) throws IOException {
+        final Path archive = tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("org/apache/maven/plugins/ear/util/" + simpleName + ".class"));
+            out.write(classBytes(simpleName));
+        }
+        return archive;
+    }
+
+    private static void addEntry(Path archive, String name, String content) throws IOException {
+        final byte[] previous = Files.readAllBytes(archive);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive));
+                ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(previous))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                copy(in, out);
+            }
+            out.putNextEntry(new ZipEntry(name));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] classBytes(String simpleName) throws IOException {
+        try (InputStream in = LibraryAnalyzerTest.class.getResourceAsStream(simpleName + ".class")) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            copy(in, out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        final byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+    }
+}
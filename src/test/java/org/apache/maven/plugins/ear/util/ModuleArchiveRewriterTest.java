@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleArchiveRewriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRemoveAndReplaceEntries() throws IOException {
+        final Path source = tempDir.resolve("source.war");
+        createArchive(source, 1, "META-INF/", "META-INF/MANIFEST.MF", "WEB-INF/lib/a.jar", "WEB-INF/lib/b.jar");
+        final Path destination = tempDir.resolve("destination.war");
+
+        try (ModuleArchiveRewriter rewriter = new ModuleArchiveRewriter(source)) {
+            assertTrue(rewriter.hasEntry("WEB-INF/lib/a.jar"));
+            assertFalse(rewriter.hasEntry("WEB-INF/lib/c.jar"));
+            assertEquals("WEB-INF/lib/b.jar".length(), rewriter.getSize("WEB-INF/lib/b.jar"));
+            rewriter.removeEntry("WEB-INF/lib/a.jar");
+            rewriter.replaceEntry("META-INF/MANIFEST.MF", "Class-Path: lib/a.jar".getBytes(StandardCharsets.UTF_8));
+            rewriter.writeTo(destination, 1024);
+        }
+
+        try (ZipFile zipFile = new ZipFile(destination.toFile())) {
+            assertEquals(
+                    Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "WEB-INF/lib/b.jar"), entryNames(zipFile));
+            assertEquals("Class-Path: lib/a.jar", read(zipFile, "META-INF/MANIFEST.MF"));
+            assertEquals("WEB-INF/lib/b.jar", read(zipFile, "WEB-INF/lib/b.jar"));
+        }
+    }
+
+    @Test
+    void testAddEntryWithParentDirectories() throws IOException {
+        final Path source = tempDir.resolve("source.jar");
+        createArchive(source, 1, "org/foo/Foo.class");
+        final Path destination = tempDir.resolve("destination.jar");
+        final FileTime time = FileTime.fromMillis(1_600_000_000_000L);
+
+        try (ModuleArchiveRewriter rewriter = new ModuleArchiveRewriter(source)) {
+            rewriter.setAddedEntriesTime(time);
+            rewriter.replaceEntry("META-INF/MANIFEST.MF", new byte[0]);
+            rewriter.writeTo(destination, 1024);
+        }
+
+        try (ZipFile zipFile = new ZipFile(destination.toFile())) {
+            assertEquals(
+                    Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "org/foo/Foo.class"), entryNames(zipFile));
+            assertEquals(
+                    time.toMillis(),
+                    zipFile.getEntry("META-INF/MANIFEST.MF").getLastModifiedTime().toMillis());
+        }
+    }
+
+    @Test
+    void testZip64EntryCount() throws IOException {
+        final Path source = tempDir.resolve("source.war");
+        createArchive(source, 70_000, "WEB-INF/classes/Class", "WEB-INF/lib/a.jar");
+        final Path destination = tempDir.resolve("destination.war");
+
+        try (ModuleArchiveRewriter rewriter = new ModuleArchiveRewriter(source)) {
+            rewriter.removeEntry("WEB-INF/lib/a.jar0");
+            rewriter.writeTo(destination, ModuleArchiveRewriter.DEFAULT_BUFFER_SIZE);
+        }
+
+        try (ZipFile zipFile = new ZipFile(destination.toFile())) {
+            assertEquals(139_999, zipFile.size());
+        }
+        // The local headers are consistent as well
+        int entries = 0;
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(destination))) {
+            while (in.getNextEntry() != null) {
+                entries++;
+            }
+        }
+        assertEquals(139_999, entries);
+    }
+
+    /**
+     * Creates an archive with the given entries, each having its name as content. If {@code count} is greater than
+     * one, each entry is repeated with a numeric suffix.
+     */
+    private static void createArchive(Path file, int count, String... names) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file);
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String name : names) {
+                for (int i = 0; i < count; i++) {
+                    final String entryName = count > 1 ? name + i : name;
+                    zip.putNextEntry(new ZipEntry(entryName));
+                    if (!entryName.endsWith("/")) {
+                        zip.write(entryName.getBytes(StandardCharsets.UTF_8));
+                    }
+                    zip.closeEntry();
+                }
+            }
+        }
+    }
+
+    private static List<String> entryNames(ZipFile zipFile) {
+        final List<String> names = new ArrayList<>();
+        for (ZipEntry entry : Collections.list(zipFile.entries())) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    private static String read(ZipFile zipFile, String name) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            final byte[] buffer = new byte[1024];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                content.write(buffer, 0, n);
+            }
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
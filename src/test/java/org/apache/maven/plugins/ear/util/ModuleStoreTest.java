@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPutAndFetch() throws IOException {
+        final ModuleStore store = new ModuleStore(tempDir.resolve("store"), 1024, true);
+        final Path module = write(tempDir.resolve("work/web.war"), "web");
+        final Path destination = tempDir.resolve("other/web.war");
+        Files.createDirectories(destination.getParent());
+
+        assertFalse(store.fetch("key", destination));
+        store.put("key", module);
+        // An existing destination is replaced
+        write(destination, "stale");
+        assertTrue(store.fetch("key", destination));
+
+        assertEquals("web", read(destination));
+        assertEquals("web", read(module));
+    }
+
+    @Test
+    void testCopiedModulesCanBeModifiedInPlace() throws IOException {
+        final ModuleStore store = new ModuleStore(tempDir.resolve("store"), 1024, false);
+        final Path module = write(tempDir.resolve("work/web.war"), "web");
+        store.put("key", module);
+        final Path destination = tempDir.resolve("exploded/web.war");
+        Files.createDirectories(destination.getParent());
+        assertTrue(store.fetch("key", destination));
+
+        Files.write(module, "modified".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+        Files.write(destination, "modified".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+
+        final Path other = tempDir.resolve("other/web.war");
+        Files.createDirectories(other.getParent());
+        assertTrue(store.fetch("key", other));
+        assertEquals("web", read(other));
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsed() throws IOException {
+        final Path directory = tempDir.resolve("store");
+        final ModuleStore store = new ModuleStore(directory, 10, true);
+        store.put("first", write(tempDir.resolve("first.jar"), "12345"));
+        store.put("second", write(tempDir.resolve("second.jar"), "12345"));
+        Files.setLastModifiedTime(directory.resolve("first"), FileTime.fromMillis(2000));
+        Files.setLastModifiedTime(directory.resolve("second"), FileTime.fromMillis(1000));
+
+        store.put("third", write(tempDir.resolve("third.jar"), "12345"));
+
+        assertTrue(Files.exists(directory.resolve("first")));
+        assertFalse(Files.exists(directory.resolve("second")));
+        assertTrue(Files.exists(directory.resolve("third")));
+        assertFalse(store.fetch("second", tempDir.resolve("second-fetched.jar")));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
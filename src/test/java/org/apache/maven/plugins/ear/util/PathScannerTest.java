@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAntPatterns() {
+        assertMatches("**", "a.xml", "META-INF/a.xml");
+        assertMatches("*.xml", "a.xml");
+        assertNotMatches("*.xml", "META-INF/a.xml", "a.txt");
+        assertMatches("**/*.xml", "a.xml", "META-INF/a.xml", "a/b/c.xml");
+        assertMatches("META-INF/**", "META-INF", "META-INF/a.xml", "META-INF/b/c.xml");
+        assertNotMatches("META-INF/**", "META-INFO/a.xml");
+        assertMatches("META-INF/", "META-INF/a.xml");
+        assertMatches("**/lib/*.jar", "lib/a.jar", "x/lib/a.jar");
+        assertNotMatches("**/lib/*.jar", "lib/x/a.jar");
+        assertMatches("a?c.txt", "abc.txt");
+        assertNotMatches("a?c.txt", "ac.txt", "a/c.txt");
+        assertMatches("%ant[**/*.properties]", "a/b.properties");
+        assertMatches("a.b+c", "a.b+c");
+        assertNotMatches("a.b+c", "axbbc");
+    }
+
+    @Test
+    void testRegexPatterns() {
+        assertMatches("%regex[.*\\.xml]", "a.xml", "META-INF/a.xml");
+        assertNotMatches("%regex[[^/]*\\.xml]", "META-INF/a.xml");
+        assertMatches("%regex[(?!META-INF).*]", "a.xml");
+        assertNotMatches("%regex[(?!META-INF).*]", "META-INF/a.xml");
+    }
+
+    @Test
+    void testScanLikeDirectoryScanner() throws IOException {
+        for (String file : new String[] {
+            "META-INF/application.xml",
+            "META-INF/jboss-app.xml",
+            "lib/a.jar",
+            "lib/b.jar",
+            "readme.txt",
+            "config/app.properties",
+            "config/.svn/entries",
+            ".gitignore"
+        }) {
+            final Path path = tempDir.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.createFile(path);
+        }
+
+        final String[][] includes = {null, {"**"}, {"**/*.xml", "lib/"}, {"%regex[.*\\.(jar|txt)]"}};
+        final String[][] excludes = {null, {"**/jboss-app.xml"}, {"lib/b.jar", "config/**"}};
+        for (String[] include : includes) {
+            for (String[] exclude : excludes) {
+                final DirectoryScanner scanner = new DirectoryScanner();
+                scanner.setBasedir(tempDir.toFile());
+                scanner.setIncludes(include);
+                scanner.setExcludes(exclude);
+                scanner.addDefaultExcludes();
+                scanner.scan();
+
+                final Map<String, BasicFileAttributes> files =
+                        new PathScanner().scan(tempDir, include, exclude, true);
+                assertEquals(
+                        new TreeSet<>(Arrays.asList(scanner.getIncludedFiles())),
+                        new TreeSet<>(files.keySet()),
+                        Arrays.toString(include) + " - " + Arrays.toString(exclude));
+            }
+        }
+    }
+
+    @Test
+    void testTreeIsWalkedOnce() throws IOException {
+        Files.createFile(tempDir.resolve("a.txt"));
+        final PathScanner scanner = new PathScanner();
+        final Map<String, BasicFileAttributes> files = scanner.list(tempDir);
+        Files.createFile(tempDir.resolve("b.txt"));
+
+        assertSame(files, scanner.list(tempDir));
+        assertEquals(1, scanner.scan(tempDir, null, null, false).size());
+
+        scanner.forget(tempDir);
+        assertEquals(2, scanner.list(tempDir).size());
+        assertTrue(scanner.list(tempDir.resolve("missing")).isEmpty());
+    }
+
+    private static void assertMatches(String pattern, String... paths) {
+        for (String path : paths) {
+            assertTrue(
+                    PathScanner.compile(pattern).matches(toPath(path)), pattern + " should match " + path);
+        }
+    }
+
+    private static void assertNotMatches(String pattern, String... paths) {
+        for (String path : paths) {
+            assertFalse(
+                    PathScanner.compile(pattern).matches(toPath(path)), pattern + " should not match " + path);
+        }
+    }
+
+    private static Path toPath(String path) {
+        return new File(path.replace('/', File.separatorChar)).toPath();
+    }
+}
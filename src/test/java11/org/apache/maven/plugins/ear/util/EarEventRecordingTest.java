@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.ear.util;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EarEventRecordingTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecordsEnabledEvents() throws Exception {
+        final Path recordingFile = tempDir.resolve("ear.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.apache.maven.plugins.ear.Unpack").withoutThreshold();
+            recording.disable("org.apache.maven.plugins.ear.ArchiveWrite");
+            recording.start();
+
+            final EarEvent unpack = EarEvent.beginUnpack();
+            assertTrue(unpack.isEnabled());
+            unpack.commit("eartest:ejb-sample-one:ejb:1.0", 10, 20);
+            // disabled in the recording
+            assertFalse(EarEvent.beginArchiveWrite().isEnabled());
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertEquals(1, events.size());
+        final RecordedEvent event = events.get(0);
+        assertEquals("org.apache.maven.plugins.ear.Unpack", event.getEventType().getName());
+        assertEquals("eartest:ejb-sample-one:ejb:1.0", event.getString("module"));
+        assertEquals(10, event.getLong("bytesRead"));
+        assertEquals(20, event.getLong("bytesWritten"));
+    }
+}